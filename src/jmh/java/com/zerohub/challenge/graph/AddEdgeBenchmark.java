@@ -0,0 +1,73 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one publish into a component of vertexCount vertexes.
+ * The graph is built again for each iteration, so added vertexes don't grow it much.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, batchSize = 20)
+@Measurement(iterations = 10, batchSize = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class AddEdgeBenchmark {
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    @Param({"100", "1000", "5000"})
+    private int vertexCount;
+
+    private DirectedWeightedGraph graph;
+    private Random random;
+    private int nextVertex;
+    private Edge repriced;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        random = new Random(42);
+        graph = Graphs.create(engine);
+        var edges = Graphs.randomComponent(0, vertexCount, Graphs.CYCLE_EDGES, random);
+        graph.addEdges(edges);
+        repriced = edges.get(edges.size() - 1);
+        nextVertex = vertexCount;
+    }
+
+    /**
+     * New vertex joins the component, so paths to and from it are added to all vertexes
+     */
+    @Benchmark
+    public long addVertex() {
+        String vertex = Graphs.currency(nextVertex++);
+        return graph.addEdges(List.of(
+                new Edge(Graphs.currency(random.nextInt(vertexCount)), vertex, Graphs.randomRate(random))));
+    }
+
+    /**
+     * Rate of an edge inside the component goes up or down, so paths through it are counted again
+     */
+    @Benchmark
+    public long repriceEdge() {
+        BigDecimal rate = Graphs.randomRate(random);
+        return graph.addEdges(List.of(new Edge(repriced.getVertexA(), repriced.getVertexB(), rate)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Churning token universe: each operation lists a new token against a currency of the hub component
+ * and delists the token listed {@link #LIVE_TOKENS} operations ago. Assigned ids and path table size are printed
+ * after each iteration: ids grow only until released ones become reusable, by the count of removals
+ * within the reuse delay of {@link CurrencyRegistry}, and then stay flat while tokens come and go.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChurnBenchmark {
+
+    private static final int HUB_SIZE = 200;
+    private static final int LIVE_TOKENS = 100;
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    private final Random random = new Random(42);
+    private DirectedWeightedGraph graph;
+    private long listed;
+
+    @Setup
+    public void setup() {
+        graph = Graphs.create(engine);
+        graph.addEdges(Graphs.randomComponent(0, HUB_SIZE, Graphs.CYCLE_EDGES, random));
+        for (int i = 0; i < LIVE_TOKENS; i++) {
+            list();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printSize() {
+        System.out.printf("%nassigned ids %d, live currencies %d, path table size %d%n",
+                graph.getRegistry().size(), graph.getRegistry().count(), graph.getPathTableSize());
+    }
+
+    @Benchmark
+    public long churn() {
+        list();
+        List<VertexPair> removed = new ArrayList<>(1);
+        return graph.removeEdges(List.of(new VertexPair(token(listed - LIVE_TOKENS - 1),
+                currency(listed - LIVE_TOKENS - 1))), removed);
+    }
+
+    private void list() {
+        long token = listed++;
+        graph.addEdges(List.of(new Edge(token(token), currency(token), Graphs.randomRate(random))));
+    }
+
+    private static String token(long index) {
+        return "T" + index;
+    }
+
+    /**
+     * Hub currency of the token is derived from its index, so delisting doesn't keep a map of listings
+     */
+    private static String currency(long token) {
+        return Graphs.currency((int) (token % HUB_SIZE));
+    }
+}
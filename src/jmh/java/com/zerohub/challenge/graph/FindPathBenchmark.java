@@ -0,0 +1,74 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of random paths by 1, 4 and all available threads sharing one graph
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindPathBenchmark {
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    @Param({"100", "1000"})
+    private int vertexCount;
+
+    private DirectedWeightedGraph graph;
+    private String[] currencies;
+
+    @Setup
+    public void setup() {
+        graph = Graphs.create(engine);
+        graph.addEdges(Graphs.randomComponent(0, vertexCount, Graphs.CYCLE_EDGES, new Random(42)));
+        currencies = new String[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            currencies[i] = Graphs.currency(i);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public BigDecimal findPath1() {
+        return findRandomPath();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal findPath4() {
+        return findRandomPath();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public BigDecimal findPathMax() {
+        return findRandomPath();
+    }
+
+    private BigDecimal findRandomPath() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return graph.findPath(currencies[random.nextInt(vertexCount)], currencies[random.nextInt(vertexCount)]);
+    }
+}
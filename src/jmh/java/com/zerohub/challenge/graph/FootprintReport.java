@@ -0,0 +1,31 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Random;
+
+/**
+ * Prints retained size of each graph engine after publishing random components of 100, 1000 and 5000 currencies.
+ * The on-demand engine is measured with an empty path cache.
+ */
+public final class FootprintReport {
+
+    private static final int[] VERTEX_COUNTS = {100, 1000, 5000};
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-15s %10s %15s %15s%n", "engine", "vertexes", "bytes", "bytes/path");
+        for (GraphEngine engine : GraphEngine.values()) {
+            for (int vertexCount : VERTEX_COUNTS) {
+                DirectedWeightedGraph graph = Graphs.create(engine);
+                graph.addEdges(Graphs.randomComponent(0, vertexCount, Graphs.CYCLE_EDGES, new Random(42)));
+                long bytes = GraphLayout.parseInstance(graph).totalSize();
+                System.out.printf("%-15s %10d %15d %15.1f%n",
+                        engine, vertexCount, bytes, (double) bytes / ((long) vertexCount * vertexCount));
+            }
+        }
+    }
+}
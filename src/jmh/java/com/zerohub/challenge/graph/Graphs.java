@@ -0,0 +1,63 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphConfiguration;
+import com.zerohub.challenge.config.GraphEngine;
+import com.zerohub.challenge.config.GraphProperties;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Graphs of benchmarks. Rates are random, so paths have long decimals like real cross rates.
+ */
+final class Graphs {
+
+    /**
+     * Each extra edge inside a component makes the preprocessing engine search paths again,
+     * so there are only a few of them to keep setup of large graphs short
+     */
+    static final int CYCLE_EDGES = 5;
+
+    private Graphs() {
+    }
+
+    static DirectedWeightedGraph create(GraphEngine engine) {
+        GraphProperties properties = new GraphProperties();
+        properties.setEngine(engine);
+        return new GraphConfiguration().currencyGraph(properties, ForkJoinPool.commonPool());
+    }
+
+    static String currency(int index) {
+        return "C" + index;
+    }
+
+    static BigDecimal randomRate(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(1_000_000), 4);
+    }
+
+    /**
+     * Random tree of the vertexes with extra edges that make cycles
+     *
+     * @param first       index of the first vertex
+     * @param vertexCount count of vertexes
+     * @param cycleEdges  count of extra edges
+     * @param random      source of rates and vertexes
+     * @return edges connecting all vertexes
+     */
+    static List<Edge> randomComponent(int first, int vertexCount, int cycleEdges, Random random) {
+        List<Edge> edges = new ArrayList<>(vertexCount + cycleEdges);
+        for (int i = 1; i < vertexCount; i++) {
+            int parent = random.nextInt(i);
+            edges.add(new Edge(currency(first + parent), currency(first + i), randomRate(random)));
+        }
+        for (int i = 0; i < cycleEdges && vertexCount > 1; i++) {
+            int from = random.nextInt(vertexCount);
+            int to = (from + 1 + random.nextInt(vertexCount - 1)) % vertexCount;
+            edges.add(new Edge(currency(first + from), currency(first + to), randomRate(random)));
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repricing in unrelated components by 1, 4 and all available threads, each thread publishes into its own component.
+ * Throughput of the preprocessing engine should grow with the count of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IslandsPublishBenchmark {
+
+    private static final int ISLANDS = 64;
+    private static final int ISLAND_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class Islands {
+        private final AtomicInteger nextIsland = new AtomicInteger();
+        private DirectedWeightedGraph graph;
+        private List<Edge> edges;
+
+        @Setup
+        public void setup() {
+            graph = Graphs.create(GraphEngine.PREPROCESSING);
+            Random random = new Random(42);
+            for (int island = 0; island < ISLANDS; island++) {
+                graph.addEdges(Graphs.randomComponent(island * ISLAND_SIZE, ISLAND_SIZE, 0, random));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Publisher {
+        private final Random random = new Random();
+        private String vertexA;
+        private String vertexB;
+
+        @Setup
+        public void setup(Islands islands) {
+            int first = (islands.nextIsland.getAndIncrement() % ISLANDS) * ISLAND_SIZE;
+            vertexA = Graphs.currency(first);
+            vertexB = Graphs.currency(first + 1 + random.nextInt(ISLAND_SIZE - 1));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long publish1(Islands islands, Publisher publisher) {
+        return publish(islands, publisher);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long publish4(Islands islands, Publisher publisher) {
+        return publish(islands, publisher);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long publishMax(Islands islands, Publisher publisher) {
+        return publish(islands, publisher);
+    }
+
+    private static long publish(Islands islands, Publisher publisher) {
+        return islands.graph.addEdges(List.of(
+                new Edge(publisher.vertexA, publisher.vertexB, Graphs.randomRate(publisher.random))));
+    }
+}
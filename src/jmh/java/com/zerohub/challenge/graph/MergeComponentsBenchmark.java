@@ -0,0 +1,61 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the edge that joins two components of vertexCount - mergeSize and mergeSize vertexes
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class MergeComponentsBenchmark {
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    @Param({"1000"})
+    private int vertexCount;
+
+    @Param({"1", "10", "100", "500"})
+    private int mergeSize;
+
+    private DirectedWeightedGraph graph;
+    private List<Edge> bridge;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        Random random = new Random(42);
+        int largeSize = vertexCount - mergeSize;
+        List<Edge> edges = new ArrayList<>(Graphs.randomComponent(0, largeSize, Graphs.CYCLE_EDGES, random));
+        edges.addAll(Graphs.randomComponent(largeSize, mergeSize, Graphs.CYCLE_EDGES, random));
+        graph = Graphs.create(engine);
+        graph.addEdges(edges);
+        bridge = List.of(new Edge(Graphs.currency(random.nextInt(largeSize)),
+                Graphs.currency(largeSize + random.nextInt(mergeSize)), Graphs.randomRate(random)));
+    }
+
+    @Benchmark
+    public long mergeComponents() {
+        return graph.addEdges(bridge);
+    }
+}
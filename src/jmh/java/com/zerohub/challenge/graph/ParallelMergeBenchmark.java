@@ -0,0 +1,77 @@
+package com.zerohub.challenge.graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock time of the edge joining two components of componentSize vertexes by the preprocessing engine
+ * with merge pools of different size. Parallelism 0 means all available processors like
+ * {@code challenge.graph.merge-parallelism}, and {@link #NO_POOL} counts the merge by the publishing thread.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelMergeBenchmark {
+
+    private static final int NO_POOL = -1;
+
+    @Param({"-1", "1", "2", "4", "8", "0"})
+    private int parallelism;
+
+    @Param({"1000"})
+    private int componentSize;
+
+    private ForkJoinPool pool;
+    private DirectedWeightedGraph graph;
+    private List<Edge> bridge;
+
+    @Setup(Level.Trial)
+    public void createPool() {
+        if (parallelism != NO_POOL) {
+            pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        Random random = new Random(42);
+        List<Edge> edges = new ArrayList<>(Graphs.randomComponent(0, componentSize, 0, random));
+        edges.addAll(Graphs.randomComponent(componentSize, componentSize, 0, random));
+        graph = new DirectedWeightedGraphWithPreprocessing(pool, 0);
+        graph.addEdges(edges);
+        bridge = List.of(new Edge(Graphs.currency(random.nextInt(componentSize)),
+                Graphs.currency(componentSize + random.nextInt(componentSize)), Graphs.randomRate(random)));
+    }
+
+    @Benchmark
+    public long mergeComponents() {
+        return graph.addEdges(bridge);
+    }
+}
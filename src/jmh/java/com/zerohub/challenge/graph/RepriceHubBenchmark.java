@@ -0,0 +1,61 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repricing of an edge of the hub which is quoted against every other currency, so paths of almost all rows
+ * of the component go through the edge. The preprocessing engine searches the whole component again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RepriceHubBenchmark {
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    @Param({"200", "1000"})
+    private int vertexCount;
+
+    private final Random random = new Random(42);
+    private DirectedWeightedGraph graph;
+
+    @Setup
+    public void setup() {
+        graph = Graphs.create(engine);
+        List<Edge> edges = new ArrayList<>(vertexCount + Graphs.CYCLE_EDGES);
+        for (int i = 1; i < vertexCount; i++) {
+            edges.add(new Edge(Graphs.currency(0), Graphs.currency(i), Graphs.randomRate(random)));
+        }
+        for (int i = 0; i < Graphs.CYCLE_EDGES; i++) {
+            int from = 1 + random.nextInt(vertexCount - 1);
+            edges.add(new Edge(Graphs.currency(from), Graphs.currency(1 + from % (vertexCount - 1)),
+                    Graphs.randomRate(random)));
+        }
+        graph.addEdges(edges);
+    }
+
+    @Benchmark
+    public long repriceHubEdge() {
+        return graph.addEdges(List.of(new Edge(Graphs.currency(0), Graphs.currency(1), Graphs.randomRate(random))));
+    }
+}
@@ -0,0 +1,130 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.config.GraphEngine;
+import com.zerohub.challenge.persistence.RatePersistence;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.Rate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup of a process which published currencyCount currencies in records of recordSize rates:
+ * restoring the saved image against replaying the whole log from scratch.
+ * Files are copied before each start, so they are read from the page cache.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class RestoreBenchmark {
+
+    @Param({"PREPROCESSING", "POTENTIALS", "ON_DEMAND"})
+    private GraphEngine engine;
+
+    @Param({"1000", "5000"})
+    private int currencyCount;
+
+    @Param({"100"})
+    private int recordSize;
+
+    private Path imageDirectory;
+    private Path logDirectory;
+    private Path startDirectory;
+
+    @Setup(Level.Trial)
+    public void publish() throws IOException {
+        imageDirectory = Files.createTempDirectory("restore-image");
+        logDirectory = Files.createTempDirectory("restore-log");
+        DirectedWeightedGraph graph = Graphs.create(engine);
+        var imagePersistence = new RatePersistence(graph, imageDirectory, Duration.ZERO, false);
+        imagePersistence.start();
+        var logPersistence = new RatePersistence(Graphs.create(engine), logDirectory, Duration.ZERO, false);
+        logPersistence.start();
+        var service = new ConverterServiceImpl(graph, Optional.of(imagePersistence));
+        List<Edge> edges = Graphs.randomComponent(0, currencyCount, Graphs.CYCLE_EDGES, new Random(42));
+        for (int first = 0; first < edges.size(); first += recordSize) {
+            List<Rate> rates = new ArrayList<>(recordSize);
+            for (Edge edge : edges.subList(first, Math.min(edges.size(), first + recordSize))) {
+                rates.add(new Rate(edge.getVertexA(), edge.getVertexB(), edge.getWeightAB()));
+            }
+            logPersistence.append(service.addCurrencies(rates), rates);
+        }
+        imagePersistence.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyFiles() throws IOException {
+        startDirectory = Files.createTempDirectory("restore-start");
+        copy(imageDirectory, startDirectory.resolve("image"));
+        copy(logDirectory, startDirectory.resolve("log"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFiles() throws IOException {
+        delete(startDirectory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePublished() throws IOException {
+        delete(imageDirectory);
+        delete(logDirectory);
+    }
+
+    @Benchmark
+    public DirectedWeightedGraph restoreImage() throws IOException {
+        return start(startDirectory.resolve("image"));
+    }
+
+    @Benchmark
+    public DirectedWeightedGraph replayLog() throws IOException {
+        return start(startDirectory.resolve("log"));
+    }
+
+    private DirectedWeightedGraph start(Path directory) throws IOException {
+        DirectedWeightedGraph graph = Graphs.create(engine);
+        new RatePersistence(graph, directory, Duration.ZERO, false).start();
+        return graph;
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.zerohub.challenge.grpc;
+
+import com.google.protobuf.Empty;
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.config.PublishProperties;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.ConvertResponse;
+import com.zerohub.challenge.proto.PublishBatchRequest;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.RateSubscriptions;
+import com.zerohub.challenge.service.RateWriter;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts and publishes over loopback Netty at once, like the server with default settings.
+ * Converts read paths of a short chain, publishes reprice a chain of 1000 currencies, so each write recounts
+ * paths of the whole component and publishes wait for the rate writer.
+ * <ul>
+ * <li>SHARED - all calls on the cached pool of the server, as before the publish pool</li>
+ * <li>DEFAULT - the cached pool for converts, the publish pool for publishes</li>
+ * <li>DIRECT - event loops for converts, the publish pool for publishes</li>
+ * </ul>
+ * Virtual threads are not measured here, the build targets JDK 13.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class ExecutionBenchmark {
+
+    private static final int CHAIN_SIZE = 1000;
+    private static final int PUBLISH_BATCH_SIZE = 10;
+
+    @Param({"SHARED", "DEFAULT", "DIRECT"})
+    private String execution;
+
+    private Server server;
+    private ManagedChannel channel;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService publishExecutor;
+    private RateWriter rateWriter;
+    private RatesServiceGrpc.RatesServiceBlockingStub stub;
+    private ConvertRequest convertRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        DirectedWeightedGraph graph = new DirectedWeightedGraphWithPreprocessing();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        publishExecutor = Executors.newFixedThreadPool(2);
+        ConverterServiceImpl converterService = new ConverterServiceImpl(graph);
+        rateWriter = new RateWriter(converterService, 10_000, PublishOverflow.BLOCK);
+        RatesServiceImpl service = new RatesServiceImpl(converterService, rateWriter,
+                new RateSubscriptions(graph, Runnable::run), scheduler, new PublishProperties());
+        NettyServerBuilder serverBuilder = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0));
+        if ("SHARED".equals(execution)) {
+            serverBuilder.addService(service);
+        } else {
+            serverBuilder.addService(ServerInterceptors.intercept(service, new OffloadInterceptor(publishExecutor,
+                    1000, RatesServiceGrpc.getPublishMethod(), RatesServiceGrpc.getPublishBatchMethod())));
+        }
+        if ("DIRECT".equals(execution)) {
+            serverBuilder.directExecutor();
+        }
+        server = serverBuilder.build().start();
+        channel = NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build();
+        stub = RatesServiceGrpc.newBlockingStub(channel);
+
+        PublishBatchRequest.Builder chain = PublishBatchRequest.newBuilder();
+        for (int i = 1; i < CHAIN_SIZE; i++) {
+            chain.addRates(rate("C" + (i - 1), "C" + i, "1." + (i % 7)));
+        }
+        chain.addRates(rate("BTC", "EUR", "50000.0000"));
+        chain.addRates(rate("EUR", "USD", "1.2000"));
+        stub.publishBatch(chain.build());
+        convertRequest = ConvertRequest.newBuilder()
+                .setFromCurrency("BTC")
+                .setToCurrency("USD")
+                .setFromAmount("1.0000")
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        publishExecutor.shutdownNow();
+        rateWriter.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public ConvertResponse convert() {
+        return stub.convert(convertRequest);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Empty publish() {
+        int pair = 1 + ThreadLocalRandom.current().nextInt(PUBLISH_BATCH_SIZE);
+        return stub.publish(rate("C" + (pair - 1), "C" + pair,
+                ThreadLocalRandom.current().nextBoolean() ? "1.1000" : "1.2000"));
+    }
+
+    private static PublishRequest rate(String base, String quote, String price) {
+        return PublishRequest.newBuilder()
+                .setBaseCurrency(base)
+                .setQuoteCurrency(quote)
+                .setPrice(price)
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.config.PublishProperties;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.ConvertResponse;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.RateSubscriptions;
+import com.zerohub.challenge.service.RateWriter;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end calls of the service over in-process transport, like in ChallengeApplicationTest.
+ * Batch benchmarks count each item as an operation, so their scores are comparable with unary calls.
+ * With metrics the server has {@link MetricsInterceptor} and the graph measures its writes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RatesServiceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final String[][] RATES = {
+            {"BTC", "EUR", "50000.0000"},
+            {"EUR", "USD", "1.2000"},
+            {"EUR", "AUD", "1.5000"},
+            {"USD", "RUB", "80.0000"},
+            {"UAH", "RUB", "4.0000"},
+            {"LTC", "BTC", "0.0400"},
+            {"LTC", "USD", "2320.0000"},
+            {"GBP", "JPY", "152.1400"}
+    };
+
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private Server server;
+    private ManagedChannel channel;
+    private ScheduledExecutorService scheduler;
+    private RateWriter rateWriter;
+    private RatesServiceGrpc.RatesServiceBlockingStub stub;
+    private ConvertRequest convertRequest;
+    private ConvertRequest unknownCurrencyRequest;
+    private ConvertRequest missingRateRequest;
+    private ConvertBatchRequest convertBatchRequest;
+
+    @Setup
+    public void setup() throws IOException {
+        DirectedWeightedGraph graph = new DirectedWeightedGraphWithPreprocessing();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        ConverterServiceImpl converterService = new ConverterServiceImpl(graph);
+        rateWriter = new RateWriter(converterService, 10_000, PublishOverflow.BLOCK);
+        RatesServiceImpl service = new RatesServiceImpl(converterService, rateWriter,
+                new RateSubscriptions(graph, Runnable::run), scheduler, new PublishProperties());
+        String name = InProcessServerBuilder.generateName();
+        InProcessServerBuilder serverBuilder = InProcessServerBuilder.forName(name);
+        if (metrics) {
+            graph.enableMetrics();
+            serverBuilder.addService(ServerInterceptors.intercept(service,
+                    new MetricsInterceptor(RatesServiceGrpc.getServiceDescriptor())));
+        } else {
+            serverBuilder.addService(service);
+        }
+        server = serverBuilder.build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        stub = RatesServiceGrpc.newBlockingStub(channel);
+        for (String[] rate : RATES) {
+            stub.publish(PublishRequest.newBuilder()
+                    .setBaseCurrency(rate[0])
+                    .setQuoteCurrency(rate[1])
+                    .setPrice(rate[2])
+                    .build());
+        }
+        convertRequest = ConvertRequest.newBuilder()
+                .setFromCurrency("BTC")
+                .setToCurrency("RUB")
+                .setFromAmount("1.0000")
+                .build();
+        unknownCurrencyRequest = convertRequest.toBuilder().setFromCurrency("XXX").build();
+        missingRateRequest = convertRequest.toBuilder().setToCurrency("JPY").build();
+        ConvertBatchRequest.Builder batch = ConvertBatchRequest.newBuilder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.addItems(convertRequest);
+        }
+        convertBatchRequest = batch.build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        rateWriter.close();
+    }
+
+    @Benchmark
+    public ConvertResponse convert() {
+        return stub.convert(convertRequest);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ConvertBatchResponse convertBatch() {
+        return stub.convertBatch(convertBatchRequest);
+    }
+
+    /**
+     * Client probes an unknown currency. The call is made without a stub,
+     * so the client doesn't build an exception of the failed call and only the server cost is measured.
+     */
+    @Benchmark
+    public Status convertUnknownCurrency() throws ExecutionException, InterruptedException {
+        return convertFailed(unknownCurrencyRequest);
+    }
+
+    @Benchmark
+    public Status convertMissingRate() throws ExecutionException, InterruptedException {
+        return convertFailed(missingRateRequest);
+    }
+
+    /**
+     * Rate goes up and down, so each publish changes paths
+     */
+    @Benchmark
+    public Object publish() {
+        return stub.publish(PublishRequest.newBuilder()
+                .setBaseCurrency("EUR")
+                .setQuoteCurrency("USD")
+                .setPrice(ThreadLocalRandom.current().nextBoolean() ? "1.2000" : "1.2100")
+                .build());
+    }
+
+    private Status convertFailed(ConvertRequest request) throws ExecutionException, InterruptedException {
+        CompletableFuture<Status> closed = new CompletableFuture<>();
+        ClientCall<ConvertRequest, ConvertResponse> call = channel.newCall(RatesServiceGrpc.getConvertMethod(),
+                CallOptions.DEFAULT);
+        call.start(new ClientCall.Listener<>() {
+            @Override
+            public void onClose(Status status, Metadata trailers) {
+                closed.complete(status);
+            }
+        }, new Metadata());
+        call.request(1);
+        call.sendMessage(request);
+        call.halfClose();
+        return closed.get();
+    }
+}
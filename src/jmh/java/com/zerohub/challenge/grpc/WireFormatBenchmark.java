@@ -0,0 +1,212 @@
+package com.zerohub.challenge.grpc;
+
+import com.google.protobuf.MessageLite;
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.config.PublishProperties;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.ConvertRequestV2;
+import com.zerohub.challenge.proto.ConvertResponse;
+import com.zerohub.challenge.proto.ConvertResponseV2;
+import com.zerohub.challenge.proto.Decimal;
+import com.zerohub.challenge.proto.LookupCurrenciesRequest;
+import com.zerohub.challenge.proto.LookupCurrenciesResponse;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.PublishRequestV2;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.proto.RatesServiceV2Grpc;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.RateSubscriptions;
+import com.zerohub.challenge.service.RateWriter;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same convert and publish through RatesService with string amounts and through RatesServiceV2
+ * with binary amounts and currency ids. Calls go over a loopback socket, so messages are serialized
+ * like in production, and one client thread gives CPU time of a call on both sides.
+ * Serve benchmarks leave out the transport: the request is parsed from its bytes, handled by the service
+ * and the response is serialized, which is the part changed by the wire format.
+ * Sizes of the messages on the wire are printed on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    private Server server;
+    private ManagedChannel channel;
+    private ScheduledExecutorService scheduler;
+    private RateWriter rateWriter;
+    private RatesServiceGrpc.RatesServiceBlockingStub stub;
+    private RatesServiceV2Grpc.RatesServiceV2BlockingStub stubV2;
+    private ConvertRequest convertRequest;
+    private ConvertRequestV2 convertRequestV2;
+    private RatesServiceImpl service;
+    private RatesServiceV2Impl serviceV2;
+    private byte[] convertRequestBytes;
+    private byte[] convertRequestV2Bytes;
+    private long eurId;
+    private long usdId;
+
+    @Setup
+    public void setup() throws IOException {
+        DirectedWeightedGraph graph = new DirectedWeightedGraphWithPreprocessing();
+        ConverterServiceImpl converterService = new ConverterServiceImpl(graph);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        rateWriter = new RateWriter(converterService, 10_000, PublishOverflow.BLOCK);
+        service = new RatesServiceImpl(converterService, rateWriter, new RateSubscriptions(graph, Runnable::run), scheduler,
+                new PublishProperties());
+        serviceV2 = new RatesServiceV2Impl(converterService, rateWriter);
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(service)
+                .addService(serviceV2)
+                .build()
+                .start();
+        channel = NettyChannelBuilder.forAddress("127.0.0.1", server.getPort()).usePlaintext().build();
+        stub = RatesServiceGrpc.newBlockingStub(channel);
+        stubV2 = RatesServiceV2Grpc.newBlockingStub(channel);
+        stub.publish(publishRequest("BTC", "EUR", "50000.0000"));
+        stub.publish(publishRequest("EUR", "USD", "1.2000"));
+        stub.publish(publishRequest("USD", "RUB", "80.0000"));
+        LookupCurrenciesResponse ids = stubV2.lookupCurrencies(LookupCurrenciesRequest.newBuilder()
+                .addCurrencies("BTC")
+                .addCurrencies("RUB")
+                .addCurrencies("EUR")
+                .addCurrencies("USD")
+                .build());
+        eurId = ids.getIds(2);
+        usdId = ids.getIds(3);
+        convertRequest = ConvertRequest.newBuilder()
+                .setFromCurrency("BTC")
+                .setToCurrency("RUB")
+                .setFromAmount("1.2500")
+                .build();
+        convertRequestV2 = ConvertRequestV2.newBuilder()
+                .setFromCurrencyId(ids.getIds(0))
+                .setToCurrencyId(ids.getIds(1))
+                .setFromAmount(Decimal.newBuilder().setUnscaled(12500).setScale(4))
+                .build();
+        convertRequestBytes = convertRequest.toByteArray();
+        convertRequestV2Bytes = convertRequestV2.toByteArray();
+        System.out.printf("%nconvert v1: request %d B, response %d B%n", convertRequest.getSerializedSize(),
+                stub.convert(convertRequest).getSerializedSize());
+        System.out.printf("convert v2: request %d B, response %d B%n", convertRequestV2.getSerializedSize(),
+                stubV2.convert(convertRequestV2).getSerializedSize());
+        System.out.printf("publish v1: request %d B, publish v2: request %d B%n",
+                publishRequest("EUR", "USD", "1.2100").getSerializedSize(),
+                publishRequestV2(12100).getSerializedSize());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        rateWriter.close();
+    }
+
+    @Benchmark
+    public ConvertResponse convertV1() {
+        return stub.convert(convertRequest);
+    }
+
+    @Benchmark
+    public ConvertResponseV2 convertV2() {
+        return stubV2.convert(convertRequestV2);
+    }
+
+    @Benchmark
+    public void serveConvertV1(Blackhole blackhole) throws IOException {
+        service.convert(ConvertRequest.parseFrom(convertRequestBytes), new Serializing<>(blackhole));
+    }
+
+    @Benchmark
+    public void serveConvertV2(Blackhole blackhole) throws IOException {
+        serviceV2.convert(ConvertRequestV2.parseFrom(convertRequestV2Bytes), new Serializing<>(blackhole));
+    }
+
+    /**
+     * Rate goes up and down, so each publish changes paths
+     */
+    @Benchmark
+    public Object publishV1() {
+        return stub.publish(publishRequest("EUR", "USD",
+                ThreadLocalRandom.current().nextBoolean() ? "1.2000" : "1.2100"));
+    }
+
+    @Benchmark
+    public Object publishV2() {
+        return stubV2.publish(publishRequestV2(ThreadLocalRandom.current().nextBoolean() ? 12000 : 12100));
+    }
+
+    private static PublishRequest publishRequest(String base, String quote, String price) {
+        return PublishRequest.newBuilder()
+                .setBaseCurrency(base)
+                .setQuoteCurrency(quote)
+                .setPrice(price)
+                .build();
+    }
+
+    private PublishRequestV2 publishRequestV2(long unscaledPrice) {
+        return PublishRequestV2.newBuilder()
+                .setBaseCurrencyId(eurId)
+                .setQuoteCurrencyId(usdId)
+                .setPrice(Decimal.newBuilder().setUnscaled(unscaledPrice).setScale(4))
+                .build();
+    }
+
+    /**
+     * Serializes the response like the transport does
+     */
+    private static final class Serializing<T extends MessageLite> implements StreamObserver<T> {
+
+        private final Blackhole blackhole;
+
+        private Serializing(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onNext(T value) {
+            blackhole.consume(value.toByteArray());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            throw new IllegalStateException(t);
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
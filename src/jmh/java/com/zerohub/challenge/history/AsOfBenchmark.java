@@ -0,0 +1,64 @@
+package com.zerohub.challenge.history;
+
+import com.zerohub.challenge.service.Rate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * As-of path over a chain of 5 currencies by count of ticks of each edge.
+ * Time per query grows with the logarithm of the count, not with the count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsOfBenchmark {
+
+    private static final int CHAIN_SIZE = 5;
+    private static final long TICK_MILLIS = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int ticksPerEdge;
+
+    private RateHistory history;
+    private long end;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        history = new RateHistory(Duration.ofDays(3650), 0);
+        for (int tick = 0; tick < ticksPerEdge; tick++) {
+            List<Rate> rates = new ArrayList<>(CHAIN_SIZE - 1);
+            for (int i = 1; i < CHAIN_SIZE; i++) {
+                rates.add(new Rate("C" + (i - 1), "C" + i, BigDecimal.valueOf(1 + random.nextInt(1_000_000), 4)));
+            }
+            history.record(tick * TICK_MILLIS, tick, rates);
+        }
+        end = ticksPerEdge * TICK_MILLIS;
+    }
+
+    @Benchmark
+    public BigDecimal convertAsOf() {
+        long time = ThreadLocalRandom.current().nextLong(end);
+        return history.findPath("C0", "C" + (CHAIN_SIZE - 1), time, end);
+    }
+}
@@ -0,0 +1,39 @@
+package com.zerohub.challenge.history;
+
+import com.zerohub.challenge.service.Rate;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prints retained size of the rate history per million ticks spread over 10, 1000 and 100000 edges.
+ * Ticks are 100 ms apart on each edge, rates are random with 4 decimals like published ones.
+ */
+public final class HistoryFootprintReport {
+
+    private static final int TICKS = 1_000_000;
+    private static final int[] EDGE_COUNTS = {10, 1000, 100_000};
+
+    private HistoryFootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %12s %15s %12s%n", "edges", "ticks", "bytes", "bytes/tick");
+        for (int edgeCount : EDGE_COUNTS) {
+            Random random = new Random(42);
+            RateHistory history = new RateHistory(Duration.ofDays(365), 0);
+            for (int tick = 0; tick < TICKS; tick++) {
+                int edge = tick % edgeCount;
+                long time = (long) (tick / edgeCount) * 100;
+                history.record(time, tick, List.of(new Rate("C" + edge, "Q" + edge,
+                        BigDecimal.valueOf(1 + random.nextInt(100_000_000), 4))));
+            }
+            long bytes = GraphLayout.parseInstance(history).totalSize();
+            System.out.printf("%10d %12d %15d %12.1f%n",
+                    edgeCount, history.getTickCount(), bytes, (double) bytes / history.getTickCount());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.zerohub.challenge.load;
+
+import com.zerohub.challenge.ChallengeApplication;
+import com.zerohub.challenge.proto.PublishBatchRequest;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load of publishes and converts: each client thread makes its next call when the previous one is
+ * answered. The graph is seeded with {@link SyntheticGraph} and then converted within components and repriced,
+ * latency of each successful call is recorded to the HdrHistogram of its method. Failed calls, like rejected
+ * publishes, are only counted as errors, so their fast answers skew neither the percentiles nor calls/s.
+ * Options are described in {@link LoadOptions}.
+ * <p>
+ * The embedded server is the whole application with settings from environment variables, like GRAPH_ENGINE,
+ * so its heap is tracked: in soak mode each interval prints heap used after the last collection, and the report
+ * has its growth rate, which stays near zero when nothing leaks. Heap of a remote server is not tracked.
+ */
+public final class LoadGenerator {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final LoadOptions options;
+    private final Method convert = new Method("convert");
+    private final Method publish = new Method("publish");
+    private final List<long[]> heapSamples = new ArrayList<>();
+    private volatile boolean stopped;
+
+    private LoadGenerator(LoadOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        System.out.println(options);
+        ConfigurableApplicationContext application = null;
+        String target = options.target;
+        if (options.isEmbedded()) {
+            int port = freePort();
+            application = SpringApplication.run(ChallengeApplication.class, "--grpc.server.port=" + port);
+            target = "localhost:" + port;
+        }
+        ManagedChannel channel = NettyChannelBuilder.forTarget(target).usePlaintext().build();
+        try {
+            new LoadGenerator(options).run(RatesServiceGrpc.newBlockingStub(channel));
+        } finally {
+            channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    private void run(RatesServiceGrpc.RatesServiceBlockingStub stub) throws InterruptedException {
+        SyntheticGraph graph = new SyntheticGraph(options.shape, options.currencies, options.componentSize,
+                new Random(options.seed));
+        long seedStart = System.nanoTime();
+        List<PublishRequest> seed = graph.seed();
+        for (int from = 0; from < seed.size(); from += SEED_BATCH_SIZE) {
+            stub.publishBatch(PublishBatchRequest.newBuilder()
+                    .addAllRates(seed.subList(from, Math.min(seed.size(), from + SEED_BATCH_SIZE)))
+                    .build());
+        }
+        System.out.printf("seeded %d rates in %d ms%n", graph.getRateCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+        List<Thread> clients = new ArrayList<>(options.threads);
+        for (int i = 0; i < options.threads; i++) {
+            Random random = new Random(options.seed + i + 1);
+            Thread client = new Thread(() -> callInLoop(stub, graph, random), "load-" + i);
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+
+        Thread.sleep(options.warmup.toMillis());
+        convert.reset();
+        publish.reset();
+        long start = System.nanoTime();
+        long end = start + options.duration.toNanos();
+        long intervalNanos = options.soak ? options.interval.toNanos() : options.duration.toNanos();
+        if (options.soak) {
+            System.out.printf("%8s %10s %10s %10s %10s %10s %12s%n", "seconds", "convert/s", "p50 us",
+                    "p99 us", "publish/s", "p99 us", "heap MB");
+        }
+        long intervalStart = start;
+        while (System.nanoTime() < end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(intervalNanos, end - System.nanoTime()));
+            long now = System.nanoTime();
+            Histogram converts = convert.endInterval();
+            Histogram publishes = publish.endInterval();
+            long heap = heapUsedAfterCollection();
+            heapSamples.add(new long[]{now - start, heap});
+            if (options.soak) {
+                double seconds = (now - intervalStart) / 1e9;
+                System.out.printf("%8d %10.0f %10.1f %10.1f %10.0f %10.1f %12s%n",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start),
+                        converts.getTotalCount() / seconds, micros(converts, 50), micros(converts, 99),
+                        publishes.getTotalCount() / seconds, micros(publishes, 99),
+                        heap < 0 ? "n/a" : String.format("%.1f", heap / BYTES_PER_MB));
+            }
+            intervalStart = now;
+        }
+        stopped = true;
+        for (Thread client : clients) {
+            client.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        report((System.nanoTime() - start) / 1e9);
+    }
+
+    private void callInLoop(RatesServiceGrpc.RatesServiceBlockingStub stub, SyntheticGraph graph, Random random) {
+        while (!stopped) {
+            boolean isPublish = random.nextDouble() < options.publishRatio;
+            Method method = isPublish ? publish : convert;
+            long start = System.nanoTime();
+            try {
+                if (isPublish) {
+                    stub.publish(graph.reprice(random));
+                } else {
+                    stub.convert(graph.convert(random));
+                }
+            } catch (StatusRuntimeException ex) {
+                method.errors.increment();
+                continue;
+            }
+            method.recorder.recordValue(System.nanoTime() - start);
+        }
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s %8s%n", "method", "calls", "calls/s",
+                "p50 us", "p99 us", "p999 us", "max us", "errors");
+        for (Method method : List.of(convert, publish)) {
+            Histogram total = method.total;
+            System.out.printf("%-8s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %8d%n", method.name,
+                    total.getTotalCount(), total.getTotalCount() / seconds, micros(total, 50), micros(total, 99),
+                    micros(total, 99.9), total.getMaxValue() / NANOS_PER_MICRO, method.errors.sum());
+        }
+        long[] first = heapSamples.get(0);
+        long[] last = heapSamples.get(heapSamples.size() - 1);
+        if (first[1] >= 0 && last[0] > first[0]) {
+            double hours = (last[0] - first[0]) / 3.6e12;
+            System.out.printf("heap after collection %.1f MB -> %.1f MB, %.1f MB/hour%n",
+                    first[1] / BYTES_PER_MB, last[1] / BYTES_PER_MB, (last[1] - first[1]) / BYTES_PER_MB / hours);
+        }
+    }
+
+    /**
+     * Heap of the embedded server shares the process with clients, their garbage is collected with the server's
+     *
+     * @return bytes of heap pools used after their last collection, or -1 for a remote server
+     */
+    private long heapUsedAfterCollection() {
+        if (!options.isEmbedded()) {
+            return -1;
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Latency of successful calls of one method and count of failed ones.
+     * Clients record to the recorder without locks, the main thread takes intervals from it.
+     */
+    private static final class Method {
+        private final String name;
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private final LongAdder errors = new LongAdder();
+        private Histogram interval;
+
+        private Method(String name) {
+            this.name = name;
+        }
+
+        private Histogram endInterval() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return interval;
+        }
+
+        private void reset() {
+            interval = recorder.getIntervalHistogram(interval);
+            errors.reset();
+        }
+    }
+}
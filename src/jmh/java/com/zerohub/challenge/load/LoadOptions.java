@@ -0,0 +1,112 @@
+package com.zerohub.challenge.load;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Options of {@link LoadGenerator} given as {@code name=value} arguments
+ */
+final class LoadOptions {
+
+    /**
+     * {@code embedded} starts the application on a free local port, {@code host:port} uses a running server
+     */
+    String target = "embedded";
+    SyntheticGraph.Shape shape = SyntheticGraph.Shape.ISLANDS;
+    int currencies = 1000;
+    int componentSize = 50;
+    int threads = 8;
+    /**
+     * Share of publishes among calls, from 0 to 1
+     */
+    double publishRatio = 0.1;
+    Duration warmup = Duration.ofSeconds(5);
+    Duration duration = Duration.ofSeconds(30);
+    /**
+     * Prints throughput, latency and heap of each interval, for runs of hours
+     */
+    boolean soak;
+    Duration interval = Duration.ofSeconds(10);
+    long seed = 42;
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(0, separator)) {
+                case "target":
+                    options.target = value;
+                    break;
+                case "shape":
+                    options.shape = SyntheticGraph.Shape.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "currencies":
+                    options.currencies = Integer.parseInt(value);
+                    break;
+                case "componentSize":
+                    options.componentSize = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    options.threads = Integer.parseInt(value);
+                    break;
+                case "publishRatio":
+                    options.publishRatio = Double.parseDouble(value);
+                    break;
+                case "warmup":
+                    options.warmup = duration(value);
+                    break;
+                case "duration":
+                    options.duration = duration(value);
+                    break;
+                case "soak":
+                    options.soak = Boolean.parseBoolean(value);
+                    break;
+                case "interval":
+                    options.interval = duration(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return options;
+    }
+
+    boolean isEmbedded() {
+        return "embedded".equals(target);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("target=%s shape=%s currencies=%d componentSize=%d threads=%d publishRatio=%.2f "
+                        + "warmup=%s duration=%s soak=%b interval=%s seed=%d",
+                target, shape, currencies, componentSize, threads, publishRatio,
+                warmup, duration, soak, interval, seed);
+    }
+
+    /**
+     * Durations like {@code 30s}, {@code 5m} and {@code 2h}, or ISO-8601 ones
+     */
+    private static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                throw new IllegalArgumentException("Expected a duration like 30s, 5m or 2h, got " + value);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.zerohub.challenge.load;
+
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.PublishRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Currencies split into components of one shape. Converts are made within a component, so each of them has a path,
+ * and publishes reprice seeded rates by up to 1%, so the shape of the graph stays the same during the run.
+ */
+final class SyntheticGraph {
+
+    enum Shape {
+
+        /**
+         * The first currency of a component is quoted against all others, like a fiat hub with tokens
+         */
+        STARS,
+
+        /**
+         * Each currency is quoted against the next one, so paths are as long as the component
+         */
+        CHAINS,
+
+        /**
+         * Random tree with a few extra edges making cycles
+         */
+        ISLANDS
+
+    }
+
+    private static final int CYCLE_EDGES = 5;
+
+    private final int currencies;
+    private final int componentSize;
+    private final List<int[]> pairs = new ArrayList<>();
+    private final List<Double> prices = new ArrayList<>();
+
+    SyntheticGraph(Shape shape, int currencies, int componentSize, Random random) {
+        this.componentSize = Math.max(2, Math.min(componentSize, currencies));
+        // a single currency left after the last component has no rates, so it is not used
+        this.currencies = currencies % this.componentSize == 1 ? currencies - 1 : currencies;
+        for (int first = 0; first < this.currencies; first += this.componentSize) {
+            int size = Math.min(this.componentSize, this.currencies - first);
+            for (int i = 1; i < size; i++) {
+                switch (shape) {
+                    case STARS:
+                        add(first, first + i, random);
+                        break;
+                    case CHAINS:
+                        add(first + i - 1, first + i, random);
+                        break;
+                    case ISLANDS:
+                    default:
+                        add(first + random.nextInt(i), first + i, random);
+                }
+            }
+            for (int i = 0; shape == Shape.ISLANDS && i < CYCLE_EDGES && size > 2; i++) {
+                int from = random.nextInt(size);
+                add(first + from, first + (from + 1 + random.nextInt(size - 1)) % size, random);
+            }
+        }
+    }
+
+    int getRateCount() {
+        return pairs.size();
+    }
+
+    List<PublishRequest> seed() {
+        List<PublishRequest> rates = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            rates.add(rate(i, prices.get(i)));
+        }
+        return rates;
+    }
+
+    PublishRequest reprice(Random random) {
+        int index = random.nextInt(pairs.size());
+        return rate(index, prices.get(index) * (0.99 + random.nextDouble() * 0.02));
+    }
+
+    ConvertRequest convert(Random random) {
+        int from = random.nextInt(currencies);
+        int first = from - from % componentSize;
+        int size = Math.min(componentSize, currencies - first);
+        int to = first + (from - first + 1 + random.nextInt(size - 1)) % size;
+        return ConvertRequest.newBuilder()
+                .setFromCurrency(currency(from))
+                .setToCurrency(currency(to))
+                .setFromAmount("100.0000")
+                .build();
+    }
+
+    private void add(int base, int quote, Random random) {
+        pairs.add(new int[]{base, quote});
+        prices.add(0.01 + random.nextDouble() * 100);
+    }
+
+    private PublishRequest rate(int index, double price) {
+        int[] pair = pairs.get(index);
+        return PublishRequest.newBuilder()
+                .setBaseCurrency(currency(pair[0]))
+                .setQuoteCurrency(currency(pair[1]))
+                .setPrice(String.format(Locale.ROOT, "%.4f", price))
+                .build();
+    }
+
+    private static String currency(int index) {
+        return "L" + index;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many callers reprice a few hot pairs of one component, like a bursty feed.
+ * Direct callers wait for the graph lock and each recounts the paths of the component,
+ * callers of {@link RateWriter} share one write with the last rate of each pair.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class BurstPublishBenchmark {
+
+    private static final int HOT_PAIRS = 8;
+
+    @Param({"false", "true"})
+    private boolean writer;
+
+    @Param({"1000"})
+    private int currencyCount;
+
+    private ConverterServiceImpl converterService;
+    private RateWriter rateWriter;
+
+    @Setup
+    public void setup() {
+        converterService = new ConverterServiceImpl(new DirectedWeightedGraphWithPreprocessing());
+        List<Rate> rates = new ArrayList<>(currencyCount);
+        for (int i = 1; i < currencyCount; i++) {
+            rates.add(new Rate(currency(i - 1), currency(i), BigDecimal.valueOf(1 + i % 7, 1)));
+        }
+        converterService.addCurrencies(rates);
+        rateWriter = new RateWriter(converterService, 10_000, PublishOverflow.BLOCK);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        rateWriter.close();
+    }
+
+    @Benchmark
+    public long publish() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pair = 1 + random.nextInt(HOT_PAIRS);
+        List<Rate> rates = List.of(new Rate(currency(pair - 1), currency(pair),
+                BigDecimal.valueOf(1 + random.nextInt(1000), 2)));
+        return writer ? rateWriter.publish(rates).join() : converterService.addCurrencies(rates);
+    }
+
+    private static String currency(int index) {
+        return "C" + index;
+    }
+}
@@ -0,0 +1,61 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Convert of a two hops pair from the request string to the response string.
+ * Run with the gc profiler to compare allocation of BigDecimal and fixed-point arithmetic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConvertBenchmark {
+
+    private static final String AMOUNT = "1.2345";
+
+    private ConverterService converterService;
+    private final FixedDecimal amount = new FixedDecimal();
+    private final FixedDecimal result = new FixedDecimal();
+
+    @Setup
+    public void setup() {
+        converterService = new ConverterServiceImpl(new DirectedWeightedGraphWithPreprocessing());
+        converterService.addCurrencies(List.of(
+                new Rate("BTC", "EUR", new BigDecimal("50000.0000")),
+                new Rate("EUR", "USD", new BigDecimal("1.2000")),
+                new Rate("USD", "RUB", new BigDecimal("80.0000"))));
+    }
+
+    @Benchmark
+    public String convertBigDecimal() {
+        BigDecimal price = converterService.convert("RUB", "BTC", new BigDecimal(AMOUNT));
+        return DecimalUtils.roundCarefully(price).toString();
+    }
+
+    @Benchmark
+    public String convertFixedPoint() {
+        if (amount.parse(AMOUNT) && converterService.convert("RUB", "BTC", amount, result)) {
+            return result.format();
+        }
+        throw new IllegalStateException("Amount doesn't fit into fixed-point decimal");
+    }
+}
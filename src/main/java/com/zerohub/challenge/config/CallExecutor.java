@@ -0,0 +1,24 @@
+package com.zerohub.challenge.config;
+
+/**
+ * Threads which run gRPC calls, except publishes which always run on the publish pool
+ */
+public enum CallExecutor {
+
+    /**
+     * Cached pool of the gRPC server, a call is handed off from the transport thread
+     */
+    DEFAULT,
+
+    /**
+     * Transport threads run single converts and other short calls without a handoff.
+     * Batch, stream and as-of converts, which walk whole paths, still run on a pool of their own.
+     */
+    DIRECT,
+
+    /**
+     * A virtual thread per call, needs JDK 21 or newer
+     */
+    VIRTUAL
+
+}
@@ -0,0 +1,116 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.grpc.OffloadInterceptor;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.proto.RatesServiceV2Grpc;
+import io.grpc.ServerBuilder;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads of gRPC calls: converts run on the configured call executor,
+ * publishes run on their own bounded pool, so they never hold threads of converts.
+ * With direct calls converts which walk whole paths are moved off transport threads as well.
+ */
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+public class ExecutionConfiguration {
+
+    @Bean
+    public GrpcServerConfigurer callExecutorConfigurer(ExecutionProperties properties) {
+        switch (properties.getCalls()) {
+            case DIRECT:
+                return ServerBuilder::directExecutor;
+            case VIRTUAL:
+                Executor executor = virtualThreadPerCallExecutor();
+                return serverBuilder -> serverBuilder.executor(executor);
+            case DEFAULT:
+            default:
+                return serverBuilder -> {
+                };
+        }
+    }
+
+    /**
+     * Runs publish calls, which may wait for free space in the queue of the rate writer
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService publishExecutor(ExecutionProperties properties) {
+        return fixedDaemonPool(properties.getPublishThreads(), "publish-");
+    }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public OffloadInterceptor publishOffloadInterceptor(@Qualifier("publishExecutor") ExecutorService publishExecutor,
+                                                       ExecutionProperties properties) {
+        return new OffloadInterceptor(publishExecutor, properties.getMaxPublishCalls(),
+                RatesServiceGrpc.getPublishMethod(),
+                RatesServiceGrpc.getPublishBatchMethod(),
+                RatesServiceGrpc.getPublishStreamMethod(),
+                RatesServiceGrpc.getUnpublishMethod(),
+                RatesServiceV2Grpc.getPublishMethod(),
+                RatesServiceV2Grpc.getPublishBatchMethod());
+    }
+
+    /**
+     * Runs converts of batches, streams and past times when calls are direct: they walk a path per item,
+     * which would hold an event loop and every transport of it
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "challenge.execution", name = "calls", havingValue = "direct")
+    public ExecutorService convertExecutor(ExecutionProperties properties) {
+        return fixedDaemonPool(properties.getConvertThreads(), "convert-");
+    }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    @ConditionalOnProperty(prefix = "challenge.execution", name = "calls", havingValue = "direct")
+    public OffloadInterceptor convertOffloadInterceptor(@Qualifier("convertExecutor") ExecutorService convertExecutor,
+                                                       ExecutionProperties properties) {
+        return new OffloadInterceptor(convertExecutor, properties.getMaxConvertCalls(),
+                RatesServiceGrpc.getConvertBatchMethod(),
+                RatesServiceGrpc.getConvertStreamMethod(),
+                RatesServiceGrpc.getConvertAsOfMethod());
+    }
+
+    /**
+     * Sends rate changes to subscribers, so the rate writer doesn't wait for them.
+     * One thread keeps changes of each pair in order of epochs.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService subscriptionExecutor() {
+        return fixedDaemonPool(1, "rate-subscriptions-");
+    }
+
+    private static ExecutorService fixedDaemonPool(int size, String namePrefix) {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The project is built for JDK 13, so the factory of JDK 21 is looked up when the server starts
+     */
+    private static Executor virtualThreadPerCallExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads of calls need JDK 21 or newer, running on "
+                    + Runtime.version(), ex);
+        }
+    }
+
+}
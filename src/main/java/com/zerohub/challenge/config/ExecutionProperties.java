@@ -0,0 +1,35 @@
+package com.zerohub.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "challenge.execution")
+public class ExecutionProperties {
+
+    /**
+     * Threads which run calls other than publishes
+     */
+    private CallExecutor calls = CallExecutor.DEFAULT;
+
+    /**
+     * Threads of the pool which runs publish calls
+     */
+    private int publishThreads = 2;
+
+    /**
+     * Max count of publish calls in progress, further calls fail with RESOURCE_EXHAUSTED
+     */
+    private int maxPublishCalls = 1000;
+
+    /**
+     * Threads of the pool which runs batch, stream and as-of converts when calls are direct
+     */
+    private int convertThreads = 2;
+
+    /**
+     * Max count of converts offloaded from transport threads in progress, further calls fail with RESOURCE_EXHAUSTED
+     */
+    private int maxConvertCalls = 1000;
+
+}
@@ -0,0 +1,44 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPathCache;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPotentials;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableConfigurationProperties(GraphProperties.class)
+public class GraphConfiguration {
+
+    /**
+     * Counts paths of large merges of components
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool graphMergePool(GraphProperties properties) {
+        int parallelism = properties.getMergeParallelism() > 0
+                ? properties.getMergeParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean
+    public DirectedWeightedGraph currencyGraph(GraphProperties properties,
+                                               @Qualifier("graphMergePool") ForkJoinPool graphMergePool) {
+        switch (properties.getEngine()) {
+            case POTENTIALS:
+                return new DirectedWeightedGraphWithPotentials();
+            case ON_DEMAND:
+                return new DirectedWeightedGraphWithPathCache(properties.getPathCacheSize());
+            case PREPROCESSING:
+            default:
+                return new DirectedWeightedGraphWithPreprocessing(graphMergePool,
+                        properties.getParallelMergeThreshold());
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.zerohub.challenge.config;
+
+public enum GraphEngine {
+
+    /**
+     * All paths are counted on each added edge, conversion reads a ready path
+     */
+    PREPROCESSING,
+
+    /**
+     * Only path to the component root is kept for each vertex, conversion divides two of them
+     */
+    POTENTIALS,
+
+    /**
+     * Paths are counted on conversion and kept in LRU cache until their component is changed
+     */
+    ON_DEMAND
+
+}
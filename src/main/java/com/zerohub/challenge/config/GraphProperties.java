@@ -0,0 +1,30 @@
+package com.zerohub.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "challenge.graph")
+public class GraphProperties {
+
+    /**
+     * Implementation of the currency graph
+     */
+    private GraphEngine engine = GraphEngine.PREPROCESSING;
+
+    /**
+     * Max count of paths cached by on-demand engine
+     */
+    private int pathCacheSize = 100_000;
+
+    /**
+     * Threads counting paths of large merges by preprocessing engine, 0 means count of available processors
+     */
+    private int mergeParallelism = 0;
+
+    /**
+     * Min count of new paths of a merge counted in parallel by preprocessing engine
+     */
+    private long parallelMergeThreshold = 100_000;
+
+}
@@ -0,0 +1,38 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.history.RateHistory;
+import com.zerohub.challenge.history.RateHistoryPruner;
+import com.zerohub.challenge.persistence.RatePersistence;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Configuration
+@ConditionalOnProperty(prefix = "challenge.history", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(HistoryProperties.class)
+public class HistoryConfiguration {
+
+    private static final Duration PRUNE_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Starts with rates restored by persistence, so it depends on it when persistence is enabled
+     */
+    @Bean
+    public RateHistory rateHistory(DirectedWeightedGraph currencyGraph, HistoryProperties properties,
+                                   Optional<RatePersistence> ratePersistence) {
+        RateHistory history = new RateHistory(properties.getRetention(), System.currentTimeMillis());
+        history.record(currencyGraph.image());
+        return history;
+    }
+
+    @Bean(destroyMethod = "close")
+    public RateHistoryPruner rateHistoryPruner(RateHistory rateHistory) {
+        return new RateHistoryPruner(rateHistory, PRUNE_INTERVAL);
+    }
+
+}
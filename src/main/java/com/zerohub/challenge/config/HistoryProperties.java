@@ -0,0 +1,22 @@
+package com.zerohub.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "challenge.history")
+public class HistoryProperties {
+
+    /**
+     * Keep rates of the past for convertAsOf
+     */
+    private boolean enabled;
+
+    /**
+     * How long past rates are kept, memory of the history grows with ticks published within it
+     */
+    private Duration retention = Duration.ofHours(1);
+
+}
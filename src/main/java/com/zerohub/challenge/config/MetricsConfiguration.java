@@ -0,0 +1,59 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.GraphMetrics;
+import com.zerohub.challenge.grpc.MetricsInterceptor;
+import com.zerohub.challenge.metrics.MetricsExporter;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.proto.RatesServiceV2Grpc;
+import io.grpc.MethodDescriptor;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Metrics of calls and graph writes exported as MBeans of the platform server
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "challenge.metrics", name = "enabled", havingValue = "true")
+public class MetricsConfiguration {
+
+    private static final String DOMAIN = "com.zerohub.challenge";
+
+    @Bean(destroyMethod = "close")
+    public MetricsExporter metricsExporter() {
+        return new MetricsExporter(ManagementFactory.getPlatformMBeanServer(), DOMAIN);
+    }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public MetricsInterceptor metricsInterceptor(MetricsExporter metricsExporter) {
+        MetricsInterceptor interceptor = new MetricsInterceptor(RatesServiceGrpc.getServiceDescriptor(),
+                RatesServiceV2Grpc.getServiceDescriptor());
+        interceptor.getMethods().forEach((method, metrics) -> metricsExporter.register(rpcType(method),
+                MethodDescriptor.extractBareMethodName(method), metrics));
+        return interceptor;
+    }
+
+    @Bean
+    public GraphMetrics graphMetrics(DirectedWeightedGraph currencyGraph, MetricsExporter metricsExporter) {
+        GraphMetrics metrics = currencyGraph.enableMetrics();
+        metricsExporter.register("Graph", "currencyGraph", metrics);
+        metricsExporter.register("GraphLatency", "lockWait", metrics.getLockWait());
+        metricsExporter.register("GraphLatency", "lockHold", metrics.getLockHold());
+        metricsExporter.register("GraphLatency", "recompute", metrics.getRecompute());
+        return metrics;
+    }
+
+    /**
+     * Methods of both versions have the same names, so they are exported under different types
+     */
+    private static String rpcType(String fullMethodName) {
+        return RatesServiceV2Grpc.SERVICE_NAME.equals(MethodDescriptor.extractFullServiceName(fullMethodName))
+                ? "RpcV2" : "Rpc";
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.persistence.RatePersistence;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(prefix = "challenge.persistence", name = "directory")
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfiguration {
+
+    /**
+     * Restores the graph before the server is started and saves it on shutdown
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public RatePersistence ratePersistence(DirectedWeightedGraph currencyGraph, PersistenceProperties properties) {
+        return new RatePersistence(currencyGraph, Path.of(properties.getDirectory()),
+                properties.getImageInterval(), properties.isFsync());
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.zerohub.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "challenge.persistence")
+public class PersistenceProperties {
+
+    /**
+     * Directory of the graph image and the rate log, persistence is disabled when it is not set
+     */
+    private String directory;
+
+    /**
+     * Period of saving the graph image, the log is replayed only since the last image
+     */
+    private Duration imageInterval = Duration.ofMinutes(1);
+
+    /**
+     * Force each log record to the disk before the publish is acknowledged
+     */
+    private boolean fsync = false;
+
+}
@@ -0,0 +1,45 @@
+package com.zerohub.challenge.config;
+
+import com.zerohub.challenge.service.ConverterService;
+import com.zerohub.challenge.service.RateExpiry;
+import com.zerohub.challenge.service.RateWriter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+@EnableConfigurationProperties(PublishProperties.class)
+public class PublishConfiguration {
+
+    /**
+     * Closes batch windows of publish streams
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService publishWindowScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "publish-window");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Applies published rates, so threads of calls don't wait for the graph lock
+     */
+    @Bean(destroyMethod = "close")
+    public RateWriter rateWriter(ConverterService converterService, PublishProperties properties) {
+        return new RateWriter(converterService, properties.getQueueCapacity(), properties.getOverflow());
+    }
+
+    /**
+     * Removes rates of dead feeds when their time to live is set
+     */
+    @Bean(destroyMethod = "close")
+    public RateExpiry rateExpiry(RateWriter rateWriter, PublishProperties properties) {
+        return new RateExpiry(rateWriter, properties.getRateTtl(), properties.getExpirySweepInterval());
+    }
+
+}
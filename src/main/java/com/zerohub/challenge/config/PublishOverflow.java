@@ -0,0 +1,18 @@
+package com.zerohub.challenge.config;
+
+/**
+ * Behavior of a publish when the queue of the rate writer is full
+ */
+public enum PublishOverflow {
+
+    /**
+     * Publish fails with RESOURCE_EXHAUSTED, so the client decides to retry or to drop the rate
+     */
+    REJECT,
+
+    /**
+     * Publish waits for free space in the queue, which holds the thread of the call
+     */
+    BLOCK
+
+}
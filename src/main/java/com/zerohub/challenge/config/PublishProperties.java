@@ -0,0 +1,42 @@
+package com.zerohub.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "challenge.publish")
+public class PublishProperties {
+
+    /**
+     * Max time a streamed rate waits for other rates of its batch
+     */
+    private Duration batchWindow = Duration.ofMillis(1);
+
+    /**
+     * Max count of streamed rates in one batch
+     */
+    private int maxBatchSize = 1000;
+
+    /**
+     * Max count of publish calls waiting for the rate writer
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Behavior of a publish when the queue is full
+     */
+    private PublishOverflow overflow = PublishOverflow.REJECT;
+
+    /**
+     * Max time since the last publish of a rate, older rates are removed. Zero keeps rates forever.
+     */
+    private Duration rateTtl = Duration.ZERO;
+
+    /**
+     * Period of removing expired rates
+     */
+    private Duration expirySweepInterval = Duration.ofSeconds(1);
+
+}
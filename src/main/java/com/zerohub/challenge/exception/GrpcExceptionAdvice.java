@@ -1,9 +1,11 @@
 package com.zerohub.challenge.exception;
 
 import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.PublishRejectedException;
+import com.zerohub.challenge.exception.business.RateHistoryUnavailableException;
 import com.zerohub.challenge.exception.business.RateNotFoundException;
 import io.grpc.Status;
-import io.grpc.StatusException;
 import net.devh.boot.grpc.server.advice.GrpcAdvice;
 import net.devh.boot.grpc.server.advice.GrpcExceptionHandler;
 
@@ -12,12 +14,49 @@ public class GrpcExceptionAdvice {
 
     @GrpcExceptionHandler
     public Status handleRateNotFound(RateNotFoundException ex) {
-        return Status.NOT_FOUND.withDescription(ex.getMessage()).withCause(ex);
+        return toStatus(ex).withCause(ex);
     }
 
     @GrpcExceptionHandler
     public Status handleCurrencyNotFound(CurrencyNotFoundException ex) {
-        return Status.NOT_FOUND.withDescription(ex.getMessage()).withCause(ex);
+        return toStatus(ex).withCause(ex);
+    }
+
+    @GrpcExceptionHandler
+    public Status handleInvalidRate(InvalidRateException ex) {
+        return toStatus(ex).withCause(ex);
+    }
+
+    @GrpcExceptionHandler
+    public Status handleRateHistoryUnavailable(RateHistoryUnavailableException ex) {
+        return toStatus(ex).withCause(ex);
+    }
+
+    /**
+     * The only mapping of business exceptions to statuses. Services which answer expected failures
+     * without throwing them, like probes of unknown currencies, take the status from here too.
+     *
+     * @param ex business exception
+     * @return status with the message of the exception, INTERNAL for other exceptions
+     */
+    public static Status toStatus(RuntimeException ex) {
+        return code(ex).withDescription(ex.getMessage());
+    }
+
+    private static Status code(RuntimeException ex) {
+        if (ex instanceof CurrencyNotFoundException || ex instanceof RateNotFoundException) {
+            return Status.NOT_FOUND;
+        }
+        if (ex instanceof InvalidRateException) {
+            return Status.INVALID_ARGUMENT;
+        }
+        if (ex instanceof RateHistoryUnavailableException) {
+            return Status.OUT_OF_RANGE;
+        }
+        if (ex instanceof PublishRejectedException) {
+            return Status.RESOURCE_EXHAUSTED;
+        }
+        return Status.INTERNAL;
     }
 
 }
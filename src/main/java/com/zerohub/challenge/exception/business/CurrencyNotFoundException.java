@@ -1,9 +1,12 @@
 package com.zerohub.challenge.exception.business;
 
+/**
+ * Reported to the client as NOT_FOUND, so the exception has no stack trace
+ */
 public class CurrencyNotFoundException extends RuntimeException {
 
     public CurrencyNotFoundException(String notExistedCurrency, Throwable cause) {
-        super(String.format("Currency %s was not found", notExistedCurrency), cause);
+        super("Currency " + notExistedCurrency + " was not found", cause, false, false);
     }
 
 }
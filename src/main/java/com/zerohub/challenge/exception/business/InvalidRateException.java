@@ -0,0 +1,13 @@
+package com.zerohub.challenge.exception.business;
+
+/**
+ * Reported to the client as INVALID_ARGUMENT, so the exception has no stack trace
+ */
+public class InvalidRateException extends RuntimeException {
+
+    public InvalidRateException(String baseCurrency, String quoteCurrency, String price) {
+        super("Price " + price + " of rate " + baseCurrency + "-" + quoteCurrency + " is not a positive number",
+                null, false, false);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.zerohub.challenge.exception.business;
+
+/**
+ * Reported to the client as RESOURCE_EXHAUSTED under overload, so the exception has no stack trace
+ */
+public class PublishRejectedException extends RuntimeException {
+
+    public PublishRejectedException(String reason) {
+        super("Publish is rejected: " + reason, null, false, false);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.zerohub.challenge.exception.business;
+
+/**
+ * Reported to the client as OUT_OF_RANGE, so the exception has no stack trace
+ */
+public class RateHistoryUnavailableException extends RuntimeException {
+
+    public RateHistoryUnavailableException(String message) {
+        super(message, null, false, false);
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.zerohub.challenge.exception.business;
 
+/**
+ * Reported to the client as NOT_FOUND, so the exception has no stack trace
+ */
 public class RateNotFoundException extends RuntimeException {
 
     public RateNotFoundException(String fromCurrency, String toCurrency, Throwable cause) {
-        super(String.format("Rate %s-%s was not found", fromCurrency, toCurrency), cause);
+        super("Rate " + fromCurrency + "-" + toCurrency + " was not found", cause, false, false);
     }
 
 }
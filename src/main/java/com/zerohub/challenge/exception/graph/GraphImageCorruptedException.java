@@ -0,0 +1,8 @@
+package com.zerohub.challenge.exception.graph;
+
+public class GraphImageCorruptedException extends RuntimeException {
+
+    public GraphImageCorruptedException(String file, String reason, Throwable cause) {
+        super("Graph image " + file + " is corrupted: " + reason, cause);
+    }
+}
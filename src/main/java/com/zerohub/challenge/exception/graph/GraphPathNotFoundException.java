@@ -1,9 +1,23 @@
 package com.zerohub.challenge.exception.graph;
 
+/**
+ * Missing path is an expected outcome of a lookup, so the exception has no stack trace
+ * and its message is built only when it is read.
+ */
 public class GraphPathNotFoundException extends RuntimeException {
 
+    private final String fromVertex;
+    private final String toVertex;
+
     public GraphPathNotFoundException(String fromVertex, String toVertex, Throwable cause) {
-        super(String.format("Path from %s to %s was not found", fromVertex, toVertex), cause);
+        super(null, cause, false, false);
+        this.fromVertex = fromVertex;
+        this.toVertex = toVertex;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Path from " + fromVertex + " to " + toVertex + " was not found";
     }
 
 }
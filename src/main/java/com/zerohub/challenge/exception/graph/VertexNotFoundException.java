@@ -1,15 +1,24 @@
 package com.zerohub.challenge.exception.graph;
 
+/**
+ * Clients probe unknown currencies often, so the exception has no stack trace
+ * and its message is built only when it is read.
+ */
 public class VertexNotFoundException extends RuntimeException {
 
     private final String notExistedVertex;
 
     public VertexNotFoundException(String notExistedVertex, Throwable cause) {
-        super("Try to work with not existed vertex " + notExistedVertex, cause);
+        super(null, cause, false, false);
         this.notExistedVertex = notExistedVertex;
     }
 
     public String getNotExistedVertex() {
         return notExistedVertex;
     }
+
+    @Override
+    public String getMessage() {
+        return "Try to work with not existed vertex " + notExistedVertex;
+    }
 }
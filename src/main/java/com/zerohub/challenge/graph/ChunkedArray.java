@@ -0,0 +1,100 @@
+package com.zerohub.challenge.graph;
+
+import java.util.Arrays;
+
+/**
+ * Immutable array split into chunks of fixed size.
+ * Change copies only the chunk index and one chunk, so every version can be kept as a snapshot
+ * while the next one is built.
+ *
+ * @param <T> type of items
+ */
+final class ChunkedArray<T> {
+
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final ChunkedArray<?> EMPTY = new ChunkedArray<>(new Object[0][]);
+
+    private final Object[][] chunks;
+
+    private ChunkedArray(Object[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ChunkedArray<T> empty() {
+        return (ChunkedArray<T>) EMPTY;
+    }
+
+    /**
+     * @param index index of the item
+     * @return item or null when it is absent
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            return null;
+        }
+        return (T) chunks[chunk][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index index of the item
+     * @param value new value of the item
+     * @return new version of the array
+     */
+    ChunkedArray<T> with(int index, T value) {
+        Builder<T> builder = toBuilder();
+        builder.set(index, value);
+        return builder.build();
+    }
+
+    Builder<T> toBuilder() {
+        return new Builder<>(chunks);
+    }
+
+    /**
+     * Collects several changes into one new version. Each chunk is copied once.
+     * Builder must not be changed after the version is built.
+     *
+     * @param <T> type of items
+     */
+    static final class Builder<T> {
+        private final Object[][] source;
+        private Object[][] chunks;
+
+        private Builder(Object[][] source) {
+            this.source = source;
+            this.chunks = source.clone();
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            int chunk = index >>> CHUNK_BITS;
+            if (chunk >= chunks.length || chunks[chunk] == null) {
+                return null;
+            }
+            return (T) chunks[chunk][index & CHUNK_MASK];
+        }
+
+        void set(int index, T value) {
+            int chunk = index >>> CHUNK_BITS;
+            if (chunk >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new Object[CHUNK_SIZE];
+            } else if (chunk < source.length && chunks[chunk] == source[chunk]) {
+                chunks[chunk] = source[chunk].clone();
+            }
+            chunks[chunk][index & CHUNK_MASK] = value;
+        }
+
+        ChunkedArray<T> build() {
+            return new ChunkedArray<>(chunks);
+        }
+    }
+}
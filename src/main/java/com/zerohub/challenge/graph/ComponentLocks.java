@@ -0,0 +1,123 @@
+package com.zerohub.challenge.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks of connected components, so writers of unrelated components work in parallel.
+ * A component is locked by the lock of its root. Locks are always taken in order of root ids,
+ * so a writer merging several components doesn't deadlock with others.
+ * A root can't be merged while its lock is held, so roots of locked vertexes are checked once after locking
+ * and the locks are taken again when a concurrent merge has changed them.
+ */
+final class ComponentLocks {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Components components = new Components();
+    private ReentrantLock[] locks = new ReentrantLock[INITIAL_CAPACITY];
+
+    /**
+     * Lock components of the vertexes. Absent vertexes are added as separate components.
+     *
+     * @param vertexes ids of the vertexes
+     * @return ids of locked roots, they should be passed to {@link #unlock(int[])}
+     */
+    int[] lock(int[] vertexes) {
+        while (true) {
+            int[] roots;
+            ReentrantLock[] rootLocks;
+            synchronized (this) {
+                roots = findRoots(vertexes);
+                rootLocks = new ReentrantLock[roots.length];
+                for (int i = 0; i < roots.length; i++) {
+                    rootLocks[i] = getLock(roots[i]);
+                }
+            }
+            for (ReentrantLock lock : rootLocks) {
+                lock.lock();
+            }
+            synchronized (this) {
+                if (Arrays.equals(roots, findRoots(vertexes))) {
+                    return roots;
+                }
+            }
+            unlock(roots);
+        }
+    }
+
+    void unlock(int[] roots) {
+        for (int i = roots.length - 1; i >= 0; i--) {
+            locks[roots[i]].unlock();
+        }
+    }
+
+    /**
+     * @param vertex id of the vertex, its component must be locked
+     * @return id of the component root
+     */
+    synchronized int find(int vertex) {
+        return components.find(vertex);
+    }
+
+    /**
+     * Merge two components, both of them must be locked
+     *
+     * @return id of the root of merged component
+     */
+    synchronized int union(int rootA, int rootB) {
+        return components.union(rootA, rootB);
+    }
+
+    /**
+     * @param root id of the root of a locked component
+     * @return ids of the component vertexes
+     */
+    synchronized int[] members(int root) {
+        return Arrays.copyOf(components.members(root), components.size(root));
+    }
+
+    /**
+     * Replace the locked component by its parts after removing edges. Vertexes which are not in any part
+     * are removed. Writers waiting for the lock of the old root find new roots of their vertexes
+     * when it is released, so they take the locks again.
+     *
+     * @param root  id of the root of the locked component
+     * @param parts vertexes of each part, the first vertex is the root of the part
+     */
+    synchronized void split(int root, List<int[]> parts) {
+        components.remove(root);
+        for (int[] part : parts) {
+            components.add(part[0], part);
+        }
+    }
+
+    /**
+     * Merge components of two vertexes while the graph is restored and there are no writers
+     */
+    synchronized void join(int vertexA, int vertexB) {
+        components.add(vertexA);
+        components.add(vertexB);
+        components.union(components.find(vertexA), components.find(vertexB));
+    }
+
+    private int[] findRoots(int[] vertexes) {
+        int[] roots = new int[vertexes.length];
+        for (int i = 0; i < vertexes.length; i++) {
+            components.add(vertexes[i]);
+            roots[i] = components.find(vertexes[i]);
+        }
+        return Arrays.stream(roots).sorted().distinct().toArray();
+    }
+
+    private ReentrantLock getLock(int root) {
+        if (root >= locks.length) {
+            locks = Arrays.copyOf(locks, Math.max(root + 1, locks.length * 2));
+        }
+        if (locks[root] == null) {
+            locks[root] = new ReentrantLock();
+        }
+        return locks[root];
+    }
+}
@@ -0,0 +1,142 @@
+package com.zerohub.challenge.graph;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the graph (union-find).
+ * Each vertex keeps the id of its component root, so find is a single array read.
+ * Union relabels the smaller component, so each vertex is relabeled O(log V) times at most.
+ * Not thread-safe: it is changed only by the writer of the graph.
+ */
+class Components {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_COMPONENT = -1;
+
+    private int[] roots = newRoots(INITIAL_CAPACITY);
+    private int[][] members = new int[INITIAL_CAPACITY][];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Add the vertex as a separate component if it is absent
+     *
+     * @param vertex id of the vertex
+     * @return true when the vertex was added
+     */
+    boolean add(int vertex) {
+        ensureCapacity(vertex + 1);
+        if (roots[vertex] != NO_COMPONENT) {
+            return false;
+        }
+        roots[vertex] = vertex;
+        members[vertex] = new int[]{vertex};
+        sizes[vertex] = 1;
+        return true;
+    }
+
+    /**
+     * @param vertex id of the vertex
+     * @return id of the component root or -1 when the vertex is absent
+     */
+    int find(int vertex) {
+        return vertex < roots.length ? roots[vertex] : NO_COMPONENT;
+    }
+
+    /**
+     * @param root id of the component root
+     * @return count of vertexes in the component
+     */
+    int size(int root) {
+        return sizes[root];
+    }
+
+    /**
+     * @param root id of the component root
+     * @return ids of the component vertexes, only first {@link #size(int)} items are valid
+     */
+    int[] members(int root) {
+        return members[root];
+    }
+
+    /**
+     * Merge two components. The smaller one is relabeled to the root of the larger one.
+     *
+     * @param rootA id of the first component root
+     * @param rootB id of the second component root
+     * @return id of the root of merged component
+     */
+    int union(int rootA, int rootB) {
+        if (rootA == rootB) {
+            return rootA;
+        }
+        int large = sizes[rootA] >= sizes[rootB] ? rootA : rootB;
+        int small = large == rootA ? rootB : rootA;
+        int[] smallMembers = members[small];
+        int smallSize = sizes[small];
+        for (int i = 0; i < smallSize; i++) {
+            roots[smallMembers[i]] = large;
+        }
+        int largeSize = sizes[large];
+        int[] largeMembers = members[large];
+        if (largeMembers.length < largeSize + smallSize) {
+            largeMembers = Arrays.copyOf(largeMembers, Math.max(largeSize + smallSize, largeMembers.length * 2));
+            members[large] = largeMembers;
+        }
+        System.arraycopy(smallMembers, 0, largeMembers, largeSize, smallSize);
+        sizes[large] = largeSize + smallSize;
+        members[small] = null;
+        sizes[small] = 0;
+        return large;
+    }
+
+    /**
+     * Remove all vertexes of the component, they are absent until they are added again.
+     * It is used to split the component after removing edges.
+     *
+     * @param root id of the component root
+     */
+    void remove(int root) {
+        int[] rootMembers = members[root];
+        for (int i = 0; i < sizes[root]; i++) {
+            roots[rootMembers[i]] = NO_COMPONENT;
+        }
+        members[root] = null;
+        sizes[root] = 0;
+    }
+
+    /**
+     * Add absent vertexes as one component
+     *
+     * @param root     id of the component root, it must be one of the vertexes
+     * @param vertexes ids of the component vertexes
+     */
+    void add(int root, int[] vertexes) {
+        ensureCapacity(root + 1);
+        for (int vertex : vertexes) {
+            ensureCapacity(vertex + 1);
+            roots[vertex] = root;
+        }
+        members[root] = vertexes.clone();
+        sizes[root] = vertexes.length;
+    }
+
+    private void ensureCapacity(int vertexCount) {
+        if (vertexCount > roots.length) {
+            int capacity = roots.length;
+            while (capacity < vertexCount) {
+                capacity *= 2;
+            }
+            int oldCapacity = roots.length;
+            roots = Arrays.copyOf(roots, capacity);
+            Arrays.fill(roots, oldCapacity, capacity, NO_COMPONENT);
+            members = Arrays.copyOf(members, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+    }
+
+    private static int[] newRoots(int capacity) {
+        int[] roots = new int[capacity];
+        Arrays.fill(roots, NO_COMPONENT);
+        return roots;
+    }
+}
@@ -0,0 +1,192 @@
+package com.zerohub.challenge.graph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interns currency codes to small dense int ids.
+ * Ids are assigned sequentially, so they can be used as indexes of primitive arrays.
+ * Ids of released currencies are reused after a delay, so a churning set of currencies
+ * keeps arrays indexed by ids bounded, while a reader which has just resolved a released id
+ * doesn't get another currency behind it.
+ * Ids kept by clients for longer are stable ids: the id with the count of its reuses in the high bits,
+ * so a stable id of a released currency never resolves to the currency which got its id.
+ */
+public class CurrencyRegistry {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final long REUSE_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile String[] codes = new String[INITIAL_CAPACITY];
+
+    private volatile int[] generations = new int[INITIAL_CAPACITY];
+
+    private volatile int size;
+
+    private final ArrayDeque<ReleasedId> releasedIds = new ArrayDeque<>();
+
+    private final long reuseDelayNanos;
+
+    public CurrencyRegistry() {
+        this(REUSE_DELAY_NANOS);
+    }
+
+    /**
+     * @param reuseDelayNanos min time between releasing an id and assigning it to another currency
+     */
+    CurrencyRegistry(long reuseDelayNanos) {
+        this.reuseDelayNanos = reuseDelayNanos;
+    }
+
+    /**
+     * Get id of the currency
+     *
+     * @param code currency code
+     * @return id of the currency or {@link #UNKNOWN} when it was never registered or is released
+     */
+    public int idOf(String code) {
+        Integer id = ids.get(code);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * Get currency code by its id
+     *
+     * @param id currency id
+     * @return currency code or null when id is not assigned
+     */
+    public String codeOf(int id) {
+        String[] currentCodes = codes;
+        return id >= 0 && id < currentCodes.length ? currentCodes[id] : null;
+    }
+
+    /**
+     * Get id of the currency which is never assigned to another currency while the server runs
+     *
+     * @param code currency code
+     * @return id in the low 32 bits and count of its reuses in the high 32 bits,
+     * or {@link #UNKNOWN} when the currency was never registered or is released
+     */
+    public long stableIdOf(String code) {
+        int id = idOf(code);
+        return id == UNKNOWN ? UNKNOWN : (long) generations[id] << 32 | id;
+    }
+
+    /**
+     * Get currency code by its stable id
+     *
+     * @param stableId id from {@link #stableIdOf(String)}
+     * @return currency code or null when the currency of the id is released
+     */
+    public String codeOfStableId(long stableId) {
+        int id = (int) stableId;
+        String code = codeOf(id);
+        int[] currentGenerations = generations;
+        return code != null && id < currentGenerations.length && currentGenerations[id] == (int) (stableId >>> 32)
+                ? code : null;
+    }
+
+    /**
+     * Register the currency if it is absent. The oldest released id is reused when its delay has passed.
+     *
+     * @param code currency code
+     * @return id of the currency
+     */
+    public synchronized int register(String code) {
+        Integer existed = ids.get(code);
+        if (existed != null) {
+            return existed;
+        }
+        ReleasedId released = releasedIds.peekFirst();
+        int id;
+        if (released != null && System.nanoTime() - released.releasedAt >= reuseDelayNanos) {
+            releasedIds.pollFirst();
+            id = released.id;
+            generations[id]++;
+        } else {
+            id = size;
+            grow(id);
+            size = id + 1;
+        }
+        codes[id] = code;
+        ids.put(code, id);
+        return id;
+    }
+
+    /**
+     * Release the id of a currency which has no rates anymore. The currency gets a new id when it is registered again.
+     *
+     * @param id currency id
+     */
+    public synchronized void release(int id) {
+        String code = codeOf(id);
+        if (code == null) {
+            return;
+        }
+        ids.remove(code);
+        codes[id] = null;
+        releasedIds.addLast(new ReleasedId(id, System.nanoTime()));
+    }
+
+    /**
+     * Register currencies with the given ids, null codes are released ids
+     *
+     * @param restored currency codes indexed by ids
+     * @throws IllegalStateException when currencies are already registered
+     */
+    synchronized void restore(String[] restored) {
+        if (size > 0) {
+            throw new IllegalStateException("Registry with " + size + " currencies can't be restored");
+        }
+        long releasedAt = System.nanoTime() - reuseDelayNanos;
+        for (String code : restored) {
+            int id = size;
+            grow(id);
+            size = id + 1;
+            if (code == null) {
+                releasedIds.addLast(new ReleasedId(id, releasedAt));
+            } else {
+                codes[id] = code;
+                ids.put(code, id);
+            }
+        }
+    }
+
+    private void grow(int id) {
+        if (id == codes.length) {
+            generations = Arrays.copyOf(generations, codes.length * 2);
+            codes = Arrays.copyOf(codes, codes.length * 2);
+        }
+    }
+
+    /**
+     * @return count of assigned ids including released ones, all ids are lower than this value
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return count of registered currencies which are not released
+     */
+    public int count() {
+        return ids.size();
+    }
+
+    private static final class ReleasedId {
+        private final int id;
+        private final long releasedAt;
+
+        private ReleasedId(int id, long releasedAt) {
+            this.id = id;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.zerohub.challenge.graph;
 
-import com.zerohub.challenge.exception.graph.VertexNotFoundException;
-import com.zerohub.challenge.utils.DecimalUtils;
-
 import java.math.BigDecimal;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class DirectedWeightedGraph {
 
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, BigDecimal>> graphEdges
-            = new ConcurrentHashMap<>();
+    private final CurrencyRegistry registry = new CurrencyRegistry();
+
+    private final AtomicReference<ChunkedArray<EdgeList>> graphEdges = new AtomicReference<>(ChunkedArray.empty());
+
+    private final EdgeTimes edgeTimes = new EdgeTimes();
+
+    private final List<SnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile GraphMetrics metrics = GraphMetrics.DISABLED;
 
     /**
      * Count the path between the vertexes
@@ -18,7 +26,128 @@ public abstract class DirectedWeightedGraph {
      * @param vertexB last vertex of the path
      * @return lenght of path
      */
-    public abstract BigDecimal findPath(String vertexA, String vertexB);
+    public BigDecimal findPath(String vertexA, String vertexB) {
+        return snapshot().findPath(vertexA, vertexB);
+    }
+
+    /**
+     * Get id of the vertex. The id doesn't change while the vertex has edges.
+     * Ids of removed vertexes are assigned to new vertexes later, so clients keep {@link #getStableVertexId} instead.
+     *
+     * @param vertex vertex name
+     * @return id of the vertex or {@link CurrencyRegistry#UNKNOWN} when it was never added or is removed
+     */
+    public int getVertexId(String vertex) {
+        return registry.idOf(vertex);
+    }
+
+    /**
+     * @param vertexId id of the vertex
+     * @return vertex name or null when the id is not assigned
+     */
+    public String getVertex(int vertexId) {
+        return registry.codeOf(vertexId);
+    }
+
+    /**
+     * @param vertex vertex name
+     * @return id which is never assigned to another vertex, see {@link CurrencyRegistry#stableIdOf(String)}
+     */
+    public long getStableVertexId(String vertex) {
+        return registry.stableIdOf(vertex);
+    }
+
+    /**
+     * @param stableVertexId id from {@link #getStableVertexId(String)}
+     * @return vertex name or null when the vertex of the id is removed
+     */
+    public String getVertexByStableId(long stableVertexId) {
+        return registry.codeOfStableId(stableVertexId);
+    }
+
+    /**
+     * Get consistent view of the graph paths.
+     * Paths of the snapshot don't change when new edges are added.
+     *
+     * @return snapshot of the last finished write
+     */
+    public abstract GraphSnapshot snapshot();
+
+    /**
+     * Get edges and paths of one finished write for saving.
+     * The image shares immutable structures with the graph, so it is cheap to take.
+     *
+     * @return image of the last finished write
+     */
+    public abstract GraphImage image();
+
+    /**
+     * Restore the graph saved by {@link #image()}. Edges of the image are added as one write,
+     * then the edge lists are replaced by the saved ones, so reversed weights are the same as before saving.
+     * The restored graph continues epochs of the image, so log records of later writes are told from older ones.
+     * Engines which keep counted paths may take them from the image instead.
+     *
+     * @param image image of a graph
+     * @throws IllegalStateException when the graph already has vertexes
+     */
+    public void restore(GraphImage image) {
+        restoreCurrencies(image);
+        List<Edge> edges = new ArrayList<>();
+        for (int id = 0; id < image.getCurrencyCount(); id++) {
+            EdgeList vertexEdges = image.getEdges(id);
+            for (int i = 0; i < vertexEdges.size(); i++) {
+                int target = vertexEdges.getTarget(i);
+                if (id < target) {
+                    edges.add(new Edge(image.getCurrency(id), image.getCurrency(target), vertexEdges.getWeight(i)));
+                }
+            }
+        }
+        applyEdges(edges);
+        restoreEdges(image.getEdges());
+        restoreEpoch(image.getEpoch());
+    }
+
+    /**
+     * Make the restored state the snapshot of the given epoch, the next write gets the following one
+     *
+     * @param epoch epoch of the restored image
+     */
+    protected abstract void restoreEpoch(long epoch);
+
+    /**
+     * Register currencies of the image in the same order, so their ids are equal to the saved ones
+     *
+     * @param image image of a graph
+     * @throws IllegalStateException when the graph already has vertexes
+     */
+    protected void restoreCurrencies(GraphImage image) {
+        if (registry.size() > 0) {
+            throw new IllegalStateException("Graph with " + registry.size() + " vertexes can't be restored");
+        }
+        String[] currencies = new String[image.getCurrencyCount()];
+        for (int id = 0; id < currencies.length; id++) {
+            currencies[id] = image.getCurrency(id);
+        }
+        registry.restore(currencies);
+    }
+
+    /**
+     * Replace all edges by the restored ones. Update times are not saved, so restored edges are updated now.
+     *
+     * @param edges edges indexed by ids of restored currencies
+     */
+    void restoreEdges(ChunkedArray<EdgeList> edges) {
+        graphEdges.set(edges);
+        long now = System.currentTimeMillis();
+        for (int id = 0; id < registry.size(); id++) {
+            EdgeList vertexEdges = getEdgesOfVertex(edges, id);
+            for (int i = 0; i < vertexEdges.size(); i++) {
+                if (id < vertexEdges.getTarget(i)) {
+                    edgeTimes.touch(id, vertexEdges.getTarget(i), now);
+                }
+            }
+        }
+    }
 
     /**
      * Add new edge to the graph
@@ -27,26 +156,147 @@ public abstract class DirectedWeightedGraph {
      * @param vertexB  last vertex of the edge
      * @param weightAB weight of the edge
      */
-    public abstract void addEdge(String vertexA, String vertexB, BigDecimal weightAB);
+    public void addEdge(String vertexA, String vertexB, BigDecimal weightAB) {
+        addEdges(Collections.singletonList(new Edge(vertexA, vertexB, weightAB)));
+    }
 
     /**
-     * Get all adjacent edges for the vertex
+     * Add several edges as one write: paths are counted once, and readers see either none or all of them.
+     * Only the last edge of each pair of vertexes is added. Weights of the edges are checked when they are created,
+     * so the write doesn't fail after some of them are added.
+     *
+     * @param edges edges in order of publishing
+     * @return epoch of the snapshot which contains the edges
+     */
+    public long addEdges(List<Edge> edges) {
+        long epoch = applyEdges(Edge.coalesce(edges));
+        notifyListeners();
+        return epoch;
+    }
+
+    /**
+     * Remove edges as one write. Only paths which went through the removed edges are counted again,
+     * and vertexes left without edges are removed from the graph.
      *
-     * @param vertex vertex
-     * @return map of adjacent vertexes and weights.
-     * @throws VertexNotFoundException when vertex is not found
+     * @param pairs   pairs of vertexes of the edges, absent edges are skipped
+     * @param removed receives pairs of the removed edges
+     * @return epoch of the snapshot without the edges
      */
-    protected ConcurrentHashMap<String, BigDecimal> getEdgesOfVertex(String vertex) {
-        var edges = graphEdges.get(vertex);
-        if (edges == null) {
-            throw new VertexNotFoundException(vertex, null);
-        } else {
-            return edges;
+    public long removeEdges(List<VertexPair> pairs, List<VertexPair> removed) {
+        long epoch = applyRemovals(pairs, EdgeTimes.NEVER, removed);
+        notifyListeners();
+        return epoch;
+    }
+
+    /**
+     * Remove edges which were neither added nor republished with the same weight since the time.
+     * Expired edges are taken in order of updating, so the cost depends only on the count of expired edges.
+     * Each edge is checked again by the write, so an edge updated in the meantime is kept.
+     *
+     * @param timestamp time in milliseconds
+     * @param removed   receives pairs of the removed edges
+     * @return epoch of the snapshot without the edges
+     */
+    public long removeEdgesUpdatedBefore(long timestamp, List<VertexPair> removed) {
+        long[] expired = edgeTimes.updatedBefore(timestamp);
+        if (expired.length == 0) {
+            return snapshot().getEpoch();
+        }
+        List<VertexPair> pairs = new ArrayList<>(expired.length);
+        for (long key : expired) {
+            String vertexA = registry.codeOf(EdgeTimes.first(key));
+            String vertexB = registry.codeOf(EdgeTimes.second(key));
+            if (vertexA != null && vertexB != null) {
+                pairs.add(new VertexPair(vertexA, vertexB));
+            }
+        }
+        long epoch = applyRemovals(pairs, timestamp, removed);
+        notifyListeners();
+        return epoch;
+    }
+
+    private void notifyListeners() {
+        if (!listeners.isEmpty()) {
+            GraphSnapshot snapshot = snapshot();
+            for (SnapshotListener listener : listeners) {
+                listener.onSnapshot(snapshot);
+            }
         }
     }
 
     /**
-     * Check existence of the edge with weight
+     * Add listener of published snapshots
+     *
+     * @param listener listener
+     */
+    public void addListener(SnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Add edges and publish one new snapshot if any of them is changed
+     *
+     * @param edges edges with different pairs of vertexes
+     * @return epoch of the snapshot which contains the edges
+     */
+    protected abstract long applyEdges(List<Edge> edges);
+
+    /**
+     * Remove edges updated before the time and publish one new snapshot if any of them is removed
+     *
+     * @param pairs         pairs of vertexes of the edges
+     * @param updatedBefore time in milliseconds, {@link Long#MAX_VALUE} removes edges of any time
+     * @param removed       receives pairs of the removed edges
+     * @return epoch of the snapshot without the edges
+     */
+    protected abstract long applyRemovals(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed);
+
+    /**
+     * Start measuring writes of the graph. The metrics are published to writer threads by a volatile field,
+     * so writes started after the call are measured.
+     *
+     * @return metrics of the graph
+     */
+    public GraphMetrics enableMetrics() {
+        metrics = new GraphMetrics(this);
+        return metrics;
+    }
+
+    /**
+     * @return count of path entries kept by the engine
+     */
+    public abstract long getPathTableSize();
+
+    protected GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    protected CurrencyRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Get all edges of the graph. Returned version is not changed by next added edges.
+     *
+     * @return lists of adjacent vertexes and weights indexed by vertex id
+     */
+    ChunkedArray<EdgeList> getGraphEdges() {
+        return graphEdges.get();
+    }
+
+    /**
+     * Get all adjacent edges for the vertex
+     *
+     * @param vertexId id of the vertex
+     * @return list of adjacent vertexes and weights.
+     */
+    protected EdgeList getEdgesOfVertex(int vertexId) {
+        return getEdgesOfVertex(graphEdges.get(), vertexId);
+    }
+
+    /**
+     * Check existence of the edge with weight. The existing edge is updated now,
+     * so an edge republished with the same weight doesn't expire.
      *
      * @param vertexA  first vertex of edge
      * @param vertexB  second vertex of edge
@@ -54,44 +304,97 @@ public abstract class DirectedWeightedGraph {
      * @return true if vertexes are equal and weight is equal
      */
     protected boolean existedEdgeWithWeight(String vertexA, String vertexB, BigDecimal weightAB) {
-        var edges = graphEdges.get(vertexA);
-        if (edges != null) {
-            BigDecimal weight = edges.get(vertexB);
-            if (weight != null) {
-                return weightAB.compareTo(weight) == 0;
+        int idA = registry.idOf(vertexA);
+        int idB = registry.idOf(vertexB);
+        if (idA != CurrencyRegistry.UNKNOWN && idB != CurrencyRegistry.UNKNOWN) {
+            BigDecimal weight = getEdgesOfVertex(idA).weightTo(idB);
+            if (weight != null && weightAB.compareTo(weight) == 0) {
+                edgeTimes.touch(idA, idB, System.currentTimeMillis());
+                return true;
             }
         }
         return false;
     }
 
-    protected void checkExistedVertex(String vertex) {
-        var edges = graphEdges.get(vertex);
-        if (edges == null) {
-            throw new VertexNotFoundException(vertex, null);
-        }
-    }
-
     /**
      * Add new vertex to the graph
      *
      * @param vertex vertex id
+     * @return id of the vertex
+     */
+    protected int addVertex(String vertex) {
+        return registry.register(vertex);
+    }
+
+    /**
+     * Remove the vertex which has no edges. Its id is released, so it is reused by a new vertex later.
+     * It is called after the snapshot without the vertex is published.
+     *
+     * @param vertex id of the vertex
      */
-    protected void addVertex(String vertex) {
-        graphEdges.putIfAbsent(vertex, new ConcurrentHashMap<>());
-        graphEdges.get(vertex).put(vertex, BigDecimal.ONE);
+    protected void removeVertex(int vertex) {
+        ChunkedArray<EdgeList> current;
+        do {
+            current = graphEdges.get();
+        } while (current.get(vertex) != null && !graphEdges.compareAndSet(current, current.with(vertex, null)));
+        registry.release(vertex);
     }
 
     /**
-     * Add two oriented edges (single and reversed) between two vertexes
-     * The weights are weightAB and 1 / weightAB.
+     * Add two oriented edges (single and reversed) between two vertexes.
+     * The weights are counted by {@link Edge}, so adding them never fails in the middle of a write.
+     * Writers of different components may add edges concurrently: edges of other vertexes
+     * added in the meantime are kept by retrying on the latest version.
      *
-     * @param vertexA  first vertex
-     * @param vertexB  second vertex
-     * @param weightAB weight oriented from first and second vertex
+     * @param vertexA id of the first vertex of the edge
+     * @param vertexB id of the second vertex of the edge
+     * @param edge    edge with weights oriented from the first vertex and from the second one
      */
-    protected void addTwoWeightedEdges(String vertexA, String vertexB, BigDecimal weightAB) {
-        getEdgesOfVertex(vertexA).put(vertexB, weightAB);
-        getEdgesOfVertex(vertexB).put(vertexA, DecimalUtils.getReverseNumber(weightAB));
+    protected void addTwoWeightedEdges(int vertexA, int vertexB, Edge edge) {
+        BigDecimal weightAB = edge.getWeightAB();
+        BigDecimal weightBA = edge.getWeightBA();
+        ChunkedArray<EdgeList> current;
+        ChunkedArray<EdgeList> next;
+        do {
+            current = graphEdges.get();
+            ChunkedArray.Builder<EdgeList> edges = current.toBuilder();
+            edges.set(vertexA, getEdgesOfVertex(current, vertexA).with(vertexB, weightAB));
+            edges.set(vertexB, getEdgesOfVertex(current, vertexB).with(vertexA, weightBA));
+            next = edges.build();
+        } while (!graphEdges.compareAndSet(current, next));
+        edgeTimes.touch(vertexA, vertexB, System.currentTimeMillis());
+    }
+
+    /**
+     * Remove both oriented edges between two vertexes if the edge was updated before the time.
+     * Writers of different components may remove edges concurrently like {@link #addTwoWeightedEdges}.
+     *
+     * @param vertexA       id of the first vertex
+     * @param vertexB       id of the second vertex
+     * @param updatedBefore time in milliseconds, {@link Long#MAX_VALUE} removes the edge of any time
+     * @return true when the edge was removed
+     */
+    protected boolean removeTwoWeightedEdges(int vertexA, int vertexB, long updatedBefore) {
+        if (getEdgesOfVertex(vertexA).weightTo(vertexB) == null
+                || (updatedBefore != EdgeTimes.NEVER && edgeTimes.get(vertexA, vertexB) >= updatedBefore)) {
+            return false;
+        }
+        ChunkedArray<EdgeList> current;
+        ChunkedArray<EdgeList> next;
+        do {
+            current = graphEdges.get();
+            ChunkedArray.Builder<EdgeList> edges = current.toBuilder();
+            edges.set(vertexA, getEdgesOfVertex(current, vertexA).without(vertexB));
+            edges.set(vertexB, getEdgesOfVertex(current, vertexB).without(vertexA));
+            next = edges.build();
+        } while (!graphEdges.compareAndSet(current, next));
+        edgeTimes.remove(vertexA, vertexB);
+        return true;
+    }
+
+    private static EdgeList getEdgesOfVertex(ChunkedArray<EdgeList> edges, int vertexId) {
+        EdgeList vertexEdges = edges.get(vertexId);
+        return vertexEdges == null ? EdgeList.EMPTY : vertexEdges;
     }
 
 }
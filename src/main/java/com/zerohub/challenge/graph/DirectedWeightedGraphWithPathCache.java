@@ -0,0 +1,283 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Graph that counts paths on demand with {@link PathSearch} and keeps them in {@link PathCache}.
+ * Adding an edge changes only the edge lists and the component labels of the graph,
+ * so it suits loads where rates are published more often than they are converted.
+ */
+public class DirectedWeightedGraphWithPathCache extends DirectedWeightedGraph {
+
+    private final Components components = new Components();
+
+    private final PathCache pathCache;
+
+    private volatile Snapshot snapshot;
+
+    public DirectedWeightedGraphWithPathCache(int pathCacheSize) {
+        pathCache = new PathCache(pathCacheSize);
+        snapshot = new Snapshot(getGraphEdges(), ChunkedArray.empty(), 0);
+    }
+
+    @Override
+    protected long applyEdges(List<Edge> edges) {
+        long waitStart = getMetrics().start();
+        synchronized (this) {
+            long holdStart = getMetrics().lockAcquired(waitStart);
+            try {
+                return applyLockedEdges(edges);
+            } finally {
+                getMetrics().lockReleased(holdStart);
+            }
+        }
+    }
+
+    private long applyLockedEdges(List<Edge> edges) {
+        long epoch = snapshot.getEpoch() + 1;
+        ChunkedArray.Builder<ComponentLabel> labels = null;
+        for (Edge edge : edges) {
+            if (!existedEdgeWithWeight(edge.getVertexA(), edge.getVertexB(), edge.getWeightAB())) {
+                if (labels == null) {
+                    labels = snapshot.labels.toBuilder();
+                }
+                int idA = addVertex(edge.getVertexA());
+                int idB = addVertex(edge.getVertexB());
+                addTwoWeightedEdges(idA, idB, edge);
+                addRoot(labels, idA, epoch);
+                addRoot(labels, idB, epoch);
+                int root = mergeComponents(labels, components.find(idA), components.find(idB), epoch);
+                labels.set(root, new ComponentLabel(root, epoch));
+            }
+        }
+        if (labels != null) {
+            snapshot = new Snapshot(getGraphEdges(), labels.build(), epoch);
+        }
+        return snapshot.getEpoch();
+    }
+
+    @Override
+    protected long applyRemovals(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        long waitStart = getMetrics().start();
+        synchronized (this) {
+            long holdStart = getMetrics().lockAcquired(waitStart);
+            try {
+                return removeLockedEdges(pairs, updatedBefore, removed);
+            } finally {
+                getMetrics().lockReleased(holdStart);
+            }
+        }
+    }
+
+    /**
+     * Components of removed edges are labeled again with the new epoch,
+     * so only cached paths of these components are invalidated.
+     */
+    private long removeLockedEdges(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        BitSet changedComponents = new BitSet(getRegistry().size());
+        for (VertexPair pair : pairs) {
+            int idA = getRegistry().idOf(pair.getVertexA());
+            int idB = getRegistry().idOf(pair.getVertexB());
+            if (idA != CurrencyRegistry.UNKNOWN && idB != CurrencyRegistry.UNKNOWN
+                    && removeTwoWeightedEdges(idA, idB, updatedBefore)) {
+                changedComponents.set(components.find(idA));
+                removed.add(pair);
+            }
+        }
+        if (changedComponents.isEmpty()) {
+            return snapshot.getEpoch();
+        }
+        long epoch = snapshot.getEpoch() + 1;
+        ChunkedArray.Builder<ComponentLabel> labels = snapshot.labels.toBuilder();
+        List<Integer> isolated = new ArrayList<>();
+        for (int root = changedComponents.nextSetBit(0); root >= 0; root = changedComponents.nextSetBit(root + 1)) {
+            splitComponent(labels, root, epoch, isolated);
+        }
+        snapshot = new Snapshot(getGraphEdges(), labels.build(), epoch);
+        for (int vertex : isolated) {
+            removeVertex(vertex);
+        }
+        return epoch;
+    }
+
+    /**
+     * Labels parts of the component found by walking the remaining edges. Vertexes without edges lose their labels.
+     *
+     * @param isolated receives vertexes without edges
+     */
+    private void splitComponent(ChunkedArray.Builder<ComponentLabel> labels, int root, long epoch,
+                                List<Integer> isolated) {
+        int size = components.size(root);
+        int[] members = Arrays.copyOf(components.members(root), size);
+        components.remove(root);
+        BitSet visited = new BitSet(getRegistry().size());
+        int[] queue = new int[size];
+        for (int first : members) {
+            if (visited.get(first)) {
+                continue;
+            }
+            if (getEdgesOfVertex(first).size() == 0) {
+                labels.set(first, null);
+                isolated.add(first);
+                continue;
+            }
+            ComponentLabel label = new ComponentLabel(first, epoch);
+            visited.set(first);
+            queue[0] = first;
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                int vertex = queue[head];
+                labels.set(vertex, label);
+                EdgeList edges = getEdgesOfVertex(vertex);
+                for (int i = 0; i < edges.size(); i++) {
+                    int next = edges.getTarget(i);
+                    if (!visited.get(next)) {
+                        visited.set(next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            components.add(first, Arrays.copyOf(queue, tail));
+        }
+    }
+
+    /**
+     * Only cached paths are kept
+     */
+    @Override
+    public long getPathTableSize() {
+        return pathCache.size();
+    }
+
+    @Override
+    public synchronized GraphImage image() {
+        return GraphImage.of(this, snapshot.getEpoch(), null);
+    }
+
+    /**
+     * Labels keep versions of the restoring write, they are older than any later write, so cached paths stay valid
+     */
+    @Override
+    protected synchronized void restoreEpoch(long epoch) {
+        snapshot = new Snapshot(getGraphEdges(), snapshot.labels, epoch);
+    }
+
+    @Override
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    private void addRoot(ChunkedArray.Builder<ComponentLabel> labels, int vertex, long epoch) {
+        if (components.add(vertex)) {
+            labels.set(vertex, new ComponentLabel(vertex, epoch));
+        }
+    }
+
+    /**
+     * Joins two components. Vertexes of the smaller one are labeled with the root of the larger one.
+     *
+     * @return root of the joined component
+     */
+    private int mergeComponents(ChunkedArray.Builder<ComponentLabel> labels, int rootA, int rootB, long epoch) {
+        if (rootA == rootB) {
+            return rootA;
+        }
+        int small = components.size(rootA) >= components.size(rootB) ? rootB : rootA;
+        int[] smallMembers = components.members(small);
+        int smallSize = components.size(small);
+        int root = components.union(rootA, rootB);
+        ComponentLabel member = new ComponentLabel(root, epoch);
+        for (int i = 0; i < smallSize; i++) {
+            labels.set(smallMembers[i], member);
+        }
+        return root;
+    }
+
+    /**
+     * Component of the vertex. Version is valid only for the label of the component root,
+     * it is the epoch of the last change of the component.
+     */
+    private static final class ComponentLabel {
+        private final int root;
+        private final long version;
+
+        private ComponentLabel(int root, long version) {
+            this.root = root;
+            this.version = version;
+        }
+    }
+
+    private final class Snapshot implements GraphSnapshot {
+        private final ChunkedArray<EdgeList> edges;
+        private final ChunkedArray<ComponentLabel> labels;
+        private final long epoch;
+
+        private Snapshot(ChunkedArray<EdgeList> edges, ChunkedArray<ComponentLabel> labels, long epoch) {
+            this.edges = edges;
+            this.labels = labels;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public long getEpoch() {
+            return epoch;
+        }
+
+        @Override
+        public BigDecimal findPath(String vertexA, String vertexB) {
+            int idA = getVertexId(vertexA);
+            int idB = getVertexId(vertexB);
+            int root = labels.get(idA).root;
+            if (root != labels.get(idB).root) {
+                throw new GraphPathNotFoundException(vertexA, vertexB, null);
+            }
+            long version = labels.get(root).version;
+            PathCache.CachedPath cached = pathCache.get(idA, idB, version);
+            BigDecimal path;
+            if (cached != null) {
+                path = cached.getLength();
+            } else {
+                path = new PathSearch(edges, getRegistry().size()).findPath(idA, idB);
+                pathCache.put(idA, idB, version, path);
+            }
+            if (path == null) {
+                throw new GraphPathNotFoundException(vertexA, vertexB, null);
+            }
+            return path;
+        }
+
+        /**
+         * Paths of a component are not changed while the version of its root is the same.
+         */
+        @Override
+        public boolean mayChangePathsFrom(GraphSnapshot previous, String vertex) {
+            if (!(previous instanceof Snapshot)) {
+                return true;
+            }
+            int id = getRegistry().idOf(vertex);
+            if (id == CurrencyRegistry.UNKNOWN || labels.get(id) == null) {
+                return false;
+            }
+            ChunkedArray<ComponentLabel> previousLabels = ((Snapshot) previous).labels;
+            int root = labels.get(id).root;
+            return previousLabels.get(id) == null
+                    || previousLabels.get(id).root != root
+                    || previousLabels.get(root).version != labels.get(root).version;
+        }
+
+        private int getVertexId(String vertex) {
+            int id = getRegistry().idOf(vertex);
+            if (id == CurrencyRegistry.UNKNOWN || labels.get(id) == null) {
+                throw new VertexNotFoundException(vertex, null);
+            }
+            return id;
+        }
+    }
+}
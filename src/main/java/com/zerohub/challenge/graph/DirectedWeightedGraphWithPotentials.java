@@ -0,0 +1,330 @@
+package com.zerohub.challenge.graph;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Graph that keeps only O(V) potentials instead of all paths.
+ * Each component has a spanning tree, and each vertex stores the length of the tree path to the component root,
+ * so the path between two vertexes is the ratio of their potentials.
+ * An edge which closes a cycle takes the place of a tree edge of the cycle,
+ * so the path between the vertexes of the last published edge is always its rate.
+ */
+public class DirectedWeightedGraphWithPotentials extends DirectedWeightedGraph {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Components components = new Components();
+
+    private EdgeList[] spanningTree = new EdgeList[INITIAL_CAPACITY];
+
+    private volatile Potentials potentials = Potentials.empty(getRegistry());
+
+    @Override
+    protected long applyEdges(List<Edge> edges) {
+        long waitStart = getMetrics().start();
+        synchronized (this) {
+            long holdStart = getMetrics().lockAcquired(waitStart);
+            try {
+                return applyLockedEdges(edges);
+            } finally {
+                getMetrics().lockReleased(holdStart);
+            }
+        }
+    }
+
+    /**
+     * Repriced tree edges and edges swapped into the tree only mark their components,
+     * each marked component is counted once for the whole batch.
+     */
+    private long applyLockedEdges(List<Edge> edges) {
+        List<Edge> changedEdges = new ArrayList<>(edges.size());
+        for (Edge edge : edges) {
+            if (!existedEdgeWithWeight(edge.getVertexA(), edge.getVertexB(), edge.getWeightAB())) {
+                addVertex(edge.getVertexA());
+                addVertex(edge.getVertexB());
+                changedEdges.add(edge);
+            }
+        }
+        if (changedEdges.isEmpty()) {
+            return potentials.getEpoch();
+        }
+        Potentials.Writer next = potentials.writer(getRegistry().size());
+        BitSet changedComponents = new BitSet(getRegistry().size());
+        for (Edge edge : changedEdges) {
+            int idA = getRegistry().idOf(edge.getVertexA());
+            int idB = getRegistry().idOf(edge.getVertexB());
+            addTwoWeightedEdges(idA, idB, edge);
+            addRoot(next, idA);
+            addRoot(next, idB);
+            int rootA = components.find(idA);
+            int rootB = components.find(idB);
+            if (rootA != rootB) {
+                boolean changed = changedComponents.get(rootA) || changedComponents.get(rootB);
+                changedComponents.clear(rootA);
+                changedComponents.clear(rootB);
+                int root = mergeComponents(next, idA, idB, edge.getWeightAB());
+                changedComponents.set(root, changed);
+            } else if (idA != idB) {
+                if (getTreeEdges(idA).weightTo(idB) == null) {
+                    removeTreeEdgeOfCycle(idA, idB);
+                }
+                addTreeEdge(idA, idB, edge.getWeightAB());
+                changedComponents.set(rootA);
+            }
+        }
+        for (int root = changedComponents.nextSetBit(0); root >= 0; root = changedComponents.nextSetBit(root + 1)) {
+            countPotentials(next, root);
+        }
+        potentials = next.commit();
+        return potentials.getEpoch();
+    }
+
+    @Override
+    protected long applyRemovals(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        long waitStart = getMetrics().start();
+        synchronized (this) {
+            long holdStart = getMetrics().lockAcquired(waitStart);
+            try {
+                return removeLockedEdges(pairs, updatedBefore, removed);
+            } finally {
+                getMetrics().lockReleased(holdStart);
+            }
+        }
+    }
+
+    /**
+     * Removed edges which close cycles don't change the potentials. Removed tree edges mark their components,
+     * and each marked component gets a new spanning forest from the remaining edges.
+     */
+    private long removeLockedEdges(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        BitSet changedComponents = new BitSet(getRegistry().size());
+        BitSet ends = new BitSet(getRegistry().size());
+        for (VertexPair pair : pairs) {
+            int idA = getRegistry().idOf(pair.getVertexA());
+            int idB = getRegistry().idOf(pair.getVertexB());
+            if (idA == CurrencyRegistry.UNKNOWN || idB == CurrencyRegistry.UNKNOWN
+                    || !removeTwoWeightedEdges(idA, idB, updatedBefore)) {
+                continue;
+            }
+            if (getTreeEdges(idA).weightTo(idB) != null) {
+                changedComponents.set(components.find(idA));
+            }
+            ends.set(idA);
+            ends.set(idB);
+            removed.add(pair);
+        }
+        if (ends.isEmpty()) {
+            return potentials.getEpoch();
+        }
+        Potentials.Writer next = potentials.writer(getRegistry().size());
+        for (int root = changedComponents.nextSetBit(0); root >= 0; root = changedComponents.nextSetBit(root + 1)) {
+            splitComponent(next, root);
+        }
+        potentials = next.commit();
+        for (int vertex = ends.nextSetBit(0); vertex >= 0; vertex = ends.nextSetBit(vertex + 1)) {
+            if (getEdgesOfVertex(vertex).size() == 0) {
+                removeVertex(vertex);
+            }
+        }
+        return potentials.getEpoch();
+    }
+
+    /**
+     * Builds spanning trees of the parts of the component by walking the remaining edges from each part root,
+     * and counts potentials of the parts on the way. Vertexes without edges lose their potentials.
+     *
+     * @param next writer of potentials
+     * @param root root of the component
+     */
+    private void splitComponent(Potentials.Writer next, int root) {
+        long start = getMetrics().start();
+        int size = components.size(root);
+        int[] members = Arrays.copyOf(components.members(root), size);
+        components.remove(root);
+        for (int vertex : members) {
+            if (vertex < spanningTree.length) {
+                spanningTree[vertex] = null;
+            }
+        }
+        BitSet visited = new BitSet(getRegistry().size());
+        int[] queue = new int[size];
+        for (int first : members) {
+            if (visited.get(first)) {
+                continue;
+            }
+            if (getEdgesOfVertex(first).size() == 0) {
+                next.remove(first);
+                continue;
+            }
+            visited.set(first);
+            next.set(first, first, BigDecimal.ONE);
+            queue[0] = first;
+            int tail = 1;
+            for (int head = 0; head < tail; head++) {
+                int vertex = queue[head];
+                EdgeList edges = getEdgesOfVertex(vertex);
+                for (int i = 0; i < edges.size(); i++) {
+                    int child = edges.getTarget(i);
+                    if (!visited.get(child)) {
+                        visited.set(child);
+                        BigDecimal childToParent = getEdgesOfVertex(child).weightTo(vertex);
+                        spanningTree[vertex] = getTreeEdges(vertex).with(child, edges.getWeight(i));
+                        spanningTree[child] = getTreeEdges(child).with(vertex, childToParent);
+                        next.set(child, first, childToParent.multiply(next.getFactor(vertex), MathContext.DECIMAL64));
+                        queue[tail++] = child;
+                    }
+                }
+            }
+            components.add(first, Arrays.copyOf(queue, tail));
+        }
+        getMetrics().recomputed(start, size);
+    }
+
+    /**
+     * One potential is kept for each vertex
+     */
+    @Override
+    public long getPathTableSize() {
+        return getRegistry().count();
+    }
+
+    @Override
+    public synchronized GraphImage image() {
+        return GraphImage.of(this, potentials.getEpoch(), null);
+    }
+
+    @Override
+    protected synchronized void restoreEpoch(long epoch) {
+        potentials = potentials.withEpoch(epoch);
+    }
+
+    @Override
+    public GraphSnapshot snapshot() {
+        return potentials;
+    }
+
+    /**
+     * Adds vertex as a root of new component if it is absent
+     *
+     * @param next   writer of potentials
+     * @param vertex vertex id
+     */
+    private void addRoot(Potentials.Writer next, int vertex) {
+        if (components.add(vertex)) {
+            next.set(vertex, vertex, BigDecimal.ONE);
+        }
+    }
+
+    /**
+     * Joins components of the edge vertexes. Only potentials of the smaller component are recounted:
+     * they are rebased to the root of the larger one through the new edge.
+     *
+     * @param next     writer of potentials
+     * @param vertexA  first vertex of the edge
+     * @param vertexB  second vertex of the edge
+     * @param weightAB weight of the edge
+     * @return root of the joined component
+     */
+    private int mergeComponents(Potentials.Writer next, int vertexA, int vertexB, BigDecimal weightAB) {
+        int rootA = components.find(vertexA);
+        int rootB = components.find(vertexB);
+        int small = components.size(rootA) >= components.size(rootB) ? rootB : rootA;
+        int[] smallMembers = components.members(small);
+        int smallSize = components.size(small);
+        BigDecimal factorA = next.getFactor(vertexA);
+        BigDecimal factorB = next.getFactor(vertexB);
+        BigDecimal rebase = small == rootB
+                ? factorA.divide(factorB.multiply(weightAB, MathContext.DECIMAL64), MathContext.DECIMAL64)
+                : weightAB.multiply(factorB, MathContext.DECIMAL64).divide(factorA, MathContext.DECIMAL64);
+        int root = components.union(rootA, rootB);
+        for (int i = 0; i < smallSize; i++) {
+            int vertex = smallMembers[i];
+            next.set(vertex, root, next.getFactor(vertex).multiply(rebase, MathContext.DECIMAL64));
+        }
+        addTreeEdge(vertexA, vertexB, weightAB);
+        return root;
+    }
+
+    /**
+     * Counts potentials of the whole component again by walking its spanning tree from the root.
+     * It is used when the weight of a tree edge is changed.
+     *
+     * @param next writer of potentials
+     * @param root root of the component
+     */
+    private void countPotentials(Potentials.Writer next, int root) {
+        int size = components.size(root);
+        int[] queue = new int[size];
+        int[] parents = new int[size];
+        queue[0] = root;
+        parents[0] = root;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int vertex = queue[head];
+            BigDecimal factor = next.getFactor(vertex);
+            EdgeList edges = getTreeEdges(vertex);
+            for (int i = 0; i < edges.size(); i++) {
+                int child = edges.getTarget(i);
+                if (child != parents[head]) {
+                    BigDecimal childToParent = getTreeEdges(child).weightTo(vertex);
+                    next.set(child, root, childToParent.multiply(factor, MathContext.DECIMAL64));
+                    queue[tail] = child;
+                    parents[tail] = vertex;
+                    tail++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the edge of the tree path between the vertexes which ends at the second vertex,
+     * so the edge between them can join the tree without making a cycle.
+     * The choice depends only on the tree, so a restarted graph which replays the same writes
+     * gets the same tree.
+     *
+     * @param vertexA first vertex of the edge which closes the cycle
+     * @param vertexB second vertex of the edge which closes the cycle
+     */
+    private void removeTreeEdgeOfCycle(int vertexA, int vertexB) {
+        int[] parents = new int[getRegistry().size()];
+        Arrays.fill(parents, CurrencyRegistry.UNKNOWN);
+        int[] queue = new int[components.size(components.find(vertexA))];
+        parents[vertexA] = vertexA;
+        queue[0] = vertexA;
+        int tail = 1;
+        for (int head = 0; head < tail && parents[vertexB] == CurrencyRegistry.UNKNOWN; head++) {
+            int vertex = queue[head];
+            EdgeList edges = getTreeEdges(vertex);
+            for (int i = 0; i < edges.size(); i++) {
+                int child = edges.getTarget(i);
+                if (parents[child] == CurrencyRegistry.UNKNOWN) {
+                    parents[child] = vertex;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        int parent = parents[vertexB];
+        spanningTree[vertexB] = getTreeEdges(vertexB).without(parent);
+        spanningTree[parent] = getTreeEdges(parent).without(vertexB);
+    }
+
+    private EdgeList getTreeEdges(int vertex) {
+        EdgeList edges = vertex < spanningTree.length ? spanningTree[vertex] : null;
+        return edges == null ? EdgeList.EMPTY : edges;
+    }
+
+    private void addTreeEdge(int vertexA, int vertexB, BigDecimal weightAB) {
+        int maxVertex = Math.max(vertexA, vertexB);
+        if (maxVertex >= spanningTree.length) {
+            spanningTree = Arrays.copyOf(spanningTree, Math.max(maxVertex + 1, spanningTree.length * 2));
+        }
+        spanningTree[vertexA] = getTreeEdges(vertexA).with(vertexB, weightAB);
+        spanningTree[vertexB] = getTreeEdges(vertexB)
+                .with(vertexA, BigDecimal.ONE.divide(weightAB, MathContext.DECIMAL64));
+    }
+}
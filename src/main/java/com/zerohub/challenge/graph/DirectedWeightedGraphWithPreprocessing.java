@@ -1,121 +1,613 @@
 package com.zerohub.challenge.graph;
 
-import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
-import com.zerohub.challenge.utils.DecimalUtils;
-import lombok.Data;
-
 import java.math.BigDecimal;
 import java.math.MathContext;
-import java.math.RoundingMode;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Graph that counts all paths after each added edge, so finding a path is a single read.
+ * Paths follow {@link PathSearch}: the fewest edges first, then the largest length.
+ * Writers lock only components of their edges, so publishes into unrelated components are counted in parallel.
+ */
 public class DirectedWeightedGraphWithPreprocessing extends DirectedWeightedGraph {
 
-    @Data
-    private static class PathInfo {
-        private final BigDecimal pathLength;
-        private final int edgesCount;
+    private final AtomicReference<PathMatrix> preprocessedPaths = new AtomicReference<>(PathMatrix.empty(getRegistry()));
+
+    private final ComponentLocks componentLocks = new ComponentLocks();
+
+    private final ForkJoinPool mergePool;
+
+    private final long parallelMergeThreshold;
+
+    /**
+     * Graph which counts paths only by publishing threads
+     */
+    public DirectedWeightedGraphWithPreprocessing() {
+        this(null, Long.MAX_VALUE);
     }
 
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, PathInfo>> preprocessedPaths
-            = new ConcurrentHashMap<>();
+    /**
+     * @param mergePool              pool counting paths of large merges
+     * @param parallelMergeThreshold min count of new paths of a merge counted by the pool
+     */
+    public DirectedWeightedGraphWithPreprocessing(ForkJoinPool mergePool, long parallelMergeThreshold) {
+        this.mergePool = mergePool;
+        this.parallelMergeThreshold = parallelMergeThreshold;
+    }
 
+    /**
+     * Ids of the vertexes are checked again when their components are locked: a writer removing the last edge
+     * of a vertex releases its id under the same lock, so ids which are still registered can't be released
+     * until the write is finished. Otherwise the vertexes are registered and locked again.
+     */
     @Override
-    public synchronized void addEdge(String vertexA, String vertexB, BigDecimal weightAB) {
-        if (!existedEdgeWithWeight(vertexA, vertexB, weightAB)) {
-            addVertex(vertexA);
-            addVertex(vertexB);
-            addTwoWeightedEdges(vertexA, vertexB, weightAB);
-            countPathsDynamically(vertexA, vertexB, weightAB);
+    protected long applyEdges(List<Edge> edges) {
+        long waitStart = getMetrics().start();
+        while (true) {
+            int[] vertexes = new int[edges.size() * 2];
+            for (int i = 0; i < edges.size(); i++) {
+                vertexes[2 * i] = addVertex(edges.get(i).getVertexA());
+                vertexes[2 * i + 1] = addVertex(edges.get(i).getVertexB());
+            }
+            int[] roots = componentLocks.lock(vertexes);
+            if (!areRegistered(edges, vertexes)) {
+                componentLocks.unlock(roots);
+                continue;
+            }
+            long holdStart = getMetrics().lockAcquired(waitStart);
+            try {
+                return applyLockedEdges(edges, vertexes);
+            } finally {
+                componentLocks.unlock(roots);
+                getMetrics().lockReleased(holdStart);
+            }
+        }
+    }
+
+    private boolean areRegistered(List<Edge> edges, int[] vertexes) {
+        for (int i = 0; i < edges.size(); i++) {
+            if (getRegistry().idOf(edges.get(i).getVertexA()) != vertexes[2 * i]
+                    || getRegistry().idOf(edges.get(i).getVertexB()) != vertexes[2 * i + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count paths of the edges. Components of the edges are locked, so their rows are changed only by this writer.
+     *
+     * @param vertexes ids of the first and the second vertex of each edge
+     */
+    private long applyLockedEdges(List<Edge> edges, int[] vertexes) {
+        List<Integer> changedEdges = new ArrayList<>(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            if (!existedEdgeWithWeight(edge.getVertexA(), edge.getVertexB(), edge.getWeightAB())) {
+                changedEdges.add(i);
+            }
+        }
+        if (changedEdges.isEmpty()) {
+            return preprocessedPaths.get().getEpoch();
         }
+        PathMatrix.Writer paths = preprocessedPaths.get().writer(getRegistry().size());
+        List<int[]> repricedEdges = new ArrayList<>();
+        for (int i : changedEdges) {
+            Edge edge = edges.get(i);
+            int idA = vertexes[2 * i];
+            int idB = vertexes[2 * i + 1];
+            addLoop(paths, idA);
+            addLoop(paths, idB);
+            if (getEdgesOfVertex(idA).weightTo(idB) != null) {
+                addTwoWeightedEdges(idA, idB, edge);
+                repricedEdges.add(new int[]{idA, idB});
+                continue;
+            }
+            countRepricedPaths(paths, repricedEdges);
+            repricedEdges.clear();
+            addTwoWeightedEdges(idA, idB, edge);
+            if (paths.getRow(idA).contains(idB)) {
+                countChangedPaths(paths, idA, idB);
+            } else {
+                countPathsDynamically(paths, idA, idB, edge.getWeightAB());
+                componentLocks.union(componentLocks.find(idA), componentLocks.find(idB));
+            }
+        }
+        countRepricedPaths(paths, repricedEdges);
+        return commit(paths);
     }
 
     @Override
-    public BigDecimal findPath(String vertexA, String vertexB) {
-        checkExistedVertex(vertexA);
-        checkExistedVertex(vertexB);
-        PathInfo path = preprocessedPaths.get(vertexA).get(vertexB);
-        if (path == null) {
-            throw new GraphPathNotFoundException(vertexA, vertexB, null);
+    protected long applyRemovals(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        int[] vertexes = new int[pairs.size() * 2];
+        int count = 0;
+        for (VertexPair pair : pairs) {
+            int idA = getRegistry().idOf(pair.getVertexA());
+            int idB = getRegistry().idOf(pair.getVertexB());
+            if (idA != CurrencyRegistry.UNKNOWN && idB != CurrencyRegistry.UNKNOWN) {
+                vertexes[count++] = idA;
+                vertexes[count++] = idB;
+            }
+        }
+        if (count == 0) {
+            return preprocessedPaths.get().getEpoch();
+        }
+        long waitStart = getMetrics().start();
+        int[] roots = componentLocks.lock(Arrays.copyOf(vertexes, count));
+        long holdStart = getMetrics().lockAcquired(waitStart);
+        try {
+            return removeLockedEdges(pairs, updatedBefore, removed);
+        } finally {
+            componentLocks.unlock(roots);
+            getMetrics().lockReleased(holdStart);
         }
-        return path.pathLength;
     }
 
     /**
-     * Adds new vertex. Also adds path with loop to the vertex (path from vertex to itself is always 1)
+     * Counts paths after removing edges. Only a path which went through a removed edge is changed,
+     * and such path I-J has no fewer edges than I-A-B-J or I-B-A-J, so affected rows are found
+     * by the same check as for repricing, before the rows are changed. Affected rows are searched again
+     * from scratch, so paths to vertexes which are not reachable anymore disappear.
+     * Then components are split by the new rows, and vertexes without edges are removed.
+     */
+    private long removeLockedEdges(List<VertexPair> pairs, long updatedBefore, List<VertexPair> removed) {
+        PathMatrix.Writer paths = preprocessedPaths.get().writer(getRegistry().size());
+        BitSet affected = new BitSet(getRegistry().size());
+        BitSet ends = new BitSet(getRegistry().size());
+        BitSet changedRoots = new BitSet(getRegistry().size());
+        for (VertexPair pair : pairs) {
+            int idA = getRegistry().idOf(pair.getVertexA());
+            int idB = getRegistry().idOf(pair.getVertexB());
+            if (idA == CurrencyRegistry.UNKNOWN || idB == CurrencyRegistry.UNKNOWN
+                    || !removeTwoWeightedEdges(idA, idB, updatedBefore)) {
+                continue;
+            }
+            findAffectedRows(paths, idA, idB, affected);
+            ends.set(idA);
+            ends.set(idB);
+            changedRoots.set(componentLocks.find(idA));
+            removed.add(pair);
+        }
+        if (ends.isEmpty()) {
+            return preprocessedPaths.get().getEpoch();
+        }
+        long start = getMetrics().start();
+        long recomputed = 0;
+        PathSearch search = new PathSearch(getGraphEdges(), getRegistry().size());
+        for (int vertex = affected.nextSetBit(0); vertex >= 0; vertex = affected.nextSetBit(vertex + 1)) {
+            if (getEdgesOfVertex(vertex).size() == 0) {
+                paths.remove(vertex);
+                continue;
+            }
+            paths.reset(vertex);
+            search.findPaths(vertex);
+            for (int i = 0; i < search.getReachedCount(); i++) {
+                int reached = search.getReached(i);
+                paths.set(vertex, reached, search.getLength(reached), search.getEdgesCount(reached));
+            }
+            recomputed += search.getReachedCount();
+        }
+        getMetrics().recomputed(start, recomputed);
+        long epoch = commit(paths);
+        for (int root = changedRoots.nextSetBit(0); root >= 0; root = changedRoots.nextSetBit(root + 1)) {
+            splitComponent(root);
+        }
+        for (int vertex = ends.nextSetBit(0); vertex >= 0; vertex = ends.nextSetBit(vertex + 1)) {
+            if (getEdgesOfVertex(vertex).size() == 0) {
+                removeVertex(vertex);
+            }
+        }
+        return epoch;
+    }
+
+    /**
+     * Split the locked component by the committed rows: vertexes of one part have paths to each other.
+     * The old root stays the root of its part, so its lock still guards the part.
+     */
+    private void splitComponent(int root) {
+        PathMatrix matrix = preprocessedPaths.get();
+        int[] members = componentLocks.members(root);
+        for (int i = 0; i < members.length; i++) {
+            if (members[i] == root) {
+                members[i] = members[0];
+                members[0] = root;
+            }
+        }
+        BitSet assigned = new BitSet(getRegistry().size());
+        List<int[]> parts = new ArrayList<>();
+        for (int first : members) {
+            PathMatrix.Row row = matrix.getRow(first);
+            if (assigned.get(first) || row == null) {
+                continue;
+            }
+            int[] part = new int[members.length];
+            int size = 0;
+            part[size++] = first;
+            for (int member : members) {
+                if (member != first && row.contains(member)) {
+                    part[size++] = member;
+                    assigned.set(member);
+                }
+            }
+            parts.add(Arrays.copyOf(part, size));
+        }
+        componentLocks.split(root, parts);
+    }
+
+    /**
+     * Publish rows of the writer. A writer of another component may publish in the meantime,
+     * then the rows are applied again to its matrix.
      *
-     * @param vertex vertex id
+     * @return epoch of published matrix
+     */
+    private long commit(PathMatrix.Writer paths) {
+        PathMatrix current;
+        PathMatrix next;
+        do {
+            current = preprocessedPaths.get();
+            next = paths.commit(current);
+        } while (!preprocessedPaths.compareAndSet(current, next));
+        return next.getEpoch();
+    }
+
+    /**
+     * Readers never wait for the writer: they get the matrix published by the last finished write,
+     * while the next one is built aside.
      */
     @Override
-    protected void addVertex(String vertex) {
-        super.addVertex(vertex);
-        preprocessedPaths.putIfAbsent(vertex, new ConcurrentHashMap<>());
-        preprocessedPaths.get(vertex).put(vertex, new PathInfo(BigDecimal.ONE, 0));
+    public GraphSnapshot snapshot() {
+        return preprocessedPaths.get();
     }
 
     /**
-     * After each adding an edge this graph always counts all paths between all vertexes.
+     * Rows are allocated for all vertexes of the component, so the size is the sum of row capacities
+     */
+    @Override
+    public long getPathTableSize() {
+        PathMatrix paths = preprocessedPaths.get();
+        long size = 0;
+        for (int id = 0; id < paths.rowCount(); id++) {
+            PathMatrix.Row row = paths.getRow(id);
+            if (row != null) {
+                size += row.capacity();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Locks all components, so the edges and the paths of the image are of the same epoch
+     */
+    @Override
+    public GraphImage image() {
+        int[] vertexes = new int[getRegistry().size()];
+        for (int id = 0; id < vertexes.length; id++) {
+            vertexes[id] = id;
+        }
+        int[] roots = componentLocks.lock(vertexes);
+        try {
+            PathMatrix paths = preprocessedPaths.get();
+            return GraphImage.of(this, paths.getEpoch(), paths);
+        } finally {
+            componentLocks.unlock(roots);
+        }
+    }
+
+    /**
+     * Takes counted paths from the image, so only components are rebuilt from the edges
+     */
+    @Override
+    public void restore(GraphImage image) {
+        if (!image.hasPaths()) {
+            super.restore(image);
+            return;
+        }
+        restoreCurrencies(image);
+        restoreEdges(image.getEdges());
+        for (int id = 0; id < image.getCurrencyCount(); id++) {
+            if (image.getCurrency(id) == null) {
+                continue;
+            }
+            EdgeList vertexEdges = image.getEdges(id);
+            componentLocks.join(id, id);
+            for (int i = 0; i < vertexEdges.size(); i++) {
+                componentLocks.join(id, vertexEdges.getTarget(i));
+            }
+        }
+        preprocessedPaths.set(image.getPaths().withRegistry(getRegistry()));
+    }
+
+    @Override
+    protected void restoreEpoch(long epoch) {
+        preprocessedPaths.set(preprocessedPaths.get().withEpoch(epoch));
+    }
+
+    /**
+     * Adds path with loop to the vertex (path from vertex to itself is always 1)
+     *
+     * @param paths  writer of paths
+     * @param vertex vertex id
+     */
+    private void addLoop(PathMatrix.Writer paths, int vertex) {
+        PathMatrix.Row row = paths.getRow(vertex);
+        if (row == null || !row.contains(vertex)) {
+            paths.set(vertex, vertex, BigDecimal.ONE, 0);
+        }
+    }
+
+    /**
+     * Counts paths after adding an edge between two components.
+     * Any new path goes through the new edge, and paths inside the components are not changed,
+     * so the paths are the cross product of paths to the first vertex and from the second one.
      * This algorithm is dynamic and uses previous results of counting path distances,
-     * so it works quite fast with O(V*V) difficulty - but it can be optimized in future.
+     * so it works with O(|A|*|B|) difficulty where A and B are the joined components.
+     * Large merges are split by rows between threads of the merge pool. Each row is written by one task,
+     * and rows are copied before, so tasks write into the next matrix without locks.
      *
+     * @param paths    writer of paths
      * @param vertexA  first vertex of the edge that was added
      * @param vertexB  second vertex of the edge that was added
      * @param weightAB weight of added edge
      */
-    private void countPathsDynamically(String vertexA, String vertexB, BigDecimal weightAB) {
-        ConcurrentHashMap<String, PathInfo> pathsFromA =
-                preprocessedPaths.getOrDefault(vertexA, new ConcurrentHashMap<>());
-        ConcurrentHashMap<String, PathInfo> pathsFromB =
-                preprocessedPaths.getOrDefault(vertexB, new ConcurrentHashMap<>());
-        for (var pathA : pathsFromA.entrySet()) {
-            for (var pathB : pathsFromB.entrySet()) {
-                addPath(pathA.getKey(),
-                        pathB.getKey(),
-                        DecimalUtils.getReverseNumber(pathA.getValue().pathLength)
-                                .multiply(pathB.getValue().pathLength, MathContext.DECIMAL64)
-                                .multiply(weightAB, MathContext.DECIMAL64),
-                        pathA.getValue().getEdgesCount() + pathB.getValue().getEdgesCount() + 1);
+    private void countPathsDynamically(PathMatrix.Writer paths, int vertexA, int vertexB, BigDecimal weightAB) {
+        long start = getMetrics().start();
+        BigDecimal weightBA = getEdgesOfVertex(vertexB).weightTo(vertexA);
+        int[] verticesA = getComponent(paths, vertexA);
+        int[] verticesB = getComponent(paths, vertexB);
+        PathMatrix.Row pathsFromA = paths.getRow(vertexA);
+        PathMatrix.Row pathsFromB = paths.getRow(vertexB);
+        BigDecimal[] lengthsToB = new BigDecimal[verticesA.length];
+        BigDecimal[] lengthsFromA = new BigDecimal[verticesA.length];
+        for (int a = 0; a < verticesA.length; a++) {
+            lengthsToB[a] = paths.getRow(verticesA[a]).getLength(vertexA).multiply(weightAB, MathContext.DECIMAL64);
+            lengthsFromA[a] = pathsFromA.getLength(verticesA[a]);
+        }
+        BigDecimal[] lengthsToA = new BigDecimal[verticesB.length];
+        BigDecimal[] lengthsFromB = new BigDecimal[verticesB.length];
+        for (int b = 0; b < verticesB.length; b++) {
+            lengthsToA[b] = paths.getRow(verticesB[b]).getLength(vertexB).multiply(weightBA, MathContext.DECIMAL64);
+            lengthsFromB[b] = pathsFromB.getLength(verticesB[b]);
+        }
+        int[] edgesCountA = new int[verticesA.length];
+        for (int a = 0; a < verticesA.length; a++) {
+            edgesCountA[a] = pathsFromA.getEdgesCount(verticesA[a]);
+        }
+        int[] edgesCountB = new int[verticesB.length];
+        for (int b = 0; b < verticesB.length; b++) {
+            edgesCountB[b] = pathsFromB.getEdgesCount(verticesB[b]);
+        }
+        var pathsAB = new CrossProduct(paths, verticesA, lengthsToB, edgesCountA, verticesB, lengthsFromB, edgesCountB);
+        var pathsBA = new CrossProduct(paths, verticesB, lengthsToA, edgesCountB, verticesA, lengthsFromA, edgesCountA);
+        long pairs = (long) verticesA.length * verticesB.length;
+        if (mergePool == null || pairs < parallelMergeThreshold) {
+            pathsAB.count(0, verticesA.length);
+            pathsBA.count(0, verticesB.length);
+        } else {
+            for (int vertex : verticesA) {
+                paths.prepare(vertex);
+            }
+            for (int vertex : verticesB) {
+                paths.prepare(vertex);
+            }
+            mergePool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(new CrossProductTask(pathsAB, 0, verticesA.length),
+                            new CrossProductTask(pathsBA, 0, verticesB.length));
+                }
+            });
+        }
+        getMetrics().recomputed(start, 2 * pairs);
+    }
+
+    /**
+     * New paths from vertexes of one merged component to vertexes of the other one
+     */
+    private static final class CrossProduct {
+        private final PathMatrix.Writer paths;
+        private final int[] rows;
+        private final BigDecimal[] lengthsToEdge;
+        private final int[] edgesCountToEdge;
+        private final int[] columns;
+        private final BigDecimal[] lengthsFromEdge;
+        private final int[] edgesCountFromEdge;
+
+        private CrossProduct(PathMatrix.Writer paths,
+                             int[] rows, BigDecimal[] lengthsToEdge, int[] edgesCountToEdge,
+                             int[] columns, BigDecimal[] lengthsFromEdge, int[] edgesCountFromEdge) {
+            this.paths = paths;
+            this.rows = rows;
+            this.lengthsToEdge = lengthsToEdge;
+            this.edgesCountToEdge = edgesCountToEdge;
+            this.columns = columns;
+            this.lengthsFromEdge = lengthsFromEdge;
+            this.edgesCountFromEdge = edgesCountFromEdge;
+        }
+
+        private void count(int fromRow, int toRow) {
+            for (int r = fromRow; r < toRow; r++) {
+                for (int c = 0; c < columns.length; c++) {
+                    paths.set(rows[r], columns[c], lengthsToEdge[r].multiply(lengthsFromEdge[c], MathContext.DECIMAL64),
+                            edgesCountToEdge[r] + edgesCountFromEdge[c] + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a range of rows of the cross product, the range is split until it has few paths
+     */
+    private static final class CrossProductTask extends RecursiveAction {
+        private static final int MIN_TASK_PATHS = 16_384;
+
+        private final CrossProduct product;
+        private final int fromRow;
+        private final int toRow;
+
+        private CrossProductTask(CrossProduct product, int fromRow, int toRow) {
+            this.product = product;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow < 2 || (long) (toRow - fromRow) * product.columns.length <= MIN_TASK_PATHS) {
+                product.count(fromRow, toRow);
+            } else {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new CrossProductTask(product, fromRow, middle), new CrossProductTask(product, middle, toRow));
             }
         }
-        addPath(vertexA, vertexB, weightAB, 1);
     }
 
     /**
-     * Adds new path distance to memory
+     * Counts paths after adding an edge inside a component.
+     * The new edge may make paths shorter, so paths which may go through the edge are counted again from edges.
+     * The path I-J may go through the edge A-B when I-A-B-J or I-B-A-J has no more edges than the stored path I-J.
+     * This check uses only stored edges counts, and only rows having such paths are searched again,
+     * so unrelated rows of the component and other components are not touched.
      *
-     * @param vertexA    first vertex of the path
-     * @param vertexB    last vertex of the path
-     * @param weightAB   distance of the path
-     * @param edgesCount count of edges in the path
+     * @param paths   writer of paths
+     * @param vertexA first vertex of the added edge
+     * @param vertexB second vertex of the added edge
      */
-    private void addPath(String vertexA, String vertexB, BigDecimal weightAB, int edgesCount) {
-        if (!vertexA.equals(vertexB) &&
-                (preprocessedPaths.get(vertexA) == null ||
-                        preprocessedPaths.get(vertexA).get(vertexB) == null ||
-                        pathShouldBeUpdated(
-                                preprocessedPaths.get(vertexA).get(vertexB),
-                                new PathInfo(weightAB, edgesCount)))) {
-            preprocessedPaths.get(vertexA).put(vertexB,
-                    new PathInfo(weightAB, edgesCount));
-            preprocessedPaths.get(vertexB).put(vertexA,
-                    new PathInfo(DecimalUtils.getReverseNumber(weightAB), edgesCount));
+    private void countChangedPaths(PathMatrix.Writer paths, int vertexA, int vertexB) {
+        BitSet affected = new BitSet(getRegistry().size());
+        findAffectedRows(paths, vertexA, vertexB, affected);
+        PathSearch search = new PathSearch(getGraphEdges(), getRegistry().size());
+        for (int vertex = affected.nextSetBit(0); vertex >= 0; vertex = affected.nextSetBit(vertex + 1)) {
+            search.findPaths(vertex);
+            for (int i = 1; i < search.getReachedCount(); i++) {
+                int reached = search.getReached(i);
+                paths.set(vertex, reached, search.getLength(reached), search.getEdgesCount(reached));
+            }
         }
     }
 
     /**
-     * Decides should we update path distance value because of adding new edge.
-     * This method always uses the shortest path.
+     * Counts paths after repricing edges inside components. Repricing doesn't change edges counts,
+     * so a path I-J goes through the edge A-B only when A and B are in adjacent layers of the search from I.
+     * Only the length to the farther end of the edge is counted again from its previous layer,
+     * and only lengths which changed are passed to the next layers, so repricing an edge of a hub
+     * changes one path of most rows instead of searching every row again.
+     * Lengths are counted the same way as {@link PathSearch}: the largest one over the previous layer.
      *
-     * @param oldPath saved path before adding the edge
-     * @param newPath new path that is appeared because of adding new edge
-     * @return should we update new value for path distance or not
-     */
-    private boolean pathShouldBeUpdated(PathInfo oldPath, PathInfo newPath) {
-        BigDecimal oldWeight = oldPath.pathLength;
-        BigDecimal newWeight = newPath.pathLength;
-        return newWeight.add(oldWeight.negate())
-                .setScale(4, RoundingMode.HALF_UP)
-                .compareTo(BigDecimal.ZERO) > 0;
+     * @param paths         writer of paths
+     * @param repricedEdges pairs of ids of repriced edges, all of them are inside components
+     */
+    private void countRepricedPaths(PathMatrix.Writer paths, List<int[]> repricedEdges) {
+        if (repricedEdges.isEmpty()) {
+            return;
+        }
+        int[] queue = new int[getRegistry().size()];
+        int[] queuedBy = new int[getRegistry().size()];
+        int pass = 0;
+        for (int[] edge : repricedEdges) {
+            for (int vertex : getComponent(paths, edge[0])) {
+                PathMatrix.Row row = paths.getRow(vertex);
+                int edgesToA = row.getEdgesCount(edge[0]);
+                int edgesToB = row.getEdgesCount(edge[1]);
+                if (Math.abs(edgesToA - edgesToB) != 1) {
+                    continue;
+                }
+                paths.prepare(vertex);
+                row = paths.getRow(vertex);
+                pass++;
+                queue[0] = edgesToA < edgesToB ? edge[1] : edge[0];
+                queuedBy[queue[0]] = pass;
+                int tail = 1;
+                for (int head = 0; head < tail; head++) {
+                    int target = queue[head];
+                    int edgesCount = row.getEdgesCount(target);
+                    BigDecimal length = longestPath(row, target, edgesCount);
+                    if (length.compareTo(row.getLength(target)) == 0) {
+                        continue;
+                    }
+                    paths.set(vertex, target, length, edgesCount);
+                    EdgeList edges = getEdgesOfVertex(target);
+                    for (int i = 0; i < edges.size(); i++) {
+                        int next = edges.getTarget(i);
+                        if (queuedBy[next] != pass && row.getEdgesCount(next) == edgesCount + 1) {
+                            queuedBy[next] = pass;
+                            queue[tail++] = next;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param row        paths from the first vertex with lengths of the previous layer already counted
+     * @param target     id of the last vertex
+     * @param edgesCount count of edges of the path to the last vertex
+     * @return the largest length over paths from vertexes of the previous layer
+     */
+    private BigDecimal longestPath(PathMatrix.Row row, int target, int edgesCount) {
+        EdgeList edges = getEdgesOfVertex(target);
+        BigDecimal longest = null;
+        for (int i = 0; i < edges.size(); i++) {
+            int previous = edges.getTarget(i);
+            if (row.getEdgesCount(previous) == edgesCount - 1) {
+                BigDecimal length = row.getLength(previous)
+                        .multiply(getEdgesOfVertex(previous).weightTo(target), MathContext.DECIMAL64);
+                if (longest == null || length.compareTo(longest) > 0) {
+                    longest = length;
+                }
+            }
+        }
+        return longest;
+    }
+
+    private void findAffectedRows(PathMatrix.Writer paths, int vertexA, int vertexB, BitSet affected) {
+        int[] component = getComponent(paths, vertexA);
+        PathMatrix.Row pathsFromA = paths.getRow(vertexA);
+        PathMatrix.Row pathsFromB = paths.getRow(vertexB);
+        int[] edgesCountFromA = new int[component.length];
+        int[] edgesCountFromB = new int[component.length];
+        for (int j = 0; j < component.length; j++) {
+            edgesCountFromA[j] = pathsFromA.getEdgesCount(component[j]);
+            edgesCountFromB[j] = pathsFromB.getEdgesCount(component[j]);
+        }
+        for (int vertex : component) {
+            if (affected.get(vertex)) {
+                continue;
+            }
+            PathMatrix.Row row = paths.getRow(vertex);
+            int throughA = row.getEdgesCount(vertexA) + 1;
+            int throughB = row.getEdgesCount(vertexB) + 1;
+            for (int j = 0; j < component.length; j++) {
+                int stored = row.getEdgesCount(component[j]);
+                if (throughA + edgesCountFromB[j] <= stored || throughB + edgesCountFromA[j] <= stored) {
+                    affected.set(vertex);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param paths  writer of paths
+     * @param vertex vertex id
+     * @return ids of all vertexes having path from the vertex
+     */
+    private int[] getComponent(PathMatrix.Writer paths, int vertex) {
+        PathMatrix.Row row = paths.getRow(vertex);
+        int[] component = new int[row.capacity()];
+        int size = 0;
+        for (int to = 0; to < row.capacity(); to++) {
+            if (row.contains(to)) {
+                component[size++] = to;
+            }
+        }
+        return Arrays.copyOf(component, size);
     }
 
 }
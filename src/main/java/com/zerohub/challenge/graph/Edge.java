@@ -0,0 +1,60 @@
+package com.zerohub.challenge.graph;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Edge with both weights. The reversed weight is counted when the edge is created,
+ * so a batch with an invalid weight fails before any of its edges changes the graph.
+ */
+@Value
+public class Edge {
+
+    String vertexA;
+    String vertexB;
+    BigDecimal weightAB;
+    BigDecimal weightBA;
+
+    /**
+     * @param vertexA  first vertex of the edge
+     * @param vertexB  last vertex of the edge
+     * @param weightAB weight of the edge, the reversed weight is 1 / weightAB with 16 significant digits
+     * @throws IllegalArgumentException when the weight is not positive
+     */
+    public Edge(String vertexA, String vertexB, BigDecimal weightAB) {
+        if (weightAB.signum() <= 0) {
+            throw new IllegalArgumentException("Weight of edge " + vertexA + "-" + vertexB + " is not positive: "
+                    + weightAB);
+        }
+        this.vertexA = vertexA;
+        this.vertexB = vertexB;
+        this.weightAB = weightAB;
+        this.weightBA = BigDecimal.ONE.divide(weightAB, MathContext.DECIMAL64);
+    }
+
+    /**
+     * Keep only the last edge for each pair of vertexes. A-B and B-A are the same pair.
+     *
+     * @param edges edges in order of publishing
+     * @return edges in order of the first appearance of their pair
+     */
+    public static List<Edge> coalesce(List<Edge> edges) {
+        if (edges.size() < 2) {
+            return edges;
+        }
+        Map<List<String>, Edge> lastEdges = new LinkedHashMap<>();
+        for (Edge edge : edges) {
+            List<String> pair = edge.vertexA.compareTo(edge.vertexB) <= 0
+                    ? List.of(edge.vertexA, edge.vertexB)
+                    : List.of(edge.vertexB, edge.vertexA);
+            lastEdges.put(pair, edge);
+        }
+        return new ArrayList<>(lastEdges.values());
+    }
+}
@@ -0,0 +1,94 @@
+package com.zerohub.challenge.graph;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Immutable list of outgoing edges of one vertex.
+ * Vertex degree is small, so the list is stored in two parallel arrays and is copied on each change.
+ */
+public final class EdgeList {
+
+    public static final EdgeList EMPTY = new EdgeList(new int[0], new BigDecimal[0]);
+
+    private final int[] targets;
+    private final BigDecimal[] weights;
+
+    private EdgeList(int[] targets, BigDecimal[] weights) {
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int size() {
+        return targets.length;
+    }
+
+    public int getTarget(int index) {
+        return targets[index];
+    }
+
+    public BigDecimal getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Get weight of the edge to the vertex
+     *
+     * @param target id of the last vertex of the edge
+     * @return weight of the edge or null when there is no such edge
+     */
+    public BigDecimal weightTo(int target) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == target) {
+                return weights[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy the list with added or replaced edge
+     *
+     * @param target id of the last vertex of the edge
+     * @param weight weight of the edge
+     * @return new list of edges
+     */
+    public EdgeList with(int target, BigDecimal weight) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == target) {
+                BigDecimal[] newWeights = weights.clone();
+                newWeights[i] = weight;
+                return new EdgeList(targets, newWeights);
+            }
+        }
+        int[] newTargets = Arrays.copyOf(targets, targets.length + 1);
+        BigDecimal[] newWeights = Arrays.copyOf(weights, weights.length + 1);
+        newTargets[targets.length] = target;
+        newWeights[weights.length] = weight;
+        return new EdgeList(newTargets, newWeights);
+    }
+
+    /**
+     * Copy the list without the edge
+     *
+     * @param target id of the last vertex of the edge
+     * @return new list of edges, {@link #EMPTY} when it was the last edge, or this list when there is no such edge
+     */
+    public EdgeList without(int target) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == target) {
+                if (targets.length == 1) {
+                    return EMPTY;
+                }
+                int[] newTargets = new int[targets.length - 1];
+                BigDecimal[] newWeights = new BigDecimal[weights.length - 1];
+                System.arraycopy(targets, 0, newTargets, 0, i);
+                System.arraycopy(targets, i + 1, newTargets, i, targets.length - i - 1);
+                System.arraycopy(weights, 0, newWeights, 0, i);
+                System.arraycopy(weights, i + 1, newWeights, i, weights.length - i - 1);
+                return new EdgeList(newTargets, newWeights);
+            }
+        }
+        return this;
+    }
+}
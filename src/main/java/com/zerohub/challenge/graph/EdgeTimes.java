@@ -0,0 +1,74 @@
+package com.zerohub.challenge.graph;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last update times of the edges kept in order of updating, so expired edges are taken from the head
+ * without scanning live ones. Both directions of an edge share one entry.
+ */
+final class EdgeTimes {
+
+    static final long NEVER = Long.MAX_VALUE;
+
+    private final LinkedHashMap<Long, Long> times = new LinkedHashMap<>();
+
+    /**
+     * Move the edge to the tail with a new update time
+     *
+     * @param vertexA id of the first vertex
+     * @param vertexB id of the second vertex
+     * @param time    update time in milliseconds
+     */
+    synchronized void touch(int vertexA, int vertexB, long time) {
+        Long key = key(vertexA, vertexB);
+        times.remove(key);
+        times.put(key, time);
+    }
+
+    /**
+     * @return update time of the edge or {@link #NEVER} when it has no time
+     */
+    synchronized long get(int vertexA, int vertexB) {
+        Long time = times.get(key(vertexA, vertexB));
+        return time == null ? NEVER : time;
+    }
+
+    synchronized void remove(int vertexA, int vertexB) {
+        times.remove(key(vertexA, vertexB));
+    }
+
+    /**
+     * @param before update time limit in milliseconds
+     * @return keys of edges updated before the limit in order of updating, see {@link #first(long)}
+     */
+    synchronized long[] updatedBefore(long before) {
+        long[] expired = new long[16];
+        int count = 0;
+        for (Map.Entry<Long, Long> entry : times.entrySet()) {
+            if (entry.getValue() >= before) {
+                break;
+            }
+            if (count == expired.length) {
+                expired = Arrays.copyOf(expired, count * 2);
+            }
+            expired[count++] = entry.getKey();
+        }
+        return Arrays.copyOf(expired, count);
+    }
+
+    static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int second(long key) {
+        return (int) key;
+    }
+
+    private static long key(int vertexA, int vertexB) {
+        int low = Math.min(vertexA, vertexB);
+        int high = Math.max(vertexA, vertexB);
+        return ((long) low << 32) | high;
+    }
+}
@@ -0,0 +1,98 @@
+package com.zerohub.challenge.graph;
+
+/**
+ * Consistent copy of the graph state of one epoch, used to save the graph and restore it on startup.
+ * The image shares immutable edges and paths with the graph, so taking it copies only currency codes.
+ */
+public final class GraphImage {
+
+    private final long epoch;
+    private final String[] currencies;
+    private final ChunkedArray<EdgeList> edges;
+    private final PathMatrix paths;
+    private final long logSegment;
+
+    /**
+     * @param epoch      epoch of the last write contained in the image
+     * @param currencies currency codes indexed by id, null for released ids
+     * @param edges      edges of the graph
+     * @param paths      counted paths or null when the engine doesn't keep them
+     */
+    GraphImage(long epoch, String[] currencies, ChunkedArray<EdgeList> edges, PathMatrix paths) {
+        this(epoch, currencies, edges, paths, 0);
+    }
+
+    private GraphImage(long epoch, String[] currencies, ChunkedArray<EdgeList> edges, PathMatrix paths,
+                       long logSegment) {
+        this.epoch = epoch;
+        this.currencies = currencies;
+        this.edges = edges;
+        this.paths = paths;
+        this.logSegment = logSegment;
+    }
+
+    static GraphImage of(DirectedWeightedGraph graph, long epoch, PathMatrix paths) {
+        CurrencyRegistry registry = graph.getRegistry();
+        String[] currencies = new String[registry.size()];
+        for (int id = 0; id < currencies.length; id++) {
+            currencies[id] = registry.codeOf(id);
+        }
+        return new GraphImage(epoch, currencies, graph.getGraphEdges(), paths);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return number of the first log segment which may have records not contained in the image,
+     * 0 when it is unknown and the whole log should be read
+     */
+    public long getLogSegment() {
+        return logSegment;
+    }
+
+    /**
+     * @param logSegment number of the first log segment which may have records not contained in the image
+     * @return the same image with the log segment
+     */
+    public GraphImage withLogSegment(long logSegment) {
+        return new GraphImage(epoch, currencies, edges, paths, logSegment);
+    }
+
+    public int getCurrencyCount() {
+        return currencies.length;
+    }
+
+    /**
+     * @param id currency id
+     * @return currency code or null when the id is released
+     */
+    public String getCurrency(int id) {
+        return currencies[id];
+    }
+
+    /**
+     * @param id currency id
+     * @return edges from the currency, empty when it has no edges in this image
+     */
+    public EdgeList getEdges(int id) {
+        EdgeList vertexEdges = edges.get(id);
+        return vertexEdges == null ? EdgeList.EMPTY : vertexEdges;
+    }
+
+    /**
+     * @return true when the image contains counted paths
+     */
+    public boolean hasPaths() {
+        return paths != null;
+    }
+
+    ChunkedArray<EdgeList> getEdges() {
+        return edges;
+    }
+
+    PathMatrix getPaths() {
+        return paths;
+    }
+}
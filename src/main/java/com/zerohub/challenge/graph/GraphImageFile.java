@@ -0,0 +1,199 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphImageCorruptedException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file of {@link GraphImage} written and read through a memory mapping.
+ * Rows of paths are stored as raw primitive arrays, so restoring them is a bulk copy
+ * instead of counting all paths again.
+ * <p>
+ * Layout: header (magic, version, epoch, first log segment not contained in the image, currency count,
+ * paths flag), currency codes with a released id marked by the max code length,
+ * edges of each currency in both directions, rows of paths, and CRC32 of all previous bytes.
+ * The file is written aside and moved over the previous one, so a crash never leaves a half-written image.
+ */
+public final class GraphImageFile {
+
+    private static final int MAGIC = 0x43475249;
+    private static final int VERSION = 2;
+    private static final int RELEASED_ID = 0xFFFF;
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES + 1;
+    private static final int CHECKSUM_SIZE = Long.BYTES;
+
+    private GraphImageFile() {
+    }
+
+    /**
+     * Write the image replacing the previous file
+     *
+     * @param image image of the graph
+     * @param file  path of the file
+     * @return size of the file in bytes
+     * @throws IOException when the file can't be written or the image is larger than one mapping
+     */
+    public static long write(GraphImage image, Path file) throws IOException {
+        long size = size(image);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Graph image of " + size + " bytes is larger than one mapping");
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(image.getEpoch());
+            buffer.putLong(image.getLogSegment());
+            buffer.putInt(image.getCurrencyCount());
+            buffer.put((byte) (image.hasPaths() ? 1 : 0));
+            for (int id = 0; id < image.getCurrencyCount(); id++) {
+                String currency = image.getCurrency(id);
+                if (currency == null) {
+                    buffer.putShort((short) RELEASED_ID);
+                    continue;
+                }
+                byte[] code = currency.getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) code.length);
+                buffer.put(code);
+            }
+            for (int id = 0; id < image.getCurrencyCount(); id++) {
+                EdgeList edges = image.getEdges(id);
+                buffer.putInt(edges.size());
+                for (int i = 0; i < edges.size(); i++) {
+                    buffer.putInt(edges.getTarget(i));
+                    putDecimal(buffer, edges.getWeight(i));
+                }
+            }
+            if (image.hasPaths()) {
+                for (int id = 0; id < image.getCurrencyCount(); id++) {
+                    PathMatrix.Row.write(buffer, image.getPaths().getRow(id));
+                }
+            }
+            buffer.putLong(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Map and read the image
+     *
+     * @param file path of the file
+     * @return image with the epoch of the saved graph
+     * @throws IOException                   when the file can't be read
+     * @throws GraphImageCorruptedException when the file is truncated or its checksum doesn't match
+     */
+    public static GraphImage read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                throw new GraphImageCorruptedException(file.toString(), "unexpected size " + size, null);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int dataSize = (int) size - CHECKSUM_SIZE;
+            if (checksum(buffer, dataSize) != buffer.getLong(dataSize)) {
+                throw new GraphImageCorruptedException(file.toString(), "checksum mismatch", null);
+            }
+            if (buffer.getInt() != MAGIC || !isKnownVersion(buffer.getInt())) {
+                throw new GraphImageCorruptedException(file.toString(), "unknown format", null);
+            }
+            buffer.limit(dataSize);
+            return read(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new GraphImageCorruptedException(file.toString(), "unexpected end of data", ex);
+        }
+    }
+
+    private static GraphImage read(ByteBuffer buffer) {
+        long epoch = buffer.getLong();
+        long logSegment = buffer.getLong();
+        int currencyCount = buffer.getInt();
+        boolean hasPaths = buffer.get() != 0;
+        String[] currencies = new String[currencyCount];
+        for (int id = 0; id < currencyCount; id++) {
+            int length = buffer.getShort() & 0xFFFF;
+            if (length == RELEASED_ID) {
+                continue;
+            }
+            byte[] code = new byte[length];
+            buffer.get(code);
+            currencies[id] = new String(code, StandardCharsets.UTF_8);
+        }
+        ChunkedArray.Builder<EdgeList> edges = ChunkedArray.<EdgeList>empty().toBuilder();
+        for (int id = 0; id < currencyCount; id++) {
+            int edgeCount = buffer.getInt();
+            EdgeList vertexEdges = EdgeList.EMPTY;
+            for (int i = 0; i < edgeCount; i++) {
+                vertexEdges = vertexEdges.with(buffer.getInt(), getDecimal(buffer));
+            }
+            if (edgeCount > 0) {
+                edges.set(id, vertexEdges);
+            }
+        }
+        PathMatrix paths = hasPaths ? PathMatrix.read(buffer, currencyCount, epoch) : null;
+        return new GraphImage(epoch, currencies, edges.build(), paths).withLogSegment(logSegment);
+    }
+
+    private static long size(GraphImage image) {
+        long size = HEADER_SIZE + CHECKSUM_SIZE;
+        for (int id = 0; id < image.getCurrencyCount(); id++) {
+            String currency = image.getCurrency(id);
+            size += Short.BYTES + (currency == null ? 0 : currency.getBytes(StandardCharsets.UTF_8).length);
+            EdgeList edges = image.getEdges(id);
+            size += Integer.BYTES;
+            for (int i = 0; i < edges.size(); i++) {
+                size += Integer.BYTES + decimalSize(edges.getWeight(i));
+            }
+            if (image.hasPaths()) {
+                size += PathMatrix.Row.size(image.getPaths().getRow(id));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Images of version 1 have no released ids, so they are read the same way
+     */
+    private static boolean isKnownVersion(int version) {
+        return version >= 1 && version <= VERSION;
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return crc.getValue();
+    }
+
+    private static int decimalSize(BigDecimal value) {
+        return Integer.BYTES + Short.BYTES + value.unscaledValue().toByteArray().length;
+    }
+
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        buffer.putInt(value.scale());
+        buffer.putShort((short) unscaled.length);
+        buffer.put(unscaled);
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
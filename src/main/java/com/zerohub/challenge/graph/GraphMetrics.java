@@ -0,0 +1,96 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.metrics.GraphMetricsMXBean;
+import com.zerohub.challenge.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures of graph writes: waiting for the write lock, holding it and counting paths of merged components.
+ * Disabled metrics only check a final flag, so writes of a graph without metrics are not slowed down.
+ */
+public final class GraphMetrics implements GraphMetricsMXBean {
+
+    static final GraphMetrics DISABLED = new GraphMetrics(null);
+
+    private final DirectedWeightedGraph graph;
+    private final boolean enabled;
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LatencyHistogram lockHold = new LatencyHistogram();
+    private final LatencyHistogram recompute = new LatencyHistogram();
+    private final LongAdder recomputedPairs = new LongAdder();
+
+    GraphMetrics(DirectedWeightedGraph graph) {
+        this.graph = graph;
+        this.enabled = graph != null;
+    }
+
+    public LatencyHistogram getLockWait() {
+        return lockWait;
+    }
+
+    public LatencyHistogram getLockHold() {
+        return lockHold;
+    }
+
+    public LatencyHistogram getRecompute() {
+        return recompute;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return graph.getRegistry().count();
+    }
+
+    @Override
+    public long getPathTableSize() {
+        return graph.getPathTableSize();
+    }
+
+    @Override
+    public long getRecomputeCount() {
+        return recompute.getCount();
+    }
+
+    @Override
+    public long getRecomputedPairs() {
+        return recomputedPairs.sum();
+    }
+
+    /**
+     * @return start time of a measure or 0 when metrics are disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param waitStart time when the writer started to wait for the lock
+     * @return time when the lock is acquired
+     */
+    long lockAcquired(long waitStart) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        lockWait.record(now - waitStart);
+        return now;
+    }
+
+    void lockReleased(long holdStart) {
+        if (enabled) {
+            lockHold.record(System.nanoTime() - holdStart);
+        }
+    }
+
+    /**
+     * @param start start of counting paths of merged components
+     * @param pairs count of counted paths
+     */
+    void recomputed(long start, long pairs) {
+        if (enabled) {
+            recompute.record(System.nanoTime() - start);
+            recomputedPairs.add(pairs);
+        }
+    }
+}
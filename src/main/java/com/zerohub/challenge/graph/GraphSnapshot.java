@@ -0,0 +1,57 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import com.zerohub.challenge.utils.FixedDecimal;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable view of the graph paths published by one write to the graph.
+ * All paths read from the same snapshot belong to the same epoch.
+ */
+public interface GraphSnapshot {
+
+    /**
+     * @return number of the write that published this snapshot
+     */
+    long getEpoch();
+
+    /**
+     * Count the path between the vertexes
+     *
+     * @param vertexA first vertex of the path
+     * @param vertexB last vertex of the path
+     * @return lenght of path
+     * @throws VertexNotFoundException    when vertex is not found
+     * @throws GraphPathNotFoundException when there is no path between the vertexes
+     */
+    BigDecimal findPath(String vertexA, String vertexB);
+
+    /**
+     * Count the path between the vertexes as fixed-point decimal
+     *
+     * @param vertexA first vertex of the path
+     * @param vertexB last vertex of the path
+     * @param length  receiver of the path length
+     * @return false when the length doesn't fit into fixed-point decimal
+     * @throws VertexNotFoundException    when vertex is not found
+     * @throws GraphPathNotFoundException when there is no path between the vertexes
+     */
+    default boolean findPath(String vertexA, String vertexB, FixedDecimal length) {
+        return length.set(findPath(vertexA, vertexB));
+    }
+
+    /**
+     * Check if paths from the vertex may be different in the previous snapshot.
+     * It lets a reader skip paths that are not changed by a write without reading them.
+     *
+     * @param previous snapshot of an earlier epoch
+     * @param vertex   first vertex of paths
+     * @return false when paths from the vertex are surely the same in both snapshots
+     */
+    default boolean mayChangePathsFrom(GraphSnapshot previous, String vertex) {
+        return true;
+    }
+
+}
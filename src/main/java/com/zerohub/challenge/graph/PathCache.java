@@ -0,0 +1,110 @@
+package com.zerohub.challenge.graph;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of found paths keyed by (from, to).
+ * Each path is stored with the version of its component: when a publish changes the component,
+ * the version is changed and only paths of this component become stale.
+ * The cache is split into segments with separate locks to reduce contention of readers.
+ */
+class PathCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    PathCache(int maxSize) {
+        int segmentSize = Math.max(1, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * @param from    id of the first vertex
+     * @param to      id of the last vertex
+     * @param version version of the component of the vertexes
+     * @return cached path or null when the path was not cached for this version
+     */
+    CachedPath get(int from, int to, long version) {
+        long key = key(from, to);
+        Segment segment = segmentOf(key);
+        CachedPath entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        return entry != null && entry.version == version ? entry : null;
+    }
+
+    /**
+     * @param from    id of the first vertex
+     * @param to      id of the last vertex
+     * @param version version of the component of the vertexes
+     * @param length  length of the path or null when there is no path
+     */
+    void put(int from, int to, long version, BigDecimal length) {
+        long key = key(from, to);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            CachedPath existed = segment.get(key);
+            if (existed == null || existed.version < version) {
+                segment.put(key, new CachedPath(version, length));
+            }
+        }
+    }
+
+    /**
+     * @return count of cached paths
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentOf(long key) {
+        return segments[(int) ((key ^ (key >>> 29)) & (SEGMENTS - 1))];
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    static final class CachedPath {
+        private final long version;
+        private final BigDecimal length;
+
+        private CachedPath(long version, BigDecimal length) {
+            this.version = version;
+            this.length = length;
+        }
+
+        /**
+         * @return length of the path or null when there is no path
+         */
+        BigDecimal getLength() {
+            return length;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Long, CachedPath> {
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
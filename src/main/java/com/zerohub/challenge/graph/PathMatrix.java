@@ -0,0 +1,321 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import com.zerohub.challenge.utils.FixedDecimal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Dense store of path lengths indexed by [fromId][toId].
+ * Each row is backed by primitive arrays: unscaled value of the length and packed scale with edges count,
+ * so a path costs 12 bytes instead of a map entry with boxed decimal.
+ * The matrix is immutable: writer copies changed rows aside and publishes them as the matrix of the next epoch,
+ * unchanged rows are shared between epochs.
+ */
+class PathMatrix implements GraphSnapshot {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CurrencyRegistry registry;
+    private final Row[] rows;
+    private final long epoch;
+
+    private PathMatrix(CurrencyRegistry registry, Row[] rows, long epoch) {
+        this.registry = registry;
+        this.rows = rows;
+        this.epoch = epoch;
+    }
+
+    static PathMatrix empty(CurrencyRegistry registry) {
+        return new PathMatrix(registry, new Row[INITIAL_CAPACITY], 0);
+    }
+
+    /**
+     * @param registry registry of the graph which gets the matrix
+     * @return the same paths resolving currencies by the registry
+     */
+    PathMatrix withRegistry(CurrencyRegistry registry) {
+        return new PathMatrix(registry, rows, epoch);
+    }
+
+    /**
+     * @param epoch epoch of the restored graph
+     * @return the same paths of the given epoch
+     */
+    PathMatrix withEpoch(long epoch) {
+        return new PathMatrix(registry, rows, epoch);
+    }
+
+    /**
+     * @return upper bound of ids of rows
+     */
+    int rowCount() {
+        return rows.length;
+    }
+
+    /**
+     * Read rows written by {@link Row#write(ByteBuffer, Row)}
+     *
+     * @param buffer   buffer at the first row
+     * @param rowCount count of rows
+     * @param epoch    epoch of the matrix
+     * @return matrix without registry, it should be set by {@link #withRegistry(CurrencyRegistry)}
+     */
+    static PathMatrix read(ByteBuffer buffer, int rowCount, long epoch) {
+        Row[] rows = new Row[Math.max(INITIAL_CAPACITY, rowCount)];
+        for (int id = 0; id < rowCount; id++) {
+            rows[id] = Row.read(buffer);
+        }
+        return new PathMatrix(null, rows, epoch);
+    }
+
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public BigDecimal findPath(String vertexA, String vertexB) {
+        int idA = getVertexId(vertexA);
+        int idB = getVertexId(vertexB);
+        BigDecimal path = rows[idA].getLength(idB);
+        if (path == null) {
+            throw new GraphPathNotFoundException(vertexA, vertexB, null);
+        }
+        return path;
+    }
+
+    /**
+     * Reads the stored unscaled length, so no decimal is allocated
+     */
+    @Override
+    public boolean findPath(String vertexA, String vertexB, FixedDecimal length) {
+        int idA = getVertexId(vertexA);
+        int idB = getVertexId(vertexB);
+        if (!rows[idA].contains(idB)) {
+            throw new GraphPathNotFoundException(vertexA, vertexB, null);
+        }
+        return rows[idA].getLength(idB, length);
+    }
+
+    /**
+     * Writer copies every changed row, so a row shared with the previous matrix has the same paths.
+     */
+    @Override
+    public boolean mayChangePathsFrom(GraphSnapshot previous, String vertex) {
+        if (!(previous instanceof PathMatrix)) {
+            return true;
+        }
+        int id = registry.idOf(vertex);
+        return id != CurrencyRegistry.UNKNOWN && getRow(id) != ((PathMatrix) previous).getRow(id);
+    }
+
+    /**
+     * Get id of the vertex which has paths in this epoch
+     *
+     * @param vertex vertex
+     * @return id of the vertex
+     * @throws VertexNotFoundException when vertex is not found
+     */
+    private int getVertexId(String vertex) {
+        int id = registry.idOf(vertex);
+        if (id == CurrencyRegistry.UNKNOWN || getRow(id) == null) {
+            throw new VertexNotFoundException(vertex, null);
+        }
+        return id;
+    }
+
+    Row getRow(int id) {
+        return id < rows.length ? rows[id] : null;
+    }
+
+    Writer writer(int vertexCount) {
+        int capacity = rows.length;
+        while (capacity < vertexCount) {
+            capacity *= 2;
+        }
+        return new Writer(capacity);
+    }
+
+    /**
+     * Paths from one vertex. Missing path has zero metadata.
+     */
+    static final class Row {
+        private static final int EDGES_MASK = 0xFFFF;
+
+        private final long[] unscaled;
+        private final int[] meta;
+
+        private Row(int capacity) {
+            unscaled = new long[capacity];
+            meta = new int[capacity];
+        }
+
+        private Row(Row source, int capacity) {
+            unscaled = Arrays.copyOf(source.unscaled, Math.max(capacity, source.unscaled.length));
+            meta = Arrays.copyOf(source.meta, Math.max(capacity, source.meta.length));
+        }
+
+        int capacity() {
+            return meta.length;
+        }
+
+        /**
+         * @return count of bytes written by {@link #write(ByteBuffer, Row)}
+         */
+        static long size(Row row) {
+            return Integer.BYTES + (row == null ? 0L : (long) row.capacity() * (Long.BYTES + Integer.BYTES));
+        }
+
+        /**
+         * Write capacity and both arrays of the row by bulk puts
+         *
+         * @param buffer buffer with {@link #size(Row)} remaining bytes
+         * @param row    row or null when the vertex has no paths
+         */
+        static void write(ByteBuffer buffer, Row row) {
+            if (row == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            buffer.putInt(row.capacity());
+            buffer.asLongBuffer().put(row.unscaled);
+            buffer.position(buffer.position() + row.capacity() * Long.BYTES);
+            buffer.asIntBuffer().put(row.meta);
+            buffer.position(buffer.position() + row.capacity() * Integer.BYTES);
+        }
+
+        static Row read(ByteBuffer buffer) {
+            int capacity = buffer.getInt();
+            if (capacity < 0) {
+                return null;
+            }
+            Row row = new Row(capacity);
+            buffer.asLongBuffer().get(row.unscaled);
+            buffer.position(buffer.position() + capacity * Long.BYTES);
+            buffer.asIntBuffer().get(row.meta);
+            buffer.position(buffer.position() + capacity * Integer.BYTES);
+            return row;
+        }
+
+        boolean contains(int to) {
+            return to < meta.length && meta[to] != 0;
+        }
+
+        BigDecimal getLength(int to) {
+            if (!contains(to)) {
+                return null;
+            }
+            return BigDecimal.valueOf(unscaled[to], meta[to] >> 16);
+        }
+
+        boolean getLength(int to, FixedDecimal length) {
+            return length.set(unscaled[to], meta[to] >> 16);
+        }
+
+        int getEdgesCount(int to) {
+            return (meta[to] & EDGES_MASK) - 1;
+        }
+
+        private void set(int to, BigDecimal length, int edgesCount) {
+            BigDecimal value = length.unscaledValue().bitLength() < Long.SIZE
+                    ? length
+                    : length.round(MathContext.DECIMAL64);
+            int scale = value.scale();
+            if (scale < Short.MIN_VALUE || scale > Short.MAX_VALUE || edgesCount >= EDGES_MASK) {
+                throw new ArithmeticException("Path " + length + " with " + edgesCount + " edges can't be stored");
+            }
+            unscaled[to] = value.unscaledValue().longValue();
+            meta[to] = (scale << 16) | (edgesCount + 1);
+        }
+    }
+
+    /**
+     * Builds the matrix of the next epoch. Rows are copied before the first update,
+     * so the current matrix stays unchanged for readers.
+     */
+    final class Writer {
+        private final Row removed = new Row(0);
+        private final int capacity;
+        private final Row[] copies;
+        private final int[] touched;
+        private int touchedCount;
+
+        private Writer(int capacity) {
+            this.capacity = capacity;
+            this.copies = new Row[capacity];
+            this.touched = new int[capacity];
+        }
+
+        /**
+         * Get the latest version of the row including not committed changes
+         */
+        Row getRow(int id) {
+            Row copy = copies[id];
+            if (copy == removed) {
+                return null;
+            }
+            return copy != null ? copy : PathMatrix.this.getRow(id);
+        }
+
+        /**
+         * Set the path. Paths of different prepared rows may be set by different threads concurrently.
+         */
+        void set(int from, int to, BigDecimal length, int edgesCount) {
+            prepare(from);
+            copies[from].set(to, length, edgesCount);
+        }
+
+        /**
+         * Copy the row before changes. Not thread-safe.
+         */
+        void prepare(int from) {
+            if (copies[from] == null) {
+                Row current = PathMatrix.this.getRow(from);
+                copies[from] = current == null ? new Row(capacity) : new Row(current, capacity);
+                touched[touchedCount++] = from;
+            }
+        }
+
+        /**
+         * Replace the row by an empty one, so paths which are not set again are removed. Not thread-safe.
+         */
+        void reset(int from) {
+            replace(from, new Row(capacity));
+        }
+
+        /**
+         * Remove the row of a vertex without paths. Not thread-safe.
+         */
+        void remove(int from) {
+            replace(from, removed);
+        }
+
+        private void replace(int from, Row row) {
+            if (copies[from] == null) {
+                touched[touchedCount++] = from;
+            }
+            copies[from] = row;
+        }
+
+        /**
+         * Apply changes of this writer to the latest matrix. Rows changed by this writer must not be changed
+         * in the latest matrix, so writers of different rows can commit concurrently.
+         *
+         * @param latest matrix published after the matrix of this writer or the same matrix
+         * @return matrix of the next epoch after the latest one
+         */
+        PathMatrix commit(PathMatrix latest) {
+            Row[] nextRows = Arrays.copyOf(latest.rows, Math.max(capacity, latest.rows.length));
+            for (int i = 0; i < touchedCount; i++) {
+                Row copy = copies[touched[i]];
+                nextRows[touched[i]] = copy == removed ? null : copy;
+            }
+            return new PathMatrix(registry, nextRows, latest.epoch + 1);
+        }
+    }
+}
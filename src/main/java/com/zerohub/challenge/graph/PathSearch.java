@@ -0,0 +1,110 @@
+package com.zerohub.challenge.graph;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * Breadth-first search of paths with the fewest edges.
+ * When several paths have the same count of edges, the one with the largest length is used.
+ * Unlike the largest length over all paths, this is well defined when rates of a cycle are not consistent.
+ * The search reuses its arrays, so results of the last search are valid only until the next one.
+ */
+final class PathSearch {
+
+    private final ChunkedArray<EdgeList> edges;
+    private final int[] hops;
+    private final BigDecimal[] lengths;
+    private final int[] queue;
+    private int reachedCount;
+
+    /**
+     * @param edges       edges of the graph
+     * @param vertexCount upper bound of vertex ids
+     */
+    PathSearch(ChunkedArray<EdgeList> edges, int vertexCount) {
+        this.edges = edges;
+        this.hops = new int[vertexCount];
+        this.lengths = new BigDecimal[vertexCount];
+        this.queue = new int[vertexCount];
+        Arrays.fill(hops, -1);
+    }
+
+    /**
+     * Find the path between two vertexes
+     *
+     * @param from id of the first vertex
+     * @param to   id of the last vertex
+     * @return length of the path or null when there is no path
+     */
+    BigDecimal findPath(int from, int to) {
+        search(from, to);
+        return lengths[to];
+    }
+
+    /**
+     * Find paths from the vertex to all reachable vertexes
+     *
+     * @param from id of the first vertex
+     */
+    void findPaths(int from) {
+        search(from, -1);
+    }
+
+    /**
+     * @return count of vertexes reached by the last search including the first one
+     */
+    int getReachedCount() {
+        return reachedCount;
+    }
+
+    /**
+     * @param index index of reached vertex, vertexes are ordered by count of edges
+     * @return id of reached vertex
+     */
+    int getReached(int index) {
+        return queue[index];
+    }
+
+    BigDecimal getLength(int vertex) {
+        return lengths[vertex];
+    }
+
+    int getEdgesCount(int vertex) {
+        return hops[vertex];
+    }
+
+    private void search(int from, int to) {
+        for (int i = 0; i < reachedCount; i++) {
+            hops[queue[i]] = -1;
+            lengths[queue[i]] = null;
+        }
+        hops[from] = 0;
+        lengths[from] = BigDecimal.ONE;
+        queue[0] = from;
+        int head = 0;
+        int tail = 1;
+        while (head < tail && (to < 0 || hops[to] < 0)) {
+            int layerEnd = tail;
+            for (; head < layerEnd; head++) {
+                int vertex = queue[head];
+                EdgeList vertexEdges = edges.get(vertex);
+                if (vertexEdges == null) {
+                    continue;
+                }
+                for (int i = 0; i < vertexEdges.size(); i++) {
+                    int next = vertexEdges.getTarget(i);
+                    BigDecimal length = lengths[vertex].multiply(vertexEdges.getWeight(i), MathContext.DECIMAL64);
+                    if (hops[next] < 0) {
+                        hops[next] = hops[vertex] + 1;
+                        lengths[next] = length;
+                        queue[tail++] = next;
+                    } else if (hops[next] == hops[vertex] + 1 && length.compareTo(lengths[next]) > 0) {
+                        lengths[next] = length;
+                    }
+                }
+            }
+        }
+        reachedCount = tail;
+    }
+}
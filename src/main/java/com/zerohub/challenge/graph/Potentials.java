@@ -0,0 +1,117 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * Immutable potentials of the vertexes: the root of the vertex component
+ * and the factor of the vertex, which is the length of the path from the vertex to the root.
+ * Path between two vertexes of the same component is the ratio of their factors.
+ */
+class Potentials implements GraphSnapshot {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CurrencyRegistry registry;
+    private final int[] roots;
+    private final BigDecimal[] factors;
+    private final long epoch;
+
+    private Potentials(CurrencyRegistry registry, int[] roots, BigDecimal[] factors, long epoch) {
+        this.registry = registry;
+        this.roots = roots;
+        this.factors = factors;
+        this.epoch = epoch;
+    }
+
+    static Potentials empty(CurrencyRegistry registry) {
+        return new Potentials(registry, new int[INITIAL_CAPACITY], new BigDecimal[INITIAL_CAPACITY], 0);
+    }
+
+    /**
+     * @param epoch epoch of the restored graph
+     * @return the same potentials of the given epoch
+     */
+    Potentials withEpoch(long epoch) {
+        return new Potentials(registry, roots, factors, epoch);
+    }
+
+    @Override
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public BigDecimal findPath(String vertexA, String vertexB) {
+        int idA = getVertexId(vertexA);
+        int idB = getVertexId(vertexB);
+        if (roots[idA] != roots[idB]) {
+            throw new GraphPathNotFoundException(vertexA, vertexB, null);
+        }
+        return factors[idA].divide(factors[idB], MathContext.DECIMAL64);
+    }
+
+    /**
+     * Get id of the vertex which has potential in this epoch
+     *
+     * @param vertex vertex
+     * @return id of the vertex
+     * @throws VertexNotFoundException when vertex is not found
+     */
+    private int getVertexId(String vertex) {
+        int id = registry.idOf(vertex);
+        if (id == CurrencyRegistry.UNKNOWN || id >= factors.length || factors[id] == null) {
+            throw new VertexNotFoundException(vertex, null);
+        }
+        return id;
+    }
+
+    Writer writer(int vertexCount) {
+        int capacity = factors.length;
+        while (capacity < vertexCount) {
+            capacity *= 2;
+        }
+        return new Writer(capacity);
+    }
+
+    /**
+     * Builds potentials of the next epoch on copies of the arrays.
+     */
+    final class Writer {
+        private final int[] nextRoots;
+        private final BigDecimal[] nextFactors;
+
+        private Writer(int capacity) {
+            nextRoots = Arrays.copyOf(roots, capacity);
+            nextFactors = Arrays.copyOf(factors, capacity);
+        }
+
+        BigDecimal getFactor(int vertex) {
+            return nextFactors[vertex];
+        }
+
+        void set(int vertex, int root, BigDecimal factor) {
+            nextRoots[vertex] = root;
+            nextFactors[vertex] = factor;
+        }
+
+        /**
+         * Remove potential of the vertex without edges
+         */
+        void remove(int vertex) {
+            nextRoots[vertex] = 0;
+            nextFactors[vertex] = null;
+        }
+
+        /**
+         * @return potentials of the next epoch with all changes of this writer
+         */
+        Potentials commit() {
+            return new Potentials(registry, nextRoots, nextFactors, epoch + 1);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.zerohub.challenge.graph;
+
+/**
+ * Listener of snapshots published by writes to the graph
+ */
+public interface SnapshotListener {
+
+    /**
+     * Called by the writer after the snapshot is published. Calls of concurrent writers may come out of order,
+     * so the listener should ignore snapshots older than the last one it has seen.
+     *
+     * @param snapshot published snapshot
+     */
+    void onSnapshot(GraphSnapshot snapshot);
+
+}
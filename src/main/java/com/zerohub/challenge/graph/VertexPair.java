@@ -0,0 +1,14 @@
+package com.zerohub.challenge.graph;
+
+import lombok.Value;
+
+/**
+ * Unordered pair of vertexes of an edge: A-B and B-A are the same edge
+ */
+@Value
+public class VertexPair {
+
+    String vertexA;
+    String vertexB;
+
+}
@@ -0,0 +1,67 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
+import com.zerohub.challenge.proto.ConvertError;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.ConvertResult;
+import com.zerohub.challenge.service.RatesSnapshot;
+import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+import io.grpc.Status;
+
+import java.math.BigDecimal;
+
+/**
+ * Converts all items of a batch with the same rates snapshot.
+ * A failed item gets its error in the result and doesn't fail other items.
+ */
+final class ConvertBatches {
+
+    private ConvertBatches() {
+    }
+
+    static ConvertBatchResponse convert(RatesSnapshot rates, ConvertBatchRequest request) {
+        ConvertBatchResponse.Builder response = ConvertBatchResponse
+                .newBuilder()
+                .setEpoch(rates.getEpoch());
+        FixedDecimal amount = new FixedDecimal();
+        FixedDecimal result = new FixedDecimal();
+        for (ConvertRequest item : request.getItemsList()) {
+            response.addResults(convert(rates, item, amount, result));
+        }
+        return response.build();
+    }
+
+    private static ConvertResult convert(RatesSnapshot rates, ConvertRequest item,
+                                         FixedDecimal amount, FixedDecimal result) {
+        try {
+            String price;
+            if (amount.parse(item.getFromAmount())
+                    && rates.convert(item.getFromCurrency(), item.getToCurrency(), amount, result)) {
+                price = result.format();
+            } else {
+                BigDecimal converted = rates.convert(item.getFromCurrency(), item.getToCurrency(),
+                        new BigDecimal(item.getFromAmount()));
+                price = DecimalUtils.roundCarefully(converted).toString();
+            }
+            return ConvertResult
+                    .newBuilder()
+                    .setPrice(price)
+                    .build();
+        } catch (NumberFormatException ex) {
+            return error(Status.Code.INVALID_ARGUMENT, String.format("Amount %s is not a number", item.getFromAmount()));
+        } catch (CurrencyNotFoundException | RateNotFoundException ex) {
+            return error(Status.Code.NOT_FOUND, ex.getMessage());
+        }
+    }
+
+    private static ConvertResult error(Status.Code code, String message) {
+        return ConvertResult
+                .newBuilder()
+                .setError(ConvertError.newBuilder().setCode(code.name()).setMessage(message))
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
+import com.zerohub.challenge.service.ConverterService;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Converts streamed batches with manual flow control: the next batch is requested from the client
+ * only when the response stream is ready, so a slow reader doesn't make responses pile up in the server.
+ * Each batch is converted with the rates snapshot that is current when the batch is received.
+ */
+class ConvertStreamObserver implements StreamObserver<ConvertBatchRequest> {
+
+    private final ConverterService converterService;
+    private final ServerCallStreamObserver<ConvertBatchResponse> responseObserver;
+    private boolean wasReady;
+
+    ConvertStreamObserver(ConverterService converterService,
+                          ServerCallStreamObserver<ConvertBatchResponse> responseObserver) {
+        this.converterService = converterService;
+        this.responseObserver = responseObserver;
+        responseObserver.disableAutoRequest();
+        responseObserver.setOnReadyHandler(this::onReady);
+    }
+
+    @Override
+    public void onNext(ConvertBatchRequest request) {
+        responseObserver.onNext(ConvertBatches.convert(converterService.snapshot(), request));
+        synchronized (this) {
+            if (responseObserver.isReady()) {
+                responseObserver.request(1);
+            } else {
+                wasReady = false;
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+    }
+
+    @Override
+    public void onCompleted() {
+        responseObserver.onCompleted();
+    }
+
+    private synchronized void onReady() {
+        if (responseObserver.isReady() && !wasReady) {
+            wasReady = true;
+            responseObserver.request(1);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.metrics.RpcMetrics;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records latency and status of calls from their start to their close,
+ * so the time includes the handler and mapping of its exception to the status.
+ * For streaming calls the latency is the lifetime of the stream, so messages of both directions are counted too.
+ * Metrics of methods are created once, so a call only reads the clock twice and updates counters.
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+
+    private final Map<String, RpcMetrics> methods = new LinkedHashMap<>();
+
+    /**
+     * @param services services of the measured methods
+     */
+    public MetricsInterceptor(ServiceDescriptor... services) {
+        for (ServiceDescriptor service : services) {
+            for (MethodDescriptor<?, ?> method : service.getMethods()) {
+                methods.put(method.getFullMethodName(), new RpcMetrics());
+            }
+        }
+    }
+
+    /**
+     * @return metrics by full method name
+     */
+    public Map<String, RpcMetrics> getMethods() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    @Override
+    public <Q, A> ServerCall.Listener<Q> interceptCall(ServerCall<Q, A> call, Metadata headers,
+                                                       ServerCallHandler<Q, A> next) {
+        RpcMetrics metrics = methods.get(call.getMethodDescriptor().getFullMethodName());
+        if (metrics == null) {
+            return next.startCall(call, headers);
+        }
+        long start = System.nanoTime();
+        if (call.getMethodDescriptor().getType() == MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                @Override
+                public void close(Status status, Metadata trailers) {
+                    metrics.record(System.nanoTime() - start, status.getCode());
+                    super.close(status, trailers);
+                }
+            }, headers);
+        }
+        ServerCall.Listener<Q> listener = next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(A message) {
+                metrics.recordSent();
+                super.sendMessage(message);
+            }
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+                metrics.record(System.nanoTime() - start, status.getCode());
+                super.close(status, trailers);
+            }
+        }, headers);
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(Q message) {
+                metrics.recordReceived();
+                super.onMessage(message);
+            }
+        };
+    }
+}
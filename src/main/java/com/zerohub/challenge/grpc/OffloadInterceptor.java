@@ -0,0 +1,145 @@
+package com.zerohub.challenge.grpc;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Moves handling of the given methods from the call executor of the server to a separate executor,
+ * so publishes which may wait for the rate writer don't hold transport threads or threads of converts,
+ * and with direct calls converts which walk many paths don't hold event loops.
+ * Callbacks of one call are run one at a time in order of arrival, as the server does.
+ * Calls over the limit are failed with RESOURCE_EXHAUSTED before they start, so a call in progress
+ * has at most one queued task and the queue of the executor is bounded by the limit.
+ * <p>
+ * The interceptor is the outermost one, so the exception advice and metrics run on the offloaded thread.
+ */
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OffloadInterceptor implements ServerInterceptor {
+
+    private final Executor executor;
+    private final Set<String> methods;
+    private final int maxCalls;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * @param executor executor of the offloaded calls
+     * @param maxCalls max count of offloaded calls in progress
+     * @param methods  offloaded methods
+     */
+    public OffloadInterceptor(Executor executor, int maxCalls, MethodDescriptor<?, ?>... methods) {
+        this.executor = executor;
+        this.maxCalls = maxCalls;
+        this.methods = Arrays.stream(methods)
+                .map(MethodDescriptor::getFullMethodName)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public <Q, A> ServerCall.Listener<Q> interceptCall(ServerCall<Q, A> call, Metadata headers,
+                                                       ServerCallHandler<Q, A> next) {
+        if (!methods.contains(call.getMethodDescriptor().getFullMethodName())) {
+            return next.startCall(call, headers);
+        }
+        if (calls.incrementAndGet() > maxCalls) {
+            calls.decrementAndGet();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription(maxCalls + " calls are in progress"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return new OffloadedListener<>(next.startCall(call, headers), Context.current());
+    }
+
+    private final class OffloadedListener<Q> extends ServerCall.Listener<Q> implements Runnable {
+
+        private final ServerCall.Listener<Q> delegate;
+        private final Context context;
+        private final Queue<Consumer<ServerCall.Listener<Q>>> callbacks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private OffloadedListener(ServerCall.Listener<Q> delegate, Context context) {
+            this.delegate = delegate;
+            this.context = context;
+        }
+
+        @Override
+        public void onMessage(Q message) {
+            offload(listener -> listener.onMessage(message));
+        }
+
+        @Override
+        public void onHalfClose() {
+            offload(ServerCall.Listener::onHalfClose);
+        }
+
+        @Override
+        public void onCancel() {
+            offload(listener -> {
+                calls.decrementAndGet();
+                listener.onCancel();
+            });
+        }
+
+        @Override
+        public void onComplete() {
+            offload(listener -> {
+                calls.decrementAndGet();
+                listener.onComplete();
+            });
+        }
+
+        @Override
+        public void onReady() {
+            offload(ServerCall.Listener::onReady);
+        }
+
+        private void offload(Consumer<ServerCall.Listener<Q>> callback) {
+            callbacks.add(callback);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Runs queued callbacks until the queue is empty, a callback queued after the check schedules a new run
+         */
+        @Override
+        public void run() {
+            Context previous = context.attach();
+            try {
+                Consumer<ServerCall.Listener<Q>> callback;
+                while ((callback = callbacks.poll()) != null) {
+                    try {
+                        callback.accept(delegate);
+                    } catch (RuntimeException ex) {
+                        log.error("Offloaded callback failed", ex);
+                    }
+                }
+            } finally {
+                context.detach(previous);
+                scheduled.set(false);
+            }
+            if (!callbacks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.PublishRejectedException;
+import io.grpc.Status;
+import io.grpc.StatusException;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongFunction;
+
+/**
+ * Answers publish and unpublish calls when their writes are applied by the rate writer
+ */
+final class PublishReplies {
+
+    private PublishReplies() {
+    }
+
+    /**
+     * @param published        epoch of the write with the rates
+     * @param responseObserver observer of the call
+     * @param response         response of the epoch
+     */
+    static <T> void reply(CompletableFuture<Long> published, StreamObserver<T> responseObserver,
+                          LongFunction<T> response) {
+        published.whenComplete((epoch, failure) -> {
+            if (failure == null) {
+                responseObserver.onNext(response.apply(epoch));
+                responseObserver.onCompleted();
+            } else {
+                responseObserver.onError(toStatusException(failure));
+            }
+        });
+    }
+
+    /**
+     * Rejection under overload and rates rejected by the writer are expected, so their status has no stack trace
+     */
+    static StatusException toStatusException(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof PublishRejectedException || cause instanceof InvalidRateException) {
+            return StacklessStatusException.of((RuntimeException) cause);
+        }
+        return Status.INTERNAL.withDescription(cause.getMessage()).withCause(cause).asException();
+    }
+}
@@ -0,0 +1,127 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.config.PublishProperties;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.proto.PublishBatchResponse;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.PublishStreamResponse;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RateWriter;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects streamed rates into batches. A batch is published when it reaches the max size
+ * or when the batch window of its first rate is elapsed, so a steady stream is published
+ * with one recount of paths per batch instead of one per rate. Batches are queued to the rate writer.
+ * The response lists the epoch of each published batch and is sent when the client completes the stream
+ * and all its batches are applied.
+ * <p>
+ * An invalid rate fails the stream at once, its collected rates are dropped and later rates are ignored.
+ * Batches queued before it are still applied.
+ */
+class PublishStreamObserver implements StreamObserver<PublishRequest> {
+
+    private final RateWriter rateWriter;
+    private final StreamObserver<PublishStreamResponse> responseObserver;
+    private final ScheduledExecutorService scheduler;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+
+    private final List<CompletableFuture<PublishBatchResponse>> publishedBatches = new ArrayList<>();
+    private List<Rate> batch = new ArrayList<>();
+    private ScheduledFuture<?> batchWindow;
+    private boolean failed;
+
+    PublishStreamObserver(RateWriter rateWriter,
+                          StreamObserver<PublishStreamResponse> responseObserver,
+                          ScheduledExecutorService scheduler,
+                          PublishProperties properties) {
+        this.rateWriter = rateWriter;
+        this.responseObserver = responseObserver;
+        this.scheduler = scheduler;
+        this.batchWindowNanos = properties.getBatchWindow().toNanos();
+        this.maxBatchSize = properties.getMaxBatchSize();
+    }
+
+    @Override
+    public synchronized void onNext(PublishRequest request) {
+        if (failed) {
+            return;
+        }
+        Rate rate;
+        try {
+            rate = PublishedRates.toRate(request.getBaseCurrency(), request.getQuoteCurrency(), request.getPrice());
+        } catch (InvalidRateException ex) {
+            failed = true;
+            cancelBatchWindow();
+            batch = new ArrayList<>();
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        batch.add(rate);
+        if (batch.size() >= maxBatchSize) {
+            flush();
+        } else if (batchWindow == null) {
+            batchWindow = scheduler.schedule(this::flush, batchWindowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        cancelBatchWindow();
+        batch = new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        if (failed) {
+            return;
+        }
+        flush();
+        CompletableFuture<Void> published = CompletableFuture.allOf(
+                publishedBatches.toArray(new CompletableFuture<?>[0]));
+        published.whenComplete((ignore, failure) -> {
+            if (failure != null) {
+                responseObserver.onError(PublishReplies.toStatusException(failure));
+                return;
+            }
+            PublishStreamResponse.Builder response = PublishStreamResponse.newBuilder();
+            for (CompletableFuture<PublishBatchResponse> publishedBatch : publishedBatches) {
+                response.addBatches(publishedBatch.join());
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        });
+    }
+
+    /**
+     * Queue collected rates. It is called by the stream and by the scheduler,
+     * so a failure is reported when the stream is completed.
+     */
+    private synchronized void flush() {
+        cancelBatchWindow();
+        if (batch.isEmpty()) {
+            return;
+        }
+        int count = batch.size();
+        publishedBatches.add(rateWriter.publish(batch).thenApply(epoch -> PublishBatchResponse.newBuilder()
+                .setEpoch(epoch)
+                .setCount(count)
+                .build()));
+        batch = new ArrayList<>();
+    }
+
+    private void cancelBatchWindow() {
+        if (batchWindow != null) {
+            batchWindow.cancel(false);
+            batchWindow = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.service.Rate;
+
+import java.math.BigDecimal;
+
+/**
+ * Rates of publish calls are checked before they are queued to the rate writer,
+ * so a price which is not a positive number fails only its own call and never reaches the graph
+ */
+final class PublishedRates {
+
+    private PublishedRates() {
+    }
+
+    /**
+     * @throws InvalidRateException when the price is not a positive number
+     */
+    static Rate toRate(String baseCurrency, String quoteCurrency, String price) {
+        try {
+            return toRate(baseCurrency, quoteCurrency, new BigDecimal(price));
+        } catch (NumberFormatException ex) {
+            throw new InvalidRateException(baseCurrency, quoteCurrency, price);
+        }
+    }
+
+    /**
+     * @throws InvalidRateException when the price is not positive
+     */
+    static Rate toRate(String baseCurrency, String quoteCurrency, BigDecimal price) {
+        if (price.signum() <= 0) {
+            throw new InvalidRateException(baseCurrency, quoteCurrency, price.toPlainString());
+        }
+        return new Rate(baseCurrency, quoteCurrency, price);
+    }
+}
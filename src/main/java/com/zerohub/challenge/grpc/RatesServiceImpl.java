@@ -1,52 +1,211 @@
 package com.zerohub.challenge.grpc;
 
 import com.google.protobuf.Empty;
+import com.zerohub.challenge.config.PublishProperties;
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.RateHistoryUnavailableException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.proto.ConvertAsOfRequest;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
 import com.zerohub.challenge.proto.ConvertRequest;
 import com.zerohub.challenge.proto.ConvertResponse;
+import com.zerohub.challenge.proto.PublishBatchRequest;
+import com.zerohub.challenge.proto.PublishBatchResponse;
 import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.PublishStreamResponse;
+import com.zerohub.challenge.proto.CurrencyPair;
+import com.zerohub.challenge.proto.RateUpdate;
 import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.proto.SubscribeRequest;
+import com.zerohub.challenge.proto.UnpublishRequest;
+import com.zerohub.challenge.proto.UnpublishResponse;
 import com.zerohub.challenge.service.ConverterService;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RatePair;
+import com.zerohub.challenge.service.RateSubscriptions;
+import com.zerohub.challenge.service.RateWriter;
 import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 @GrpcService
 public class RatesServiceImpl extends RatesServiceGrpc.RatesServiceImplBase {
 
+    private static final ThreadLocal<FixedDecimal> AMOUNTS = ThreadLocal.withInitial(FixedDecimal::new);
+    private static final ThreadLocal<FixedDecimal> RESULTS = ThreadLocal.withInitial(FixedDecimal::new);
+
     private final ConverterService converterService;
+    private final RateWriter rateWriter;
+    private final RateSubscriptions rateSubscriptions;
+    private final ScheduledExecutorService publishWindowScheduler;
+    private final PublishProperties publishProperties;
 
     @Autowired
-    public RatesServiceImpl(ConverterService converterService) {
+    public RatesServiceImpl(ConverterService converterService,
+                            RateWriter rateWriter,
+                            RateSubscriptions rateSubscriptions,
+                            @Qualifier("publishWindowScheduler") ScheduledExecutorService publishWindowScheduler,
+                            PublishProperties publishProperties) {
         this.converterService = converterService;
+        this.rateWriter = rateWriter;
+        this.rateSubscriptions = rateSubscriptions;
+        this.publishWindowScheduler = publishWindowScheduler;
+        this.publishProperties = publishProperties;
     }
 
+    /**
+     * The call only queues the rate, it is answered by the rate writer when the rate is visible
+     */
     @Override
     public void publish(PublishRequest request,
                         StreamObserver<Empty> responseObserver) {
-        converterService.addCurrencies(
-                request.getBaseCurrency(),
-                request.getQuoteCurrency(),
-                new BigDecimal(request.getPrice())
-        );
-        responseObserver.onNext(Empty.getDefaultInstance());
-        responseObserver.onCompleted();
+        Rate rate;
+        try {
+            rate = PublishedRates.toRate(request.getBaseCurrency(), request.getQuoteCurrency(), request.getPrice());
+        } catch (InvalidRateException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        PublishReplies.reply(rateWriter.publish(List.of(rate)), responseObserver, epoch -> Empty.getDefaultInstance());
+    }
+
+    /**
+     * A batch with an invalid rate is rejected as a whole
+     */
+    @Override
+    public void publishBatch(PublishBatchRequest request,
+                             StreamObserver<PublishBatchResponse> responseObserver) {
+        List<Rate> rates = new ArrayList<>(request.getRatesCount());
+        try {
+            for (PublishRequest rate : request.getRatesList()) {
+                rates.add(PublishedRates.toRate(rate.getBaseCurrency(), rate.getQuoteCurrency(), rate.getPrice()));
+            }
+        } catch (InvalidRateException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        PublishReplies.reply(rateWriter.publish(rates), responseObserver, epoch -> PublishBatchResponse
+                .newBuilder()
+                .setEpoch(epoch)
+                .setCount(rates.size())
+                .build());
+    }
+
+    @Override
+    public StreamObserver<PublishRequest> publishStream(StreamObserver<PublishStreamResponse> responseObserver) {
+        return new PublishStreamObserver(rateWriter, responseObserver, publishWindowScheduler, publishProperties);
     }
 
+    /**
+     * Removal is queued to the rate writer like a publish, so it is applied after rates published before it
+     */
+    @Override
+    public void unpublish(UnpublishRequest request,
+                          StreamObserver<UnpublishResponse> responseObserver) {
+        List<RatePair> pairs = new ArrayList<>(request.getPairsCount());
+        for (CurrencyPair pair : request.getPairsList()) {
+            pairs.add(new RatePair(pair.getFromCurrency(), pair.getToCurrency()));
+        }
+        PublishReplies.reply(rateWriter.unpublish(pairs), responseObserver, epoch -> UnpublishResponse
+                .newBuilder()
+                .setEpoch(epoch)
+                .build());
+    }
+
+    /**
+     * Missing currencies and rates are answered here with the status of {@code GrpcExceptionAdvice#toStatus},
+     * so probes of unknown currencies don't go through reflective lookup of the handler
+     */
     @Override
     public void convert(ConvertRequest request,
                         StreamObserver<ConvertResponse> responseObserver) {
-        BigDecimal result = converterService.convert(
+        String price;
+        try {
+            price = convertToString(request);
+        } catch (CurrencyNotFoundException | RateNotFoundException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        ConvertResponse response = ConvertResponse
+                .newBuilder()
+                .setPrice(price)
+                .build();
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Fixed-point conversion is tried first, and BigDecimal is used only when the numbers don't fit into it
+     */
+    private String convertToString(ConvertRequest request) {
+        FixedDecimal amount = AMOUNTS.get();
+        FixedDecimal result = RESULTS.get();
+        if (amount.parse(request.getFromAmount())
+                && converterService.convert(request.getFromCurrency(), request.getToCurrency(), amount, result)) {
+            return result.format();
+        }
+        BigDecimal price = converterService.convert(
                 request.getFromCurrency(),
                 request.getToCurrency(),
                 new BigDecimal(request.getFromAmount())
         );
+        return DecimalUtils.roundCarefully(price).toString();
+    }
+
+    /**
+     * Conversion with rates of a past instant is rare, so it always uses BigDecimal
+     */
+    @Override
+    public void convertAsOf(ConvertAsOfRequest request,
+                            StreamObserver<ConvertResponse> responseObserver) {
+        BigDecimal price;
+        try {
+            price = converterService.convertAsOf(request.getFromCurrency(), request.getToCurrency(),
+                    new BigDecimal(request.getFromAmount()), request.getTimestamp());
+        } catch (CurrencyNotFoundException | RateNotFoundException | RateHistoryUnavailableException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
         ConvertResponse response = ConvertResponse
                 .newBuilder()
-                .setPrice(DecimalUtils.roundCarefully(result).toString())
+                .setPrice(DecimalUtils.roundCarefully(price).toString())
                 .build();
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
+
+    @Override
+    public void convertBatch(ConvertBatchRequest request,
+                             StreamObserver<ConvertBatchResponse> responseObserver) {
+        responseObserver.onNext(ConvertBatches.convert(converterService.snapshot(), request));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<ConvertBatchRequest> convertStream(StreamObserver<ConvertBatchResponse> responseObserver) {
+        return new ConvertStreamObserver(converterService,
+                (ServerCallStreamObserver<ConvertBatchResponse>) responseObserver);
+    }
+
+    @Override
+    public void subscribe(SubscribeRequest request,
+                          StreamObserver<RateUpdate> responseObserver) {
+        List<RatePair> pairs = new ArrayList<>(request.getPairsCount());
+        for (CurrencyPair pair : request.getPairsList()) {
+            pairs.add(new RatePair(pair.getFromCurrency(), pair.getToCurrency()));
+        }
+        rateSubscriptions.subscribe(pairs,
+                new SubscriptionStream((ServerCallStreamObserver<RateUpdate>) responseObserver, rateSubscriptions));
+    }
 }
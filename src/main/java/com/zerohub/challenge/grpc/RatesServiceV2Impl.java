@@ -0,0 +1,182 @@
+package com.zerohub.challenge.grpc;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.proto.ConvertRequestV2;
+import com.zerohub.challenge.proto.ConvertResponseV2;
+import com.zerohub.challenge.proto.Decimal;
+import com.zerohub.challenge.proto.LookupCurrenciesRequest;
+import com.zerohub.challenge.proto.LookupCurrenciesResponse;
+import com.zerohub.challenge.proto.PublishBatchRequestV2;
+import com.zerohub.challenge.proto.PublishBatchResponse;
+import com.zerohub.challenge.proto.PublishRequestV2;
+import com.zerohub.challenge.proto.RatesServiceV2Grpc;
+import com.zerohub.challenge.service.ConverterService;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RateWriter;
+import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rates service with amounts as unscaled integers and scales, so a convert neither parses nor formats strings,
+ * and with currencies given by ids from {@code lookupCurrencies}. It works with the same {@link ConverterService}
+ * as {@link RatesServiceImpl}, so rates published by one version are seen by the other.
+ */
+@GrpcService
+public class RatesServiceV2Impl extends RatesServiceV2Grpc.RatesServiceV2ImplBase {
+
+    private static final ThreadLocal<FixedDecimal> AMOUNTS = ThreadLocal.withInitial(FixedDecimal::new);
+    private static final ThreadLocal<FixedDecimal> RESULTS = ThreadLocal.withInitial(FixedDecimal::new);
+
+    private final ConverterService converterService;
+    private final RateWriter rateWriter;
+
+    @Autowired
+    public RatesServiceV2Impl(ConverterService converterService, RateWriter rateWriter) {
+        this.converterService = converterService;
+        this.rateWriter = rateWriter;
+    }
+
+    @Override
+    public void lookupCurrencies(LookupCurrenciesRequest request,
+                                 StreamObserver<LookupCurrenciesResponse> responseObserver) {
+        LookupCurrenciesResponse.Builder response = LookupCurrenciesResponse.newBuilder();
+        for (String currency : request.getCurrenciesList()) {
+            response.addIds(converterService.currencyId(currency));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Publish by ids is possible only for currencies which were published before by codes.
+     * The rate is queued to the rate writer like by {@link RatesServiceImpl#publish}.
+     */
+    @Override
+    public void publish(PublishRequestV2 request,
+                        StreamObserver<Empty> responseObserver) {
+        Rate rate;
+        try {
+            rate = toRate(request);
+        } catch (CurrencyNotFoundException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        } catch (InvalidRateException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        PublishReplies.reply(rateWriter.publish(List.of(rate)), responseObserver, epoch -> Empty.getDefaultInstance());
+    }
+
+    @Override
+    public void publishBatch(PublishBatchRequestV2 request,
+                             StreamObserver<PublishBatchResponse> responseObserver) {
+        List<Rate> rates = new ArrayList<>(request.getRatesCount());
+        try {
+            for (PublishRequestV2 rate : request.getRatesList()) {
+                rates.add(toRate(rate));
+            }
+        } catch (CurrencyNotFoundException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        } catch (InvalidRateException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        PublishReplies.reply(rateWriter.publish(rates), responseObserver, epoch -> PublishBatchResponse
+                .newBuilder()
+                .setEpoch(epoch)
+                .setCount(rates.size())
+                .build());
+    }
+
+    @Override
+    public void convert(ConvertRequestV2 request,
+                        StreamObserver<ConvertResponseV2> responseObserver) {
+        Decimal price;
+        try {
+            price = convertToDecimal(request);
+        } catch (CurrencyNotFoundException | RateNotFoundException ex) {
+            responseObserver.onError(StacklessStatusException.of(ex));
+            return;
+        }
+        ConvertResponseV2 response = ConvertResponseV2
+                .newBuilder()
+                .setPrice(price)
+                .build();
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Fixed-point conversion is tried first, and BigDecimal is used only when the numbers don't fit into it
+     */
+    private Decimal convertToDecimal(ConvertRequestV2 request) {
+        String fromCurrency = request.getFromCase() == ConvertRequestV2.FromCase.FROMCURRENCYID
+                ? currencyCode(request.getFromCurrencyId())
+                : request.getFromCurrency();
+        String toCurrency = request.getToCase() == ConvertRequestV2.ToCase.TOCURRENCYID
+                ? currencyCode(request.getToCurrencyId())
+                : request.getToCurrency();
+        Decimal fromAmount = request.getFromAmount();
+        FixedDecimal amount = AMOUNTS.get();
+        FixedDecimal result = RESULTS.get();
+        if (fromAmount.getValueCase() != Decimal.ValueCase.BIGUNSCALED
+                && amount.set(fromAmount.getUnscaled(), fromAmount.getScale())
+                && converterService.convert(fromCurrency, toCurrency, amount, result)) {
+            return Decimal.newBuilder()
+                    .setUnscaled(result.getUnscaled())
+                    .setScale(result.getScale())
+                    .build();
+        }
+        BigDecimal price = converterService.convert(fromCurrency, toCurrency, toBigDecimal(fromAmount));
+        return toDecimal(DecimalUtils.roundCarefully(price));
+    }
+
+    private Rate toRate(PublishRequestV2 request) {
+        String baseCurrency = request.getBaseCase() == PublishRequestV2.BaseCase.BASECURRENCYID
+                ? currencyCode(request.getBaseCurrencyId())
+                : request.getBaseCurrency();
+        String quoteCurrency = request.getQuoteCase() == PublishRequestV2.QuoteCase.QUOTECURRENCYID
+                ? currencyCode(request.getQuoteCurrencyId())
+                : request.getQuoteCurrency();
+        return PublishedRates.toRate(baseCurrency, quoteCurrency, toBigDecimal(request.getPrice()));
+    }
+
+    private String currencyCode(long currencyId) {
+        String currency = converterService.currencyCode(currencyId);
+        if (currency == null) {
+            throw new CurrencyNotFoundException("id " + currencyId, null);
+        }
+        return currency;
+    }
+
+    private static BigDecimal toBigDecimal(Decimal decimal) {
+        if (decimal.getValueCase() == Decimal.ValueCase.BIGUNSCALED && !decimal.getBigUnscaled().isEmpty()) {
+            return new BigDecimal(new BigInteger(decimal.getBigUnscaled().toByteArray()), decimal.getScale());
+        }
+        return BigDecimal.valueOf(decimal.getUnscaled(), decimal.getScale());
+    }
+
+    private static Decimal toDecimal(BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        Decimal.Builder decimal = Decimal.newBuilder().setScale(value.scale());
+        if (unscaled.bitLength() < Long.SIZE) {
+            decimal.setUnscaled(unscaled.longValue());
+        } else {
+            decimal.setBigUnscaled(ByteString.copyFrom(unscaled.toByteArray()));
+        }
+        return decimal.build();
+    }
+}
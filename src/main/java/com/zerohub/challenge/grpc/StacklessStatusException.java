@@ -0,0 +1,29 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.exception.GrpcExceptionAdvice;
+import io.grpc.Status;
+import io.grpc.StatusException;
+
+/**
+ * Status of an expected failure, like a probe of an unknown currency.
+ * Only the status is sent to the client, so the stack trace is never built.
+ */
+final class StacklessStatusException extends StatusException {
+
+    StacklessStatusException(Status status) {
+        super(status);
+    }
+
+    /**
+     * @param ex business exception answered without throwing it
+     * @return exception with the status given by {@link GrpcExceptionAdvice}
+     */
+    static StacklessStatusException of(RuntimeException ex) {
+        return new StacklessStatusException(GrpcExceptionAdvice.toStatus(ex));
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
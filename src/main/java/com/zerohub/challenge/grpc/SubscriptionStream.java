@@ -0,0 +1,51 @@
+package com.zerohub.challenge.grpc;
+
+import com.zerohub.challenge.proto.RateUpdate;
+import com.zerohub.challenge.service.RateChange;
+import com.zerohub.challenge.service.RatePair;
+import com.zerohub.challenge.service.RateSubscriber;
+import com.zerohub.challenge.service.RateSubscriptions;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sends rate changes to a subscriber with conflation. Changes are sent while the stream is ready,
+ * otherwise only the last change of each pair is kept until the client reads the stream again.
+ * So a slow client gets the latest rates and the server keeps at most one change per subscribed pair.
+ */
+class SubscriptionStream implements RateSubscriber {
+
+    private final ServerCallStreamObserver<RateUpdate> responseObserver;
+    private final Map<RatePair, RateChange> pending = new LinkedHashMap<>();
+
+    SubscriptionStream(ServerCallStreamObserver<RateUpdate> responseObserver, RateSubscriptions subscriptions) {
+        this.responseObserver = responseObserver;
+        responseObserver.setOnReadyHandler(this::drain);
+        responseObserver.setOnCancelHandler(() -> subscriptions.unsubscribe(this));
+    }
+
+    @Override
+    public synchronized void onChange(RateChange change) {
+        pending.remove(change.getPair());
+        pending.put(change.getPair(), change);
+        drain();
+    }
+
+    private synchronized void drain() {
+        Iterator<RateChange> changes = pending.values().iterator();
+        while (changes.hasNext() && responseObserver.isReady() && !responseObserver.isCancelled()) {
+            RateChange change = changes.next();
+            changes.remove();
+            responseObserver.onNext(RateUpdate
+                    .newBuilder()
+                    .setFromCurrency(change.getPair().getFromCurrency())
+                    .setToCurrency(change.getPair().getToCurrency())
+                    .setRate(change.getRate().toPlainString())
+                    .setEpoch(change.getEpoch())
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.zerohub.challenge.history;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rates of one edge in order of time, stored by columns in blocks of up to {@link #MAX_BLOCK_SIZE} ticks.
+ * A block keeps times as int offsets from its first time and rates as unscaled longs with byte scales,
+ * so a tick takes about 13 bytes. The block of an instant is found by binary search over first times of blocks
+ * and the tick by binary search over offsets, so a query takes logarithmic time in the count of ticks.
+ * <p>
+ * Each tick keeps the rate in its published direction, the other direction is its inverse like in the graph,
+ * so a path of the current time is the same as the graph gives. A removed edge is a tick without a rate.
+ * Writers may record their ticks in another order than the graph applied them, so a tick of a write older
+ * than the last recorded one is dropped: the graph has already replaced its rate.
+ * Rates which don't fit into a long with a byte scale are kept as BigDecimal in the block.
+ */
+final class EdgeHistory {
+
+    static final int MAX_BLOCK_SIZE = 256;
+    private static final int MIN_BLOCK_SIZE = 8;
+    private static final byte REMOVED = Byte.MIN_VALUE;
+    private static final byte WIDE = Byte.MIN_VALUE + 1;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private long tickCount;
+    private long lastEpoch = Long.MIN_VALUE;
+
+    /**
+     * True while the edge is in the prune queue of its history
+     */
+    boolean pruneScheduled;
+
+    /**
+     * Append a tick unless the edge already has the same rate
+     *
+     * @param time     time of the tick in milliseconds, not before the last tick
+     * @param epoch    epoch of the graph write of the tick
+     * @param rate     rate from the first to the second currency or from the second to the first one,
+     *                 null when the edge is removed
+     * @param inverted true when the rate is from the second currency to the first one
+     * @return true when the tick is appended
+     */
+    boolean append(long time, long epoch, BigDecimal rate, boolean inverted) {
+        if (epoch < lastEpoch) {
+            return false;
+        }
+        lastEpoch = epoch;
+        Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (last != null && last.isSame(last.count - 1, rate, inverted)) {
+            return false;
+        }
+        if (last == null && rate == null) {
+            return false;
+        }
+        if (last == null || last.count == MAX_BLOCK_SIZE || time - last.base > Integer.MAX_VALUE) {
+            last = new Block(time);
+            blocks.add(last);
+        }
+        last.append(time, rate, inverted);
+        tickCount++;
+        return true;
+    }
+
+    /**
+     * @param time     instant in milliseconds
+     * @param reversed true for the rate from the second currency to the first one
+     * @return rate at the instant, null when the edge didn't exist
+     */
+    BigDecimal weightAt(long time, boolean reversed) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(middle).base <= time) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high < 0 ? null : blocks.get(high).weightAt(time, reversed);
+    }
+
+    /**
+     * Drop blocks which are followed by a block starting not after the horizon,
+     * so the rate at the horizon and after it is kept
+     *
+     * @param horizon first instant which must be answered, in milliseconds
+     * @return true when the edge has no rate since the horizon and the whole history is dropped
+     */
+    boolean prune(long horizon) {
+        if (blocks.isEmpty()) {
+            return true;
+        }
+        int dropped = 0;
+        while (dropped + 1 < blocks.size() && blocks.get(dropped + 1).base <= horizon) {
+            tickCount -= blocks.get(dropped).count;
+            dropped++;
+        }
+        if (dropped > 0) {
+            blocks.subList(0, dropped).clear();
+        }
+        Block last = blocks.get(blocks.size() - 1);
+        return last.isRemoved(last.count - 1) && last.timeOf(last.count - 1) <= horizon;
+    }
+
+    /**
+     * @return first horizon at which {@link #prune(long)} drops something, Long.MAX_VALUE when it drops nothing
+     * until new ticks are appended
+     */
+    long getPruneHorizon() {
+        if (blocks.size() > 1) {
+            return blocks.get(1).base;
+        }
+        if (blocks.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        Block last = blocks.get(0);
+        return last.isRemoved(last.count - 1) ? last.timeOf(last.count - 1) : Long.MAX_VALUE;
+    }
+
+    long getTickCount() {
+        return tickCount;
+    }
+
+    private static final class Block {
+        private final long base;
+        private int[] offsets = new int[MIN_BLOCK_SIZE];
+        private long[] unscaled = new long[MIN_BLOCK_SIZE];
+        private byte[] scales = new byte[MIN_BLOCK_SIZE];
+        private final long[] inverted = new long[MAX_BLOCK_SIZE / Long.SIZE];
+        private BigDecimal[] wide;
+        private int count;
+
+        private Block(long base) {
+            this.base = base;
+        }
+
+        private void append(long time, BigDecimal rate, boolean isInverted) {
+            if (count == offsets.length) {
+                int size = Math.min(MAX_BLOCK_SIZE, count * 2);
+                offsets = Arrays.copyOf(offsets, size);
+                unscaled = Arrays.copyOf(unscaled, size);
+                scales = Arrays.copyOf(scales, size);
+            }
+            offsets[count] = (int) (time - base);
+            if (rate == null) {
+                scales[count] = REMOVED;
+            } else if (fitsColumns(rate)) {
+                unscaled[count] = rate.unscaledValue().longValue();
+                scales[count] = (byte) rate.scale();
+            } else {
+                if (wide == null) {
+                    wide = new BigDecimal[MAX_BLOCK_SIZE];
+                }
+                wide[count] = rate;
+                scales[count] = WIDE;
+            }
+            if (isInverted) {
+                inverted[count / Long.SIZE] |= 1L << count;
+            }
+            count++;
+        }
+
+        private BigDecimal weightAt(long time, boolean reversed) {
+            int tick = tickAt(time);
+            if (tick < 0 || isRemoved(tick)) {
+                return null;
+            }
+            return isInverted(tick) == reversed ? rateOf(tick) : inverse(rateOf(tick));
+        }
+
+        /**
+         * @return index of the last tick not after the time
+         */
+        private int tickAt(long time) {
+            long offset = time - base;
+            if (offset > Integer.MAX_VALUE) {
+                return count - 1;
+            }
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (offsets[middle] <= offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+
+        private boolean isSame(int tick, BigDecimal rate, boolean isInverted) {
+            if (isRemoved(tick) || rate == null) {
+                return isRemoved(tick) && rate == null;
+            }
+            return isInverted(tick) == isInverted && rateOf(tick).equals(rate);
+        }
+
+        private boolean isRemoved(int tick) {
+            return scales[tick] == REMOVED;
+        }
+
+        private boolean isInverted(int tick) {
+            return (inverted[tick / Long.SIZE] & 1L << tick) != 0;
+        }
+
+        private long timeOf(int tick) {
+            return base + offsets[tick];
+        }
+
+        private BigDecimal rateOf(int tick) {
+            return scales[tick] == WIDE ? wide[tick] : BigDecimal.valueOf(unscaled[tick], scales[tick]);
+        }
+    }
+
+    /**
+     * Reversed weight is counted as the graph does when the rate is published
+     */
+    private static BigDecimal inverse(BigDecimal rate) {
+        return BigDecimal.ONE.divide(rate, MathContext.DECIMAL64);
+    }
+
+    private static boolean fitsColumns(BigDecimal rate) {
+        BigInteger value = rate.unscaledValue();
+        return value.bitLength() < Long.SIZE && rate.scale() > WIDE && rate.scale() <= Byte.MAX_VALUE;
+    }
+}
@@ -0,0 +1,307 @@
+package com.zerohub.challenge.history;
+
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.RateHistoryUnavailableException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.graph.EdgeList;
+import com.zerohub.challenge.graph.GraphImage;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RatePair;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rates of each edge within the retention window, so a conversion of a past instant is repriced
+ * from rates of that instant. A query searches paths like the preprocessing and on-demand engines do:
+ * paths with the fewest edges, the largest length among them, so a query of the current time gives their result.
+ * The potentials engine ignores edges which close a cycle, so it may differ when cycles are inconsistent.
+ * Each edge on the way is looked up by binary search, see {@link EdgeHistory}, and the feed is never replayed.
+ * <p>
+ * A write is recorded with the time it started and the epoch of its snapshot. Times only move forward,
+ * and ticks of each edge follow epochs, so concurrent writers recording in another order than the graph
+ * applied their writes leave the rate of the graph in force.
+ * <p>
+ * Ticks older than the window are dropped by blocks in {@link #prune(long)}, but the rate in force at the start
+ * of the window is kept. Writes only queue an edge by the time its oldest block leaves the window,
+ * so a prune visits only edges with something to drop and is called off the write path, see {@link RateHistoryPruner}.
+ * The history starts when the server starts: rates restored on startup are recorded
+ * as published at that time, and queries before it are not answered.
+ */
+public class RateHistory {
+
+    private final long retentionMillis;
+    private final long startTime;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Currency> currencies = new HashMap<>();
+    private final PriorityQueue<PruneTask> pruneTasks = new PriorityQueue<>(Comparator.comparingLong(task -> task.due));
+
+    private long lastTime;
+    private long tickCount;
+
+    /**
+     * @param retention how long rates are kept
+     * @param startTime first instant of the history in milliseconds
+     */
+    public RateHistory(Duration retention, long startTime) {
+        this.retentionMillis = retention.toMillis();
+        this.startTime = startTime;
+        this.lastTime = startTime;
+    }
+
+    /**
+     * Record rates of the graph restored on startup
+     *
+     * @param image image of the restored graph
+     */
+    public void record(GraphImage image) {
+        List<Rate> rates = new ArrayList<>();
+        for (int id = 0; id < image.getCurrencyCount(); id++) {
+            EdgeList edges = image.getEdges(id);
+            for (int i = 0; i < edges.size(); i++) {
+                int target = edges.getTarget(i);
+                if (id < target) {
+                    rates.add(new Rate(image.getCurrency(id), image.getCurrency(target), edges.getWeight(i)));
+                }
+            }
+        }
+        record(startTime, image.getEpoch(), rates);
+    }
+
+    /**
+     * @param time  time of the write in milliseconds, a time before the last recorded one is moved to it
+     * @param epoch epoch of the snapshot which contains the rates, orders ticks of each edge like the graph
+     * @param rates applied rates in order of publishing
+     */
+    public void record(long time, long epoch, List<Rate> rates) {
+        lock.writeLock().lock();
+        try {
+            long tickTime = advance(time);
+            for (Rate rate : rates) {
+                boolean inverted = rate.getBaseCurrency().compareTo(rate.getQuoteCurrency()) > 0;
+                Currency first = currency(inverted ? rate.getQuoteCurrency() : rate.getBaseCurrency());
+                Currency second = currency(inverted ? rate.getBaseCurrency() : rate.getQuoteCurrency());
+                EdgeHistory edge = first.edges.get(second);
+                if (edge == null) {
+                    edge = new EdgeHistory();
+                    first.edges.put(second, edge);
+                    second.edges.put(first, edge);
+                }
+                if (edge.append(tickTime, epoch, rate.getPrice(), inverted)) {
+                    tickCount++;
+                    schedulePrune(first, second, edge);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param time  time of the write in milliseconds
+     * @param epoch epoch of the snapshot without the rates
+     * @param pairs currency pairs of removed rates
+     */
+    public void recordRemoval(long time, long epoch, List<RatePair> pairs) {
+        lock.writeLock().lock();
+        try {
+            long tickTime = advance(time);
+            for (RatePair pair : pairs) {
+                Currency from = currencies.get(pair.getFromCurrency());
+                Currency to = currencies.get(pair.getToCurrency());
+                EdgeHistory edge = from == null || to == null ? null : from.edges.get(to);
+                if (edge != null && edge.append(tickTime, epoch, null, false)) {
+                    tickCount++;
+                    schedulePrune(from, to, edge);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the path between two currencies from rates in force at the instant
+     *
+     * @param fromCurrency first currency of the path
+     * @param toCurrency   last currency of the path
+     * @param time         instant in milliseconds
+     * @param now          current time in milliseconds
+     * @return product of rates along the path
+     * @throws RateHistoryUnavailableException when the instant is out of the retention window
+     * @throws CurrencyNotFoundException       when a currency had no rates at the instant
+     * @throws RateNotFoundException           when there was no path at the instant
+     */
+    public BigDecimal findPath(String fromCurrency, String toCurrency, long time, long now) {
+        long horizon = Math.max(startTime, now - retentionMillis);
+        if (time < horizon) {
+            throw new RateHistoryUnavailableException("Rates before " + Instant.ofEpochMilli(horizon)
+                    + " are not kept");
+        }
+        lock.readLock().lock();
+        try {
+            Currency from = currencyAt(fromCurrency, time);
+            Currency to = currencyAt(toCurrency, time);
+            BigDecimal length = search(from, to, time);
+            if (length == null) {
+                throw new RateNotFoundException(fromCurrency, toCurrency, null);
+            }
+            return length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return count of kept ticks of all edges
+     */
+    public long getTickCount() {
+        lock.readLock().lock();
+        try {
+            return tickCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Breadth-first search by layers like {@code PathSearch} of the graph, edges without a rate at the time are skipped
+     */
+    private static BigDecimal search(Currency from, Currency to, long time) {
+        Map<Currency, BigDecimal> lengths = new HashMap<>();
+        lengths.put(from, BigDecimal.ONE);
+        Queue<Currency> layer = new ArrayDeque<>();
+        layer.add(from);
+        while (!layer.isEmpty() && !lengths.containsKey(to)) {
+            Map<Currency, BigDecimal> next = new LinkedHashMap<>();
+            for (Currency currency : layer) {
+                BigDecimal length = lengths.get(currency);
+                for (Map.Entry<Currency, EdgeHistory> edge : currency.edges.entrySet()) {
+                    Currency target = edge.getKey();
+                    if (lengths.containsKey(target)) {
+                        continue;
+                    }
+                    BigDecimal weight = edge.getValue().weightAt(time, currency.code.compareTo(target.code) > 0);
+                    if (weight == null) {
+                        continue;
+                    }
+                    BigDecimal targetLength = length.multiply(weight, MathContext.DECIMAL64);
+                    next.merge(target, targetLength, BigDecimal::max);
+                }
+            }
+            lengths.putAll(next);
+            layer = new ArrayDeque<>(next.keySet());
+        }
+        return lengths.get(to);
+    }
+
+    private Currency currencyAt(String code, long time) {
+        Currency currency = currencies.get(code);
+        if (currency != null) {
+            for (EdgeHistory edge : currency.edges.values()) {
+                if (edge.weightAt(time, false) != null) {
+                    return currency;
+                }
+            }
+        }
+        throw new CurrencyNotFoundException(code, null);
+    }
+
+    private Currency currency(String code) {
+        return currencies.computeIfAbsent(code, Currency::new);
+    }
+
+    private long advance(long time) {
+        lastTime = Math.max(lastTime, time);
+        return lastTime;
+    }
+
+    /**
+     * Drop ticks before the start of the window. Edges removed before it are dropped with their currencies
+     * when they have no other edges.
+     *
+     * @param now current time in milliseconds
+     */
+    public void prune(long now) {
+        long horizon = now - retentionMillis;
+        lock.writeLock().lock();
+        try {
+            PruneTask task;
+            while ((task = pruneTasks.peek()) != null && task.due <= now) {
+                pruneTasks.poll();
+                EdgeHistory edge = task.edge;
+                edge.pruneScheduled = false;
+                long ticks = edge.getTickCount();
+                if (edge.prune(horizon)) {
+                    tickCount -= ticks;
+                    drop(task.first, task.second);
+                } else {
+                    tickCount -= ticks - edge.getTickCount();
+                    schedulePrune(task.first, task.second, edge);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * An edge stays queued until its due time, ticks appended meanwhile can only make it later
+     */
+    private void schedulePrune(Currency first, Currency second, EdgeHistory edge) {
+        if (edge.pruneScheduled) {
+            return;
+        }
+        long horizon = edge.getPruneHorizon();
+        if (horizon != Long.MAX_VALUE) {
+            edge.pruneScheduled = true;
+            pruneTasks.add(new PruneTask(horizon + retentionMillis, first, second, edge));
+        }
+    }
+
+    private void drop(Currency first, Currency second) {
+        first.edges.remove(second);
+        second.edges.remove(first);
+        if (first.edges.isEmpty()) {
+            currencies.remove(first.code);
+        }
+        if (second.edges.isEmpty()) {
+            currencies.remove(second.code);
+        }
+    }
+
+    private static final class Currency {
+        private final String code;
+        private final Map<Currency, EdgeHistory> edges = new LinkedHashMap<>();
+
+        private Currency(String code) {
+            this.code = code;
+        }
+    }
+
+    private static final class PruneTask {
+        private final long due;
+        private final Currency first;
+        private final Currency second;
+        private final EdgeHistory edge;
+
+        private PruneTask(long due, Currency first, Currency second, EdgeHistory edge) {
+            this.due = due;
+            this.first = first;
+            this.second = second;
+            this.edge = edge;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.zerohub.challenge.history;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops ticks which left the retention window of the history from its own thread,
+ * so writers recording rates never prune
+ */
+public class RateHistoryPruner implements AutoCloseable {
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param rateHistory   pruned history
+     * @param pruneInterval period of prunes
+     */
+    public RateHistoryPruner(RateHistory rateHistory, Duration pruneInterval) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-history-prune");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> rateHistory.prune(System.currentTimeMillis()),
+                pruneInterval.toMillis(), pruneInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,22 @@
+package com.zerohub.challenge.metrics;
+
+public interface GraphMetricsMXBean {
+
+    int getVertexCount();
+
+    /**
+     * @return count of path entries kept by the graph engine
+     */
+    long getPathTableSize();
+
+    /**
+     * @return count of merges of components counted by the preprocessing engine
+     */
+    long getRecomputeCount();
+
+    /**
+     * @return count of paths written by merges of components
+     */
+    long getRecomputedPairs();
+
+}
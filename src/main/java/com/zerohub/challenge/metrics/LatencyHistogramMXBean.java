@@ -0,0 +1,22 @@
+package com.zerohub.challenge.metrics;
+
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    /**
+     * Start a new window of measurements
+     */
+    void reset();
+
+}
@@ -0,0 +1,45 @@
+package com.zerohub.challenge.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers metrics as MBeans of one domain and unregisters them on close
+ */
+public class MetricsExporter implements AutoCloseable {
+
+    private final MBeanServer server;
+    private final String domain;
+    private final List<ObjectName> names = new ArrayList<>();
+
+    public MetricsExporter(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+    }
+
+    /**
+     * @param type    type of the metrics
+     * @param name    name of the metrics
+     * @param metrics object implementing an MXBean interface
+     */
+    public synchronized void register(String type, String name, Object metrics) {
+        try {
+            ObjectName objectName = new ObjectName(domain + ":type=" + type + ",name=" + name);
+            server.registerMBean(metrics, objectName);
+            names.add(objectName);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Metrics " + type + " " + name + " are not registered", ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws JMException {
+        for (ObjectName name : names) {
+            server.unregisterMBean(name);
+        }
+        names.clear();
+    }
+}
@@ -0,0 +1,97 @@
+package com.zerohub.challenge.metrics;
+
+import io.grpc.Status;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and failures of one gRPC method
+ */
+public final class RpcMetrics implements RpcMetricsMXBean {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+
+    /**
+     * @param nanos duration of the call from its start to its close
+     * @param code  status of the closed call
+     */
+    public void record(long nanos, Status.Code code) {
+        latency.record(nanos);
+        if (code == Status.Code.NOT_FOUND) {
+            notFound.increment();
+        } else if (code != Status.Code.OK) {
+            errors.increment();
+        }
+    }
+
+    public void recordReceived() {
+        received.increment();
+    }
+
+    public void recordSent() {
+        sent.increment();
+    }
+
+    @Override
+    public long getNotFoundCount() {
+        return notFound.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    @Override
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanMicros();
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxMicros();
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getP50Micros();
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getP99Micros();
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getP999Micros();
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        notFound.reset();
+        errors.reset();
+        received.reset();
+        sent.reset();
+    }
+}
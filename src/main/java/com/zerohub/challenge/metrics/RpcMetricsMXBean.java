@@ -0,0 +1,25 @@
+package com.zerohub.challenge.metrics;
+
+public interface RpcMetricsMXBean extends LatencyHistogramMXBean {
+
+    /**
+     * @return count of calls closed with NOT_FOUND status
+     */
+    long getNotFoundCount();
+
+    /**
+     * @return count of calls closed with other not OK statuses
+     */
+    long getErrorCount();
+
+    /**
+     * @return count of messages received by streaming calls
+     */
+    long getReceivedCount();
+
+    /**
+     * @return count of messages sent by streaming calls
+     */
+    long getSentCount();
+
+}
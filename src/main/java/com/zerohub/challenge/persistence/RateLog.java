@@ -0,0 +1,293 @@
+package com.zerohub.challenge.persistence;
+
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RatePair;
+import lombok.Value;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted publishes and removals split into numbered segments.
+ * Each record is the payload size, CRC32 of the payload and the payload: epoch, count of rates and the rates.
+ * A removal has a negative count followed by currency pairs of the removed rates.
+ * A record torn by a crash or damaged on disk fails its size or checksum,
+ * so reading stops before it and the segment is truncated there.
+ */
+final class RateLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "rates-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 64 << 20;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+    private FileChannel channel;
+    private long segment;
+
+    /**
+     * @param directory directory of segments
+     * @param fsync     force each record to the disk before the publish is acknowledged
+     */
+    RateLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Read records of segments from the given one and open a new segment for appends.
+     * Lower segments are contained in the image, so they are deleted, like after saving the image.
+     *
+     * @param firstSegment number of the first segment to read, 0 reads all segments
+     * @return valid records in order of appending
+     */
+    synchronized List<Record> open(long firstSegment) throws IOException {
+        deleteBefore(firstSegment);
+        List<Long> segments = segments();
+        List<Record> records = new ArrayList<>();
+        for (long number : segments) {
+            if (!read(number, records)) {
+                break;
+            }
+        }
+        segment = segments.isEmpty() ? Math.max(1, firstSegment) : segments.get(segments.size() - 1) + 1;
+        channel = openSegment(segment);
+        return records;
+    }
+
+    /**
+     * Append the record to the current segment
+     *
+     * @param epoch epoch of the snapshot which contains the rates
+     * @param rates published rates
+     * @throws UncheckedIOException when the record can't be written, then the publish must not be acknowledged
+     */
+    synchronized void append(long epoch, List<Rate> rates) {
+        write(epoch, encode(epoch, rates));
+    }
+
+    /**
+     * Append the removal record to the current segment
+     *
+     * @param epoch epoch of the snapshot without the rates
+     * @param pairs currency pairs of removed rates
+     * @throws UncheckedIOException when the record can't be written, then the removal must not be acknowledged
+     */
+    synchronized void appendRemoval(long epoch, List<RatePair> pairs) {
+        write(epoch, encodeRemoval(epoch, pairs));
+    }
+
+    private void write(long epoch, ByteBuffer record) {
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Record of epoch " + epoch + " is not written to the log", ex);
+        }
+    }
+
+    /**
+     * Close the current segment and start the next one
+     *
+     * @return number of the new segment, all records appended before are in lower segments
+     */
+    synchronized long rotate() throws IOException {
+        channel.close();
+        segment++;
+        channel = openSegment(segment);
+        return segment;
+    }
+
+    /**
+     * Delete segments lower than the given one
+     *
+     * @param number number of the first kept segment
+     */
+    void deleteBefore(long number) throws IOException {
+        for (long existed : segments()) {
+            if (existed < number) {
+                Files.deleteIfExists(segmentPath(existed));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return false when the segment has a damaged record and the next segments should not be read
+     */
+    private boolean read(long number, List<Record> records) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(segmentChannel.size(), Integer.MAX_VALUE));
+            while (data.hasRemaining() && segmentChannel.read(data) >= 0) {
+                // read the whole segment
+            }
+            data.flip();
+            while (data.remaining() >= RECORD_HEADER_SIZE) {
+                int start = data.position();
+                int size = data.getInt();
+                int checksum = data.getInt();
+                if (size < 0 || size > MAX_RECORD_SIZE || size > data.remaining()
+                        || checksum(data, data.position(), size) != checksum) {
+                    data.position(start);
+                    break;
+                }
+                records.add(decode(data));
+                data.position(start + RECORD_HEADER_SIZE + size);
+            }
+            if (data.hasRemaining()) {
+                segmentChannel.truncate(data.position());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private ByteBuffer encode(long epoch, List<Rate> rates) {
+        buffer.clear();
+        buffer.position(RECORD_HEADER_SIZE);
+        ensureRemaining(Long.BYTES + Integer.BYTES);
+        buffer.putLong(epoch);
+        buffer.putInt(rates.size());
+        for (Rate rate : rates) {
+            putCode(rate.getBaseCurrency());
+            putCode(rate.getQuoteCurrency());
+            byte[] unscaled = rate.getPrice().unscaledValue().toByteArray();
+            ensureRemaining(Integer.BYTES + Short.BYTES + unscaled.length);
+            buffer.putInt(rate.getPrice().scale());
+            buffer.putShort((short) unscaled.length);
+            buffer.put(unscaled);
+        }
+        return finishRecord();
+    }
+
+    private ByteBuffer encodeRemoval(long epoch, List<RatePair> pairs) {
+        buffer.clear();
+        buffer.position(RECORD_HEADER_SIZE);
+        ensureRemaining(Long.BYTES + Integer.BYTES);
+        buffer.putLong(epoch);
+        buffer.putInt(-pairs.size());
+        for (RatePair pair : pairs) {
+            putCode(pair.getFromCurrency());
+            putCode(pair.getToCurrency());
+        }
+        return finishRecord();
+    }
+
+    private ByteBuffer finishRecord() {
+        int size = buffer.position() - RECORD_HEADER_SIZE;
+        buffer.putInt(0, size);
+        buffer.putInt(Integer.BYTES, checksum(buffer, RECORD_HEADER_SIZE, size));
+        return buffer.flip();
+    }
+
+    private static Record decode(ByteBuffer data) {
+        long epoch = data.getLong();
+        int count = data.getInt();
+        if (count < 0) {
+            List<RatePair> pairs = new ArrayList<>(-count);
+            for (int i = 0; i < -count; i++) {
+                pairs.add(new RatePair(getCode(data), getCode(data)));
+            }
+            return new Record(epoch, List.of(), pairs);
+        }
+        List<Rate> rates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String base = getCode(data);
+            String quote = getCode(data);
+            int scale = data.getInt();
+            byte[] unscaled = new byte[data.getShort() & 0xFFFF];
+            data.get(unscaled);
+            rates.add(new Rate(base, quote, new BigDecimal(new BigInteger(unscaled), scale)));
+        }
+        return new Record(epoch, rates, List.of());
+    }
+
+    private void putCode(String code) {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(Short.BYTES + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getCode(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xFFFF];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureRemaining(int size) {
+        if (buffer.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            larger.put(buffer.flip());
+            buffer = larger;
+        }
+    }
+
+    private int checksum(ByteBuffer data, int offset, int size) {
+        crc.reset();
+        crc.update(data.array(), data.arrayOffset() + offset, size);
+        return (int) crc.getValue();
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Rates of one accepted publish or pairs of one removal
+     */
+    @Value
+    static class Record {
+
+        long epoch;
+        List<Rate> rates;
+        List<RatePair> removedPairs;
+
+    }
+}
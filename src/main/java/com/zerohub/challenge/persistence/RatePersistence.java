@@ -0,0 +1,178 @@
+package com.zerohub.challenge.persistence;
+
+import com.zerohub.challenge.exception.graph.GraphImageCorruptedException;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.Edge;
+import com.zerohub.challenge.graph.GraphImage;
+import com.zerohub.challenge.graph.GraphImageFile;
+import com.zerohub.challenge.graph.VertexPair;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RateJournal;
+import com.zerohub.challenge.service.RatePair;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the graph between restarts: every accepted publish is appended to {@link RateLog},
+ * and the image of the graph is saved periodically by {@link GraphImageFile}.
+ * The image records the first log segment it doesn't contain, so on start the image is mapped,
+ * lower segments left by a crash after saving the image are deleted and only records of later epochs are replayed.
+ * Update times of rates are not kept, so restored rates expire as if they were published on start.
+ * <p>
+ * Records are appended after their publish is applied, so records of one component may be appended
+ * out of order by concurrent writers. Replay sorts them by epoch, which is the order of applying.
+ */
+@Slf4j
+public class RatePersistence implements RateJournal {
+
+    private static final String IMAGE_FILE = "graph.img";
+
+    private final DirectedWeightedGraph graph;
+    private final Path directory;
+    private final Duration imageInterval;
+    private final RateLog rateLog;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param graph         graph to restore and save
+     * @param directory     directory of the image and the log
+     * @param imageInterval period of saving the image, zero disables periodic saving
+     * @param fsync         force each log record to the disk before the publish is acknowledged
+     */
+    public RatePersistence(DirectedWeightedGraph graph, Path directory, Duration imageInterval, boolean fsync) {
+        this.graph = graph;
+        this.directory = directory;
+        this.imageInterval = imageInterval;
+        this.rateLog = new RateLog(directory, fsync);
+    }
+
+    /**
+     * Restore the graph from the image and the log tail, then save the restored graph as a new image,
+     * so the next appended records follow its epochs. The image is kept when the graph has restored
+     * its epoch and there was no tail. The graph must be empty.
+     *
+     * @throws GraphImageCorruptedException when the image is damaged, the image and the log are left untouched
+     */
+    public synchronized void start() throws IOException {
+        long startedAt = System.nanoTime();
+        Files.createDirectories(directory);
+        GraphImage restored = restoreImage();
+        long imageEpoch = restored == null ? 0 : restored.getEpoch();
+        List<RateLog.Record> records = new ArrayList<>(rateLog.open(restored == null ? 0 : restored.getLogSegment()));
+        records.sort(Comparator.comparingLong(RateLog.Record::getEpoch));
+        int replayed = 0;
+        for (RateLog.Record record : records) {
+            if (record.getEpoch() > imageEpoch) {
+                if (record.getRemovedPairs().isEmpty()) {
+                    graph.addEdges(toEdges(record.getRates()));
+                } else {
+                    graph.removeEdges(toVertexPairs(record.getRemovedPairs()), new ArrayList<>());
+                }
+                replayed++;
+            }
+        }
+        if (replayed == 0 && imageEpoch > 0 && graph.snapshot().getEpoch() == imageEpoch) {
+            rateLog.deleteBefore(rateLog.rotate());
+        } else {
+            saveImage();
+        }
+        log.info("Restored graph of epoch {} and {} log records in {} ms", imageEpoch, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        if (!imageInterval.isZero()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "graph-image");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::savePeriodicImage, imageInterval.toMillis(),
+                    imageInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save the last image and close the log
+     */
+    public synchronized void stop() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        saveImage();
+        rateLog.close();
+    }
+
+    @Override
+    public void append(long epoch, List<Rate> rates) {
+        rateLog.append(epoch, rates);
+    }
+
+    @Override
+    public void appendRemoval(long epoch, List<RatePair> pairs) {
+        rateLog.appendRemoval(epoch, pairs);
+    }
+
+    /**
+     * Save the image of the graph and delete log segments contained in it.
+     * The log is rotated before the image is taken, so every record of the deleted segments
+     * was applied before the image. The image is moved over the previous one before the segments are deleted
+     * and records the first kept segment, so a crash in between leaves segments which the next start deletes.
+     */
+    public synchronized void saveImage() throws IOException {
+        long segment = rateLog.rotate();
+        GraphImage image = graph.image().withLogSegment(segment);
+        long size = GraphImageFile.write(image, directory.resolve(IMAGE_FILE));
+        rateLog.deleteBefore(segment);
+        log.debug("Saved graph image of epoch {} with {} currencies, {} bytes",
+                image.getEpoch(), image.getCurrencyCount(), size);
+    }
+
+    /**
+     * Log segments contained in the image are deleted when it is saved, so the log alone can't replace
+     * a damaged image. The startup fails and the files are kept as they are.
+     *
+     * @return the restored image or null when there is no image
+     * @throws GraphImageCorruptedException when the image is damaged
+     */
+    private GraphImage restoreImage() throws IOException {
+        Path file = directory.resolve(IMAGE_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        GraphImage image = GraphImageFile.read(file);
+        graph.restore(image);
+        return image;
+    }
+
+    private void savePeriodicImage() {
+        try {
+            saveImage();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Graph image is not saved", ex);
+        }
+    }
+
+    private static List<Edge> toEdges(List<Rate> rates) {
+        List<Edge> edges = new ArrayList<>(rates.size());
+        for (Rate rate : rates) {
+            edges.add(new Edge(rate.getBaseCurrency(), rate.getQuoteCurrency(), rate.getPrice()));
+        }
+        return edges;
+    }
+
+    private static List<VertexPair> toVertexPairs(List<RatePair> pairs) {
+        List<VertexPair> vertexPairs = new ArrayList<>(pairs.size());
+        for (RatePair pair : pairs) {
+            vertexPairs.add(new VertexPair(pair.getFromCurrency(), pair.getToCurrency()));
+        }
+        return vertexPairs;
+    }
+}
@@ -1,11 +1,76 @@
 package com.zerohub.challenge.service;
 
+import com.zerohub.challenge.utils.FixedDecimal;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface ConverterService {
 
     void addCurrencies(String baseCurrency, String quoteCurrency, BigDecimal price);
 
+    /**
+     * Add rates as one write. Only the last rate of each currency pair is used.
+     *
+     * @param rates rates in order of publishing
+     * @return epoch of the rates snapshot which contains the rates
+     * @throws com.zerohub.challenge.exception.business.InvalidRateException when a price is not positive,
+     *                                                                      no rate is applied then
+     */
+    long addCurrencies(List<Rate> rates);
+
+    /**
+     * Remove rates as one write. Currencies left without rates are removed.
+     *
+     * @param pairs currency pairs in any direction, pairs without a rate are skipped
+     * @return epoch of the rates snapshot without the rates
+     */
+    long removeCurrencies(List<RatePair> pairs);
+
+    /**
+     * Remove rates which were not published since the time
+     *
+     * @param timestamp time in milliseconds
+     * @return count of removed rates
+     */
+    int removeRatesUpdatedBefore(long timestamp);
+
     BigDecimal convert(String fromCurrency, String toCurrency, BigDecimal fromAmount);
 
+    /**
+     * Convert with the last rates like {@link RatesSnapshot#convert(String, String, FixedDecimal, FixedDecimal)}
+     */
+    boolean convert(String fromCurrency, String toCurrency, FixedDecimal fromAmount, FixedDecimal result);
+
+    /**
+     * Convert with rates in force at a past instant
+     *
+     * @param timestamp instant in milliseconds
+     * @throws com.zerohub.challenge.exception.business.RateHistoryUnavailableException
+     *         when the history is disabled or doesn't keep the instant
+     */
+    BigDecimal convertAsOf(String fromCurrency, String toCurrency, BigDecimal fromAmount, long timestamp);
+
+    /**
+     * Get id of the currency for calls which pass currencies by ids.
+     * The id is never assigned to another currency while the server runs.
+     *
+     * @param currency currency code
+     * @return id of the currency or -1 when the currency is unknown
+     */
+    long currencyId(String currency);
+
+    /**
+     * @param currencyId id of the currency
+     * @return currency code or null when the currency of the id is removed
+     */
+    String currencyCode(long currencyId);
+
+    /**
+     * Get rates of the last finished write. Use one snapshot to convert several amounts consistently.
+     *
+     * @return snapshot of the rates
+     */
+    RatesSnapshot snapshot();
+
 }
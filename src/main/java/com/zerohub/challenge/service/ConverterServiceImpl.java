@@ -1,30 +1,189 @@
 package com.zerohub.challenge.service;
 
 import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.RateHistoryUnavailableException;
 import com.zerohub.challenge.exception.business.RateNotFoundException;
 import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
 import com.zerohub.challenge.exception.graph.VertexNotFoundException;
 import com.zerohub.challenge.graph.DirectedWeightedGraph;
-import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import com.zerohub.challenge.graph.Edge;
+import com.zerohub.challenge.graph.GraphSnapshot;
+import com.zerohub.challenge.graph.VertexPair;
+import com.zerohub.challenge.history.RateHistory;
+import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ConverterServiceImpl implements ConverterService {
 
-    private final DirectedWeightedGraph currencyGraph = new DirectedWeightedGraphWithPreprocessing();
+    private final DirectedWeightedGraph currencyGraph;
+
+    private final RateJournal rateJournal;
+
+    private final RateHistory rateHistory;
+
+    public ConverterServiceImpl(DirectedWeightedGraph currencyGraph) {
+        this(currencyGraph, Optional.empty());
+    }
+
+    public ConverterServiceImpl(DirectedWeightedGraph currencyGraph, Optional<RateJournal> rateJournal) {
+        this(currencyGraph, rateJournal, Optional.empty());
+    }
+
+    @Autowired
+    public ConverterServiceImpl(DirectedWeightedGraph currencyGraph, Optional<RateJournal> rateJournal,
+                                Optional<RateHistory> rateHistory) {
+        this.currencyGraph = currencyGraph;
+        this.rateJournal = rateJournal.orElse(null);
+        this.rateHistory = rateHistory.orElse(null);
+    }
 
     @Override
     public void addCurrencies(String baseCurrency, String quoteCurrency, BigDecimal price) {
-        currencyGraph.addEdge(baseCurrency, quoteCurrency, price);
+        if (rateJournal == null && rateHistory == null) {
+            currencyGraph.addEdge(baseCurrency, quoteCurrency, price);
+        } else {
+            addCurrencies(List.of(new Rate(baseCurrency, quoteCurrency, price)));
+        }
+    }
+
+    @Override
+    public long addCurrencies(List<Rate> rates) {
+        List<Edge> edges = new ArrayList<>(rates.size());
+        for (Rate rate : rates) {
+            if (rate.getPrice().signum() <= 0) {
+                throw new InvalidRateException(rate.getBaseCurrency(), rate.getQuoteCurrency(),
+                        rate.getPrice().toPlainString());
+            }
+            edges.add(new Edge(rate.getBaseCurrency(), rate.getQuoteCurrency(), rate.getPrice()));
+        }
+        long time = System.currentTimeMillis();
+        long epoch = currencyGraph.addEdges(edges);
+        if (rateHistory != null) {
+            rateHistory.record(time, epoch, rates);
+        }
+        if (rateJournal != null) {
+            rateJournal.append(epoch, rates);
+        }
+        return epoch;
+    }
+
+    @Override
+    public long removeCurrencies(List<RatePair> pairs) {
+        List<VertexPair> vertexPairs = new ArrayList<>(pairs.size());
+        for (RatePair pair : pairs) {
+            vertexPairs.add(new VertexPair(pair.getFromCurrency(), pair.getToCurrency()));
+        }
+        List<VertexPair> removed = new ArrayList<>();
+        long time = System.currentTimeMillis();
+        long epoch = currencyGraph.removeEdges(vertexPairs, removed);
+        appendRemoval(time, epoch, removed);
+        return epoch;
+    }
+
+    @Override
+    public int removeRatesUpdatedBefore(long timestamp) {
+        List<VertexPair> removed = new ArrayList<>();
+        long time = System.currentTimeMillis();
+        long epoch = currencyGraph.removeEdgesUpdatedBefore(timestamp, removed);
+        appendRemoval(time, epoch, removed);
+        return removed.size();
+    }
+
+    private void appendRemoval(long time, long epoch, List<VertexPair> removed) {
+        if ((rateJournal == null && rateHistory == null) || removed.isEmpty()) {
+            return;
+        }
+        List<RatePair> pairs = new ArrayList<>(removed.size());
+        for (VertexPair pair : removed) {
+            pairs.add(new RatePair(pair.getVertexA(), pair.getVertexB()));
+        }
+        if (rateHistory != null) {
+            rateHistory.recordRemoval(time, epoch, pairs);
+        }
+        if (rateJournal != null) {
+            rateJournal.appendRemoval(epoch, pairs);
+        }
     }
 
     @Override
     public BigDecimal convert(String fromCurrency, String toCurrency, BigDecimal fromAmount) {
+        return snapshot().convert(fromCurrency, toCurrency, fromAmount);
+    }
+
+    @Override
+    public boolean convert(String fromCurrency, String toCurrency, FixedDecimal fromAmount, FixedDecimal result) {
+        return convert(currencyGraph.snapshot(), fromCurrency, toCurrency, fromAmount, result);
+    }
+
+    @Override
+    public BigDecimal convertAsOf(String fromCurrency, String toCurrency, BigDecimal fromAmount, long timestamp) {
+        if (rateHistory == null) {
+            throw new RateHistoryUnavailableException("Rate history is disabled");
+        }
+        BigDecimal factor = rateHistory.findPath(fromCurrency, toCurrency, timestamp, System.currentTimeMillis());
+        return fromAmount.multiply(factor);
+    }
+
+    @Override
+    public long currencyId(String currency) {
+        return currencyGraph.getStableVertexId(currency);
+    }
+
+    @Override
+    public String currencyCode(long currencyId) {
+        return currencyGraph.getVertexByStableId(currencyId);
+    }
+
+    @Override
+    public RatesSnapshot snapshot() {
+        return new GraphRatesSnapshot(currencyGraph.snapshot());
+    }
+
+    private static final class GraphRatesSnapshot implements RatesSnapshot {
+
+        private final GraphSnapshot paths;
+
+        private GraphRatesSnapshot(GraphSnapshot paths) {
+            this.paths = paths;
+        }
+
+        @Override
+        public long getEpoch() {
+            return paths.getEpoch();
+        }
+
+        @Override
+        public BigDecimal convert(String fromCurrency, String toCurrency, BigDecimal fromAmount) {
+            try {
+                BigDecimal factor = paths.findPath(fromCurrency, toCurrency);
+                return fromAmount.multiply(factor);
+            } catch (VertexNotFoundException ex) {
+                throw new CurrencyNotFoundException(ex.getNotExistedVertex(), ex);
+            } catch (GraphPathNotFoundException ex) {
+                throw new RateNotFoundException(fromCurrency, toCurrency, ex);
+            }
+        }
+
+        @Override
+        public boolean convert(String fromCurrency, String toCurrency, FixedDecimal fromAmount, FixedDecimal result) {
+            return ConverterServiceImpl.convert(paths, fromCurrency, toCurrency, fromAmount, result);
+        }
+    }
+
+    private static boolean convert(GraphSnapshot paths, String fromCurrency, String toCurrency,
+                                   FixedDecimal fromAmount, FixedDecimal result) {
         try {
-            BigDecimal factor = currencyGraph.findPath(fromCurrency, toCurrency);
-            return fromAmount.multiply(factor);
+            return paths.findPath(fromCurrency, toCurrency, result)
+                    && result.multiply(fromAmount, DecimalUtils.ROUNDING_SCALE);
         } catch (VertexNotFoundException ex) {
             throw new CurrencyNotFoundException(ex.getNotExistedVertex(), ex);
         } catch (GraphPathNotFoundException ex) {
@@ -0,0 +1,14 @@
+package com.zerohub.challenge.service;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class RateChange {
+
+    RatePair pair;
+    BigDecimal rate;
+    long epoch;
+
+}
@@ -0,0 +1,64 @@
+package com.zerohub.challenge.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeper of rates from dead feeds: rates which were not published for the time to live are removed
+ * with the paths derived from them. Expired rates are taken in order of publishing, so a sweep
+ * without expired rates costs one check of the oldest rate. Sweeps are queued to the rate writer,
+ * so they are ordered with publishes and never write the graph concurrently with them.
+ */
+@Slf4j
+public class RateExpiry implements AutoCloseable {
+
+    private final RateWriter rateWriter;
+    private final Duration timeToLive;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param rateWriter    writer which removes the rates
+     * @param timeToLive    max time since the last publish of a rate, zero keeps rates forever
+     * @param sweepInterval period of sweeps
+     */
+    public RateExpiry(RateWriter rateWriter, Duration timeToLive, Duration sweepInterval) {
+        this.rateWriter = rateWriter;
+        this.timeToLive = timeToLive;
+        if (timeToLive.isZero()) {
+            scheduler = null;
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepInterval.toMillis(), sweepInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue removal of rates published before the time to live and wait for it,
+     * so the next sweep is not queued while this one waits in a long queue
+     */
+    public void sweep() {
+        long expiredBefore = System.currentTimeMillis() - timeToLive.toMillis();
+        try {
+            rateWriter.expire(expiredBefore).join();
+        } catch (CompletionException ex) {
+            log.error("Expired rates are not removed", ex.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
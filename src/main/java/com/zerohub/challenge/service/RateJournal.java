@@ -0,0 +1,23 @@
+package com.zerohub.challenge.service;
+
+import java.util.List;
+
+public interface RateJournal {
+
+    /**
+     * Record accepted rates before the publish is acknowledged
+     *
+     * @param epoch epoch of the snapshot which contains the rates
+     * @param rates rates in order of publishing
+     */
+    void append(long epoch, List<Rate> rates);
+
+    /**
+     * Record removed rates before the unpublish is acknowledged
+     *
+     * @param epoch epoch of the snapshot without the rates
+     * @param pairs currency pairs of the removed rates
+     */
+    void appendRemoval(long epoch, List<RatePair> pairs);
+
+}
@@ -0,0 +1,11 @@
+package com.zerohub.challenge.service;
+
+import lombok.Value;
+
+@Value
+public class RatePair {
+
+    String fromCurrency;
+    String toCurrency;
+
+}
@@ -0,0 +1,13 @@
+package com.zerohub.challenge.service;
+
+public interface RateSubscriber {
+
+    /**
+     * Called by the subscription executor for all subscribers in turn, so it should not block.
+     * A subscriber which can't send the change at once keeps at most the last change of each pair.
+     *
+     * @param change new rate of a subscribed pair
+     */
+    void onChange(RateChange change);
+
+}
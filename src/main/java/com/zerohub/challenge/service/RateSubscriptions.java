@@ -0,0 +1,160 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.GraphSnapshot;
+import com.zerohub.challenge.graph.SnapshotListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Subscriptions to derived rates. After each write the rate of every subscribed pair is read once
+ * and sent to all subscribers of the pair only when it is changed.
+ * Pairs are grouped by the first currency, so paths from a currency that are not changed by the write are skipped.
+ * Changes are sent by the subscription executor, so the writer only hands over its snapshot.
+ * Snapshots published while changes are being sent are conflated: only the latest one is sent next.
+ */
+@Service
+public class RateSubscriptions implements SnapshotListener {
+
+    private final Map<String, Map<String, PairSubscription>> pairsByFromCurrency = new HashMap<>();
+    private final Map<RateSubscriber, List<RatePair>> subscriberPairs = new HashMap<>();
+    private final AtomicReference<GraphSnapshot> nextSnapshot = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor subscriptionExecutor;
+    private GraphSnapshot lastSnapshot;
+
+    @Autowired
+    public RateSubscriptions(DirectedWeightedGraph currencyGraph,
+                             @Qualifier("subscriptionExecutor") Executor subscriptionExecutor) {
+        this.subscriptionExecutor = subscriptionExecutor;
+        this.lastSnapshot = currencyGraph.snapshot();
+        currencyGraph.addListener(this);
+    }
+
+    /**
+     * Subscribe to changes of the rates. Current rates of the pairs are sent at once.
+     *
+     * @param pairs      currency pairs, currencies may be not published yet
+     * @param subscriber receiver of changes
+     */
+    public synchronized void subscribe(List<RatePair> pairs, RateSubscriber subscriber) {
+        List<RatePair> distinctPairs = new ArrayList<>(new LinkedHashSet<>(pairs));
+        subscriberPairs.put(subscriber, distinctPairs);
+        for (RatePair pair : distinctPairs) {
+            PairSubscription subscription = pairsByFromCurrency
+                    .computeIfAbsent(pair.getFromCurrency(), currency -> new HashMap<>())
+                    .computeIfAbsent(pair.getToCurrency(), currency -> new PairSubscription(pair));
+            subscription.subscribers.add(subscriber);
+            if (subscription.rate != null) {
+                subscriber.onChange(new RateChange(pair, subscription.rate, lastSnapshot.getEpoch()));
+            }
+        }
+    }
+
+    public synchronized void unsubscribe(RateSubscriber subscriber) {
+        List<RatePair> pairs = subscriberPairs.remove(subscriber);
+        if (pairs == null) {
+            return;
+        }
+        for (RatePair pair : pairs) {
+            Map<String, PairSubscription> pairsFrom = pairsByFromCurrency.get(pair.getFromCurrency());
+            PairSubscription subscription = pairsFrom.get(pair.getToCurrency());
+            subscription.subscribers.remove(subscriber);
+            if (subscription.subscribers.isEmpty()) {
+                pairsFrom.remove(pair.getToCurrency());
+                if (pairsFrom.isEmpty()) {
+                    pairsByFromCurrency.remove(pair.getFromCurrency());
+                }
+            }
+        }
+    }
+
+    /**
+     * Called by the writer: keeps the snapshot and schedules sending if it isn't scheduled yet
+     */
+    @Override
+    public void onSnapshot(GraphSnapshot snapshot) {
+        nextSnapshot.accumulateAndGet(snapshot,
+                (next, published) -> next == null || published.getEpoch() > next.getEpoch() ? published : next);
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                subscriptionExecutor.execute(this::sendChanges);
+            } catch (RejectedExecutionException ex) {
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void sendChanges() {
+        scheduled.set(false);
+        GraphSnapshot snapshot = nextSnapshot.get();
+        if (snapshot != null) {
+            sendChanges(snapshot);
+        }
+    }
+
+    private synchronized void sendChanges(GraphSnapshot snapshot) {
+        if (snapshot.getEpoch() <= lastSnapshot.getEpoch()) {
+            return;
+        }
+        for (Map.Entry<String, Map<String, PairSubscription>> pairsFrom : pairsByFromCurrency.entrySet()) {
+            if (!snapshot.mayChangePathsFrom(lastSnapshot, pairsFrom.getKey())) {
+                continue;
+            }
+            for (PairSubscription subscription : pairsFrom.getValue().values()) {
+                subscription.update(snapshot);
+            }
+        }
+        lastSnapshot = snapshot;
+    }
+
+    private final class PairSubscription {
+        private final RatePair pair;
+        private final Set<RateSubscriber> subscribers = new LinkedHashSet<>();
+        private BigDecimal rate;
+
+        private PairSubscription(RatePair pair) {
+            this.pair = pair;
+            this.rate = findRate(lastSnapshot, pair);
+        }
+
+        private void update(GraphSnapshot snapshot) {
+            BigDecimal newRate = findRate(snapshot, pair);
+            if (newRate == null) {
+                rate = null;
+                return;
+            }
+            if (rate != null && rate.compareTo(newRate) == 0) {
+                return;
+            }
+            rate = newRate;
+            RateChange change = new RateChange(pair, newRate, snapshot.getEpoch());
+            for (RateSubscriber subscriber : subscribers) {
+                subscriber.onChange(change);
+            }
+        }
+    }
+
+    private static BigDecimal findRate(GraphSnapshot snapshot, RatePair pair) {
+        try {
+            return snapshot.findPath(pair.getFromCurrency(), pair.getToCurrency());
+        } catch (VertexNotFoundException | GraphPathNotFoundException ex) {
+            return null;
+        }
+    }
+}
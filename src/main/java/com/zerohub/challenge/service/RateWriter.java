@@ -0,0 +1,257 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.PublishRejectedException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single writer of published rates. Publishes are queued and the writer thread applies all queued rates
+ * as one write, so callers never wait for the graph lock and a burst costs one recount of paths
+ * instead of one per publish. Queued rates of the same currency pair are coalesced: only the last one is applied,
+ * like {@link ConverterService#addCurrencies(List)} does within one write.
+ * Unpublishes are queued the same way, so a removal and a publish of one pair are applied in order of calls.
+ * Sweeps of expired rates are queued too, so all writes of the graph are made by this thread.
+ * <p>
+ * The future of a publish completes when the write containing its rates is visible. A rate superseded
+ * in the queue is completed by the write of the newer rate, so its caller never sees the older one.
+ * When the coalesced write is rejected with {@link InvalidRateException}, publishes are applied one by one in order,
+ * so a bad rate fails only its own call. The rates are checked before any of them is applied, so a rejected write
+ * changes nothing. Any other failure may come after the rates are applied, like a failed append to the journal,
+ * so applying them again could record them twice: all calls of the write fail with it instead.
+ * <p>
+ * Removals and expiry are separate writes made before the write of the rates, so a reader may see a snapshot
+ * with the removals and without the rates. The futures complete with the epoch of the last write,
+ * which contains all changes of the calls. Calls applied one by one remove their pairs again,
+ * which changes nothing for pairs already removed.
+ */
+@Slf4j
+public class RateWriter implements AutoCloseable {
+
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final ConverterService converterService;
+    private final int queueCapacity;
+    private final PublishOverflow overflow;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread writer;
+
+    private Map<RatePair, Rate> queuedRates = new LinkedHashMap<>();
+    private Set<RatePair> queuedRemovals = new LinkedHashSet<>();
+    private long queuedExpiry = NO_EXPIRY;
+    private List<QueuedCall> queuedCalls = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * @param converterService service which applies the rates
+     * @param queueCapacity    max count of publishes waiting for the writer
+     * @param overflow         behavior of a publish when the queue is full
+     */
+    public RateWriter(ConverterService converterService, int queueCapacity, PublishOverflow overflow) {
+        this.converterService = converterService;
+        this.queueCapacity = queueCapacity;
+        this.overflow = overflow;
+        this.writer = new Thread(this::run, "rate-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue the rates to be applied as one write with other queued rates
+     *
+     * @param rates rates in order of publishing
+     * @return epoch of the snapshot which contains the rates or their newer values,
+     * failed with {@link PublishRejectedException} when the queue is full and publishes are rejected
+     */
+    public CompletableFuture<Long> publish(List<Rate> rates) {
+        return enqueue(new QueuedCall(rates, List.of(), NO_EXPIRY));
+    }
+
+    /**
+     * Queue removal of the rates. A rate of the pair published before in the queue is not applied.
+     *
+     * @param pairs currency pairs in any direction
+     * @return epoch of the snapshot without the rates, failed like {@link #publish(List)}
+     */
+    public CompletableFuture<Long> unpublish(List<RatePair> pairs) {
+        return enqueue(new QueuedCall(List.of(), pairs, NO_EXPIRY));
+    }
+
+    /**
+     * Queue removal of rates which were not published since the time. It is applied before queued rates,
+     * so a rate republished in the queue is kept.
+     *
+     * @param expiredBefore time in milliseconds
+     * @return epoch of the snapshot without the expired rates, failed like {@link #publish(List)}
+     */
+    public CompletableFuture<Long> expire(long expiredBefore) {
+        return enqueue(new QueuedCall(List.of(), List.of(), expiredBefore));
+    }
+
+    private CompletableFuture<Long> enqueue(QueuedCall call) {
+        lock.lock();
+        try {
+            while (!closed && queuedCalls.size() >= queueCapacity) {
+                if (overflow == PublishOverflow.REJECT) {
+                    return CompletableFuture.failedFuture(
+                            new PublishRejectedException("queue of " + queueCapacity + " calls is full"));
+                }
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                return CompletableFuture.failedFuture(new PublishRejectedException("writer is closed"));
+            }
+            for (Rate rate : call.rates) {
+                RatePair pair = pairOf(rate.getBaseCurrency(), rate.getQuoteCurrency());
+                queuedRemovals.remove(pair);
+                queuedRates.put(pair, rate);
+            }
+            for (RatePair removal : call.removals) {
+                RatePair pair = pairOf(removal.getFromCurrency(), removal.getToCurrency());
+                queuedRates.remove(pair);
+                queuedRemovals.add(pair);
+            }
+            queuedExpiry = Math.max(queuedExpiry, call.expiredBefore);
+            queuedCalls.add(call);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return call.future;
+    }
+
+    /**
+     * Apply the queued rates and stop the writer
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        while (true) {
+            Map<RatePair, Rate> rates;
+            Set<RatePair> removals;
+            long expiredBefore;
+            List<QueuedCall> calls;
+            lock.lock();
+            try {
+                while (!closed && queuedCalls.isEmpty()) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (queuedCalls.isEmpty()) {
+                    return;
+                }
+                rates = queuedRates;
+                removals = queuedRemovals;
+                expiredBefore = queuedExpiry;
+                calls = queuedCalls;
+                queuedRates = new LinkedHashMap<>();
+                queuedRemovals = new LinkedHashSet<>();
+                queuedExpiry = NO_EXPIRY;
+                queuedCalls = new ArrayList<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            write(rates, removals, expiredBefore, calls);
+        }
+    }
+
+    /**
+     * Pairs of queued rates and removals are disjoint, so removals are applied first without changing the result.
+     * Expired rates are removed before queued rates are applied, and the rates are published after the expiry time.
+     */
+    private void write(Map<RatePair, Rate> rates, Set<RatePair> removals, long expiredBefore,
+                       List<QueuedCall> calls) {
+        long epoch = 0;
+        try {
+            if (!removals.isEmpty()) {
+                epoch = converterService.removeCurrencies(new ArrayList<>(removals));
+            }
+            if (expiredBefore != NO_EXPIRY) {
+                removeExpired(expiredBefore);
+            }
+            if (!rates.isEmpty() || removals.isEmpty()) {
+                epoch = converterService.addCurrencies(new ArrayList<>(rates.values()));
+            }
+        } catch (InvalidRateException ex) {
+            log.warn("Coalesced rates of {} calls are rejected, calls are applied one by one",
+                    calls.size(), ex);
+            for (QueuedCall call : calls) {
+                try {
+                    if (call.expiredBefore != NO_EXPIRY) {
+                        removeExpired(call.expiredBefore);
+                    }
+                    call.future.complete(call.rates.isEmpty()
+                            ? converterService.removeCurrencies(call.removals)
+                            : converterService.addCurrencies(call.rates));
+                } catch (RuntimeException callFailure) {
+                    call.future.completeExceptionally(callFailure);
+                }
+            }
+            return;
+        } catch (RuntimeException ex) {
+            log.error("Write of {} calls failed and may be applied partially, all calls are failed",
+                    calls.size(), ex);
+            for (QueuedCall call : calls) {
+                call.future.completeExceptionally(ex);
+            }
+            return;
+        }
+        for (QueuedCall call : calls) {
+            call.future.complete(epoch);
+        }
+    }
+
+    private void removeExpired(long expiredBefore) {
+        int removed = converterService.removeRatesUpdatedBefore(expiredBefore);
+        if (removed > 0) {
+            log.debug("Removed {} rates not published since {}", removed, Instant.ofEpochMilli(expiredBefore));
+        }
+    }
+
+    /**
+     * Rates of both directions of a pair are one edge, so they supersede each other
+     */
+    private static RatePair pairOf(String currencyA, String currencyB) {
+        return currencyA.compareTo(currencyB) <= 0
+                ? new RatePair(currencyA, currencyB)
+                : new RatePair(currencyB, currencyA);
+    }
+
+    private static final class QueuedCall {
+        private final List<Rate> rates;
+        private final List<RatePair> removals;
+        private final long expiredBefore;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private QueuedCall(List<Rate> rates, List<RatePair> removals, long expiredBefore) {
+            this.rates = rates;
+            this.removals = removals;
+            this.expiredBefore = expiredBefore;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.utils.DecimalUtils;
+import com.zerohub.challenge.utils.FixedDecimal;
+
+import java.math.BigDecimal;
+
+/**
+ * Rates published by one write. Conversions made with the same snapshot are consistent with each other.
+ */
+public interface RatesSnapshot {
+
+    /**
+     * @return epoch of the rates
+     */
+    long getEpoch();
+
+    /**
+     * @param fromCurrency currency of the amount
+     * @param toCurrency   currency of the result
+     * @param fromAmount   amount to convert
+     * @return converted amount
+     * @throws CurrencyNotFoundException when currency is not found
+     * @throws RateNotFoundException     when there is no rate between the currencies
+     */
+    BigDecimal convert(String fromCurrency, String toCurrency, BigDecimal fromAmount);
+
+    /**
+     * Convert with fixed-point arithmetic and round like {@link DecimalUtils#roundCarefully(BigDecimal)}
+     *
+     * @param fromCurrency currency of the amount
+     * @param toCurrency   currency of the result
+     * @param fromAmount   amount to convert
+     * @param result       receiver of the rounded result
+     * @return false when the rate or the result doesn't fit into fixed-point decimal
+     * @throws CurrencyNotFoundException when currency is not found
+     * @throws RateNotFoundException     when there is no rate between the currencies
+     */
+    boolean convert(String fromCurrency, String toCurrency, FixedDecimal fromAmount, FixedDecimal result);
+
+}
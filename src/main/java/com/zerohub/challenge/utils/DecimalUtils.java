@@ -5,6 +5,11 @@ import java.math.RoundingMode;
 
 public class DecimalUtils {
 
+    /**
+     * Scale of converted amounts
+     */
+    public static final int ROUNDING_SCALE = 4;
+
     private DecimalUtils() {
     }
 
@@ -13,6 +18,6 @@ public class DecimalUtils {
     }
 
     public static BigDecimal roundCarefully(BigDecimal num) {
-        return num.setScale(4, RoundingMode.HALF_UP);
+        return num.setScale(ROUNDING_SCALE, RoundingMode.HALF_UP);
     }
 }
@@ -0,0 +1,209 @@
+package com.zerohub.challenge.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutable fixed-point decimal: unscaled long value with scale, like {@link BigDecimal} with a 63-bit unscaled value.
+ * Convert parses, multiplies, rounds and formats amounts with it without allocating BigDecimal.
+ * Operations return false when a value doesn't fit, then the caller falls back to BigDecimal.
+ * Not thread-safe, so each thread uses its own instance.
+ */
+public final class FixedDecimal {
+
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_DIVISION_STEP = 9;
+    private static final long LOW_BITS = 0xFFFF_FFFFL;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final char[] chars = new char[48];
+    private long unscaled;
+    private int scale;
+    private long productHigh;
+    private long productLow;
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @return false when the unscaled value doesn't fit
+     */
+    public boolean set(long unscaled, int scale) {
+        if (unscaled == Long.MIN_VALUE) {
+            return false;
+        }
+        this.unscaled = unscaled;
+        this.scale = scale;
+        return true;
+    }
+
+    /**
+     * @return false when the unscaled value of the decimal doesn't fit
+     */
+    public boolean set(BigDecimal value) {
+        return value.unscaledValue().bitLength() < Long.SIZE && set(value.unscaledValue().longValue(), value.scale());
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Parse plain decimal like "-123.4500". Exponents and more than 18 significant digits are not supported.
+     *
+     * @param text decimal string
+     * @return false when the text is not a supported decimal
+     */
+    public boolean parse(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        boolean hasDigits = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            hasDigits = true;
+            if (value != 0 || c != '0') {
+                digits++;
+            }
+            if (digits > MAX_DIGITS) {
+                return false;
+            }
+            value = value * 10 + (c - '0');
+            if (point) {
+                fractionDigits++;
+            }
+        }
+        return hasDigits && set(negative ? -value : value, fractionDigits);
+    }
+
+    /**
+     * Multiply by the other decimal and round the product to the scale with {@link java.math.RoundingMode#HALF_UP}.
+     * The product is exact in 128 bits, so the result is equal to
+     * {@code toBigDecimal().multiply(other.toBigDecimal()).setScale(resultScale, RoundingMode.HALF_UP)}.
+     *
+     * @param other       multiplier
+     * @param resultScale scale of the result
+     * @return false when the result doesn't fit, the value is undefined then
+     */
+    public boolean multiply(FixedDecimal other, int resultScale) {
+        boolean negative = (unscaled < 0) != (other.unscaled < 0);
+        long a = Math.abs(unscaled);
+        long b = Math.abs(other.unscaled);
+        productHigh = Math.multiplyHigh(a, b);
+        productLow = a * b;
+        long shift = (long) scale + other.scale - resultScale;
+        if (shift < 0) {
+            if (!scaleUp(-shift)) {
+                return false;
+            }
+        } else if (shift > 0) {
+            for (long rest = shift - 1; rest > 0 && (productHigh | productLow) != 0; ) {
+                int digits = (int) Math.min(rest, fitsInLong() ? MAX_DIGITS : MAX_DIVISION_STEP);
+                divide(POWERS_OF_TEN[digits]);
+                rest -= digits;
+            }
+            if (divide(10) >= 5 && ++productLow == 0) {
+                productHigh++;
+            }
+        }
+        if (productHigh != 0 || productLow < 0) {
+            return false;
+        }
+        unscaled = negative ? -productLow : productLow;
+        scale = resultScale;
+        return true;
+    }
+
+    /**
+     * Format as plain decimal equal to {@link BigDecimal#toPlainString()}
+     *
+     * @return decimal string
+     */
+    public String format() {
+        if (scale < 0 || scale > chars.length - 3) {
+            return toBigDecimal().toPlainString();
+        }
+        long magnitude = Math.abs(unscaled);
+        int position = chars.length;
+        for (int i = 0; i < scale; i++) {
+            chars[--position] = (char) ('0' + magnitude % 10);
+            magnitude /= 10;
+        }
+        if (scale > 0) {
+            chars[--position] = '.';
+        }
+        do {
+            chars[--position] = (char) ('0' + magnitude % 10);
+            magnitude /= 10;
+        } while (magnitude != 0);
+        if (unscaled < 0) {
+            chars[--position] = '-';
+        }
+        return new String(chars, position, chars.length - position);
+    }
+
+    private boolean scaleUp(long digits) {
+        if (digits > MAX_DIGITS || productHigh != 0 || productLow < 0) {
+            return false;
+        }
+        long factor = POWERS_OF_TEN[(int) digits];
+        productHigh = Math.multiplyHigh(productLow, factor);
+        productLow *= factor;
+        return true;
+    }
+
+    private boolean fitsInLong() {
+        return productHigh == 0 && productLow >= 0;
+    }
+
+    /**
+     * Divide the product. A product which fits into long is divided at once,
+     * otherwise it is divided by 32-bit words and the divisor must be less than 2^31.
+     *
+     * @return remainder
+     */
+    private long divide(long divisor) {
+        if (fitsInLong()) {
+            long remainder = productLow % divisor;
+            productLow /= divisor;
+            return remainder;
+        }
+        long current = productHigh >>> 32;
+        long q3 = current / divisor;
+        current = ((current % divisor) << 32) | (productHigh & LOW_BITS);
+        long q2 = current / divisor;
+        current = ((current % divisor) << 32) | (productLow >>> 32);
+        long q1 = current / divisor;
+        current = ((current % divisor) << 32) | (productLow & LOW_BITS);
+        long q0 = current / divisor;
+        productHigh = (q3 << 32) | q2;
+        productLow = (q1 << 32) | q0;
+        return current % divisor;
+    }
+}
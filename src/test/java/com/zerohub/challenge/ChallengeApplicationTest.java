@@ -1,14 +1,35 @@
 package com.zerohub.challenge;
 
+import com.zerohub.challenge.proto.ConvertAsOfRequest;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
 import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.ConvertRequestV2;
 import com.zerohub.challenge.proto.ConvertResponse;
+import com.zerohub.challenge.proto.ConvertResponseV2;
+import com.zerohub.challenge.proto.CurrencyPair;
+import com.zerohub.challenge.proto.Decimal;
+import com.zerohub.challenge.proto.LookupCurrenciesRequest;
+import com.zerohub.challenge.proto.LookupCurrenciesResponse;
+import com.zerohub.challenge.proto.PublishBatchRequest;
+import com.zerohub.challenge.proto.PublishBatchResponse;
 import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.PublishRequestV2;
+import com.zerohub.challenge.proto.PublishStreamResponse;
+import com.zerohub.challenge.proto.RateUpdate;
 import com.zerohub.challenge.proto.RatesServiceGrpc;
+import com.zerohub.challenge.proto.RatesServiceV2Grpc;
+import com.zerohub.challenge.proto.SubscribeRequest;
+import com.zerohub.challenge.proto.UnpublishRequest;
+import com.zerohub.challenge.proto.UnpublishResponse;
+import io.grpc.Context;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -18,15 +39,22 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(properties = {
         "grpc.server.inProcessName=test",
         "grpc.server.port=-1",
-        "grpc.client.inProcess.address=in-process:test"
+        "grpc.client.inProcess.address=in-process:test",
+        "challenge.history.enabled=true"
 })
 @ExtendWith(SpringExtension.class)
 @DirtiesContext
@@ -41,10 +69,30 @@ public class ChallengeApplicationTest {
     private static final String AUD = "AUD";
     private static final String GBP = "GBP";
     private static final String JPY = "JPY";
+    private static final String CHF = "CHF";
+    private static final String CAD = "CAD";
+    private static final String SEK = "SEK";
+    private static final String NOK = "NOK";
+    private static final String DKK = "DKK";
+    private static final String PLN = "PLN";
+    private static final String CZK = "CZK";
+    private static final String HKD = "HKD";
+    private static final String SGD = "SGD";
+    private static final String NZD = "NZD";
+    private static final String THB = "THB";
+    private static final String MXN = "MXN";
+    private static final String ZAR = "ZAR";
+    private static final String TRY = "TRY";
 
     @GrpcClient("inProcess")
     private RatesServiceGrpc.RatesServiceBlockingStub service;
 
+    @GrpcClient("inProcess")
+    private RatesServiceGrpc.RatesServiceStub asyncService;
+
+    @GrpcClient("inProcess")
+    private RatesServiceV2Grpc.RatesServiceV2BlockingStub serviceV2;
+
     @BeforeEach
     public void setup() {
         var rates = List.of(
@@ -81,6 +129,249 @@ public class ChallengeApplicationTest {
         }
     }
 
+    @Test
+    void ConvertNotFoundMessageTest() {
+        StatusRuntimeException currency = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest(new String[]{"test", BTC, "1.0000"})));
+        StatusRuntimeException rate = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest(new String[]{JPY, BTC, "1.0000"})));
+
+        assertEquals(Status.Code.NOT_FOUND, currency.getStatus().getCode());
+        assertEquals("Currency test was not found", currency.getStatus().getDescription());
+        assertEquals(Status.Code.NOT_FOUND, rate.getStatus().getCode());
+        assertEquals("Rate JPY-BTC was not found", rate.getStatus().getDescription());
+    }
+
+    @Test
+    void ConvertV2Test() {
+        LookupCurrenciesResponse lookup = serviceV2.lookupCurrencies(LookupCurrenciesRequest.newBuilder()
+                .addCurrencies(BTC)
+                .addCurrencies(RUB)
+                .addCurrencies("test")
+                .build());
+        assertEquals(-1, lookup.getIds(2));
+
+        ConvertResponseV2 byIds = serviceV2.convert(ConvertRequestV2.newBuilder()
+                .setFromCurrencyId(lookup.getIds(0))
+                .setToCurrencyId(lookup.getIds(1))
+                .setFromAmount(Decimal.newBuilder().setUnscaled(10000).setScale(4))
+                .build());
+        ConvertResponseV2 byCodes = serviceV2.convert(ConvertRequestV2.newBuilder()
+                .setFromCurrency(BTC)
+                .setToCurrency(RUB)
+                .setFromAmount(Decimal.newBuilder().setUnscaled(1).setScale(0))
+                .build());
+
+        assertEquals(new BigDecimal("4800000.0000"), toBigDecimal(byIds.getPrice()));
+        assertEquals(byIds, byCodes);
+        StatusRuntimeException unknownId = assertThrows(StatusRuntimeException.class,
+                () -> serviceV2.convert(ConvertRequestV2.newBuilder()
+                        .setFromCurrencyId(1_000_000)
+                        .setToCurrency(BTC)
+                        .setFromAmount(Decimal.newBuilder().setUnscaled(1))
+                        .build()));
+        assertEquals(Status.Code.NOT_FOUND, unknownId.getStatus().getCode());
+        assertEquals("Currency id 1000000 was not found", unknownId.getStatus().getDescription());
+    }
+
+    @Test
+    void PublishV2Test() {
+        serviceV2.publish(PublishRequestV2.newBuilder()
+                .setBaseCurrency(HKD)
+                .setQuoteCurrency(USD)
+                .setPrice(Decimal.newBuilder().setUnscaled(1280).setScale(4))
+                .build());
+        long hkd = serviceV2.lookupCurrencies(LookupCurrenciesRequest.newBuilder().addCurrencies(HKD).build()).getIds(0);
+        serviceV2.publish(PublishRequestV2.newBuilder()
+                .setBaseCurrencyId(hkd)
+                .setQuoteCurrency(USD)
+                .setPrice(Decimal.newBuilder().setUnscaled(1290).setScale(4))
+                .build());
+
+        ConvertResponse converted = service.convert(toConvertRequest(new String[]{HKD, USD, "100.0000"}));
+        assertEquals(new BigDecimal("12.9000"), new BigDecimal(converted.getPrice()));
+    }
+
+    @Test
+    void PublishBatchTest() {
+        PublishBatchResponse response = service.publishBatch(PublishBatchRequest
+                .newBuilder()
+                .addRates(toPublishRequest(new String[]{CHF, CAD, "1.3000"}))
+                .addRates(toPublishRequest(new String[]{CHF, CAD, "1.4000"}))
+                .build());
+
+        assertEquals(2, response.getCount());
+        assertTrue(response.getEpoch() > 0);
+        ConvertResponse converted = service.convert(toConvertRequest(new String[]{CHF, CAD, "1.0000"}));
+        assertEquals(new BigDecimal("1.4000"), new BigDecimal(converted.getPrice()));
+    }
+
+    @Test
+    void PublishInvalidPriceTest() {
+        StatusRuntimeException zero = assertThrows(StatusRuntimeException.class,
+                () -> service.publish(toPublishRequest(new String[]{ZAR, TRY, "0"})));
+        StatusRuntimeException notNumber = assertThrows(StatusRuntimeException.class,
+                () -> service.publishBatch(PublishBatchRequest.newBuilder()
+                        .addRates(toPublishRequest(new String[]{ZAR, TRY, "1.0000"}))
+                        .addRates(toPublishRequest(new String[]{ZAR, TRY, "one"}))
+                        .build()));
+        StatusRuntimeException negative = assertThrows(StatusRuntimeException.class,
+                () -> serviceV2.publish(PublishRequestV2.newBuilder()
+                        .setBaseCurrency(ZAR)
+                        .setQuoteCurrency(TRY)
+                        .setPrice(Decimal.newBuilder().setUnscaled(-1))
+                        .build()));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, zero.getStatus().getCode());
+        assertEquals("Price 0 of rate ZAR-TRY is not a positive number", zero.getStatus().getDescription());
+        assertEquals(Status.Code.INVALID_ARGUMENT, notNumber.getStatus().getCode());
+        assertEquals(Status.Code.INVALID_ARGUMENT, negative.getStatus().getCode());
+        StatusRuntimeException notPublished = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest(new String[]{ZAR, TRY, "1.0000"})));
+        assertEquals(Status.Code.NOT_FOUND, notPublished.getStatus().getCode());
+    }
+
+    @Test
+    void UnpublishTest() {
+        service.publish(toPublishRequest(new String[]{SGD, NZD, "1.2000"}));
+
+        UnpublishResponse response = service.unpublish(UnpublishRequest.newBuilder()
+                .addPairs(CurrencyPair.newBuilder().setFromCurrency(NZD).setToCurrency(SGD))
+                .build());
+
+        assertTrue(response.getEpoch() > 0);
+        StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest(new String[]{SGD, NZD, "1.0000"})));
+        assertEquals(Status.Code.NOT_FOUND, ex.getStatus().getCode());
+    }
+
+    @Test
+    void ConvertAsOfTest() throws Exception {
+        service.publish(toPublishRequest(new String[]{THB, MXN, "3.0000"}));
+        long published = System.currentTimeMillis();
+        Thread.sleep(5);
+        service.publish(toPublishRequest(new String[]{MXN, THB, "0.2500"}));
+
+        ConvertResponse past = service.convertAsOf(toConvertAsOfRequest(THB, MXN, published));
+        ConvertResponse now = service.convertAsOf(toConvertAsOfRequest(THB, MXN, System.currentTimeMillis()));
+        StatusRuntimeException expired = assertThrows(StatusRuntimeException.class,
+                () -> service.convertAsOf(toConvertAsOfRequest(THB, MXN, 0)));
+
+        assertEquals(new BigDecimal("30.0000"), new BigDecimal(past.getPrice()));
+        assertEquals(new BigDecimal("40.0000"), new BigDecimal(now.getPrice()));
+        assertEquals(Status.Code.OUT_OF_RANGE, expired.getStatus().getCode());
+    }
+
+    @Test
+    void PublishStreamTest() throws Exception {
+        CompletableFuture<PublishStreamResponse> result = new CompletableFuture<>();
+        StreamObserver<PublishRequest> stream = asyncService.publishStream(new StreamObserver<>() {
+            @Override
+            public void onNext(PublishStreamResponse value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        stream.onNext(toPublishRequest(new String[]{SEK, NOK, "2.0000"}));
+        stream.onNext(toPublishRequest(new String[]{NOK, EUR, "0.1000"}));
+        stream.onNext(toPublishRequest(new String[]{SEK, NOK, "1.0000"}));
+        stream.onCompleted();
+
+        PublishStreamResponse response = result.get(10, TimeUnit.SECONDS);
+        assertEquals(3, response.getBatchesList().stream().mapToInt(PublishBatchResponse::getCount).sum());
+        assertTrue(response.getBatches(response.getBatchesCount() - 1).getEpoch() > 0);
+        ConvertResponse converted = service.convert(toConvertRequest(new String[]{SEK, EUR, "10.0000"}));
+        assertEquals(new BigDecimal("1.0000"), new BigDecimal(converted.getPrice()));
+    }
+
+    @Test
+    void ConvertBatchTest() {
+        ConvertBatchResponse response = service.convertBatch(ConvertBatchRequest
+                .newBuilder()
+                .addItems(toConvertRequest(new String[]{BTC, AUD, "1.0000"}))
+                .addItems(toConvertRequest(new String[]{JPY, BTC, "1.0000"}))
+                .addItems(toConvertRequest(new String[]{BTC, EUR, "one"}))
+                .addItems(toConvertRequest(new String[]{RUB, EUR, "96.0000"}))
+                .build());
+
+        assertTrue(response.getEpoch() > 0);
+        assertEquals(4, response.getResultsCount());
+        assertEquals(new BigDecimal("75000.0000"), new BigDecimal(response.getResults(0).getPrice()));
+        assertEquals(Status.Code.NOT_FOUND.name(), response.getResults(1).getError().getCode());
+        assertEquals(Status.Code.INVALID_ARGUMENT.name(), response.getResults(2).getError().getCode());
+        assertEquals(new BigDecimal("1.0000"), new BigDecimal(response.getResults(3).getPrice()));
+    }
+
+    @Test
+    void ConvertStreamTest() throws Exception {
+        List<ConvertBatchResponse> responses = new ArrayList<>();
+        CompletableFuture<List<ConvertBatchResponse>> result = new CompletableFuture<>();
+        StreamObserver<ConvertBatchRequest> stream = asyncService.convertStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ConvertBatchResponse value) {
+                responses.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                result.complete(responses);
+            }
+        });
+        stream.onNext(ConvertBatchRequest.newBuilder()
+                .addItems(toConvertRequest(new String[]{BTC, RUB, "1.0000"}))
+                .build());
+        stream.onNext(ConvertBatchRequest.newBuilder()
+                .addItems(toConvertRequest(new String[]{EUR, BTC, "50000.0000"}))
+                .addItems(toConvertRequest(new String[]{"test", BTC, "1.0000"}))
+                .build());
+        stream.onCompleted();
+
+        List<ConvertBatchResponse> received = result.get(10, TimeUnit.SECONDS);
+        assertEquals(2, received.size());
+        assertEquals(new BigDecimal("4800000.0000"), new BigDecimal(received.get(0).getResults(0).getPrice()));
+        assertEquals(new BigDecimal("1.0000"), new BigDecimal(received.get(1).getResults(0).getPrice()));
+        assertEquals(Status.Code.NOT_FOUND.name(), received.get(1).getResults(1).getError().getCode());
+    }
+
+    @Test
+    void SubscribeTest() throws Exception {
+        service.publish(toPublishRequest(new String[]{DKK, PLN, "0.5000"}));
+        service.publish(toPublishRequest(new String[]{PLN, CZK, "6.0000"}));
+        Context.CancellableContext context = Context.current().withCancellation();
+        try {
+            context.call(() -> {
+                Iterator<RateUpdate> updates = service.withDeadlineAfter(10, TimeUnit.SECONDS)
+                        .subscribe(SubscribeRequest.newBuilder()
+                                .addPairs(CurrencyPair.newBuilder().setFromCurrency(DKK).setToCurrency(CZK))
+                                .build());
+                assertEquals(0, new BigDecimal("3").compareTo(new BigDecimal(updates.next().getRate())));
+
+                service.publish(toPublishRequest(new String[]{PLN, CZK, "8.0000"}));
+
+                RateUpdate update = updates.next();
+                assertEquals(DKK, update.getFromCurrency());
+                assertEquals(CZK, update.getToCurrency());
+                assertEquals(0, new BigDecimal("4").compareTo(new BigDecimal(update.getRate())));
+                return null;
+            });
+        } finally {
+            context.cancel(null);
+        }
+    }
+
     private static Stream<Arguments> testData() {
 
         return Stream.of(
@@ -118,6 +409,16 @@ public class ChallengeApplicationTest {
                 .build();
     }
 
+    private static ConvertAsOfRequest toConvertAsOfRequest(String from, String to, long timestamp) {
+        return ConvertAsOfRequest
+                .newBuilder()
+                .setFromCurrency(from)
+                .setToCurrency(to)
+                .setFromAmount("10.0000")
+                .setTimestamp(timestamp)
+                .build();
+    }
+
     private static ConvertRequest toConvertRequest(String[] args) {
         return ConvertRequest
                 .newBuilder()
@@ -126,4 +427,8 @@ public class ChallengeApplicationTest {
                 .setFromAmount(args[2])
                 .build();
     }
+
+    private static BigDecimal toBigDecimal(Decimal decimal) {
+        return BigDecimal.valueOf(decimal.getUnscaled(), decimal.getScale());
+    }
 }
@@ -0,0 +1,150 @@
+package com.zerohub.challenge;
+
+import com.zerohub.challenge.proto.ConvertAsOfRequest;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls of both kinds with direct execution: single converts run on the transport thread,
+ * batch, stream and as-of converts are offloaded
+ */
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=direct-test",
+        "grpc.server.port=-1",
+        "grpc.client.inProcess.address=in-process:direct-test",
+        "challenge.execution.calls=direct",
+        "challenge.history.enabled=true"
+})
+@ExtendWith(SpringExtension.class)
+@DirtiesContext
+public class DirectExecutionTest {
+    private static final String BTC = "BTC";
+    private static final String EUR = "EUR";
+    private static final String USD = "USD";
+
+    @GrpcClient("inProcess")
+    private RatesServiceGrpc.RatesServiceBlockingStub service;
+
+    @GrpcClient("inProcess")
+    private RatesServiceGrpc.RatesServiceStub asyncService;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @BeforeEach
+    public void setup() {
+        service.publish(toPublishRequest(BTC, EUR, "50000.0000"));
+        service.publish(toPublishRequest(EUR, USD, "1.2000"));
+    }
+
+    @Test
+    void pathWalkingConvertsAreOffloaded() {
+        assertTrue(context.containsBean("convertExecutor"));
+        assertTrue(context.containsBean("convertOffloadInterceptor"));
+    }
+
+    @Test
+    void ConvertTest() {
+        assertEquals(new BigDecimal("60000.0000"),
+                new BigDecimal(service.convert(toConvertRequest(BTC, USD, "1.0000")).getPrice()));
+        StatusRuntimeException notFound = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest("test", BTC, "1.0000")));
+        assertEquals(Status.Code.NOT_FOUND, notFound.getStatus().getCode());
+    }
+
+    @Test
+    void ConvertBatchTest() {
+        ConvertBatchResponse response = service.convertBatch(ConvertBatchRequest.newBuilder()
+                .addItems(toConvertRequest(BTC, USD, "1.0000"))
+                .addItems(toConvertRequest("test", BTC, "1.0000"))
+                .build());
+
+        assertEquals(new BigDecimal("60000.0000"), new BigDecimal(response.getResults(0).getPrice()));
+        assertEquals(Status.Code.NOT_FOUND.name(), response.getResults(1).getError().getCode());
+    }
+
+    @Test
+    void ConvertStreamTest() throws Exception {
+        List<ConvertBatchResponse> responses = new ArrayList<>();
+        CompletableFuture<List<ConvertBatchResponse>> result = new CompletableFuture<>();
+        StreamObserver<ConvertBatchRequest> stream = asyncService.convertStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ConvertBatchResponse value) {
+                responses.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                result.complete(responses);
+            }
+        });
+        stream.onNext(ConvertBatchRequest.newBuilder().addItems(toConvertRequest(USD, BTC, "60000.0000")).build());
+        stream.onNext(ConvertBatchRequest.newBuilder().addItems(toConvertRequest(EUR, USD, "10.0000")).build());
+        stream.onCompleted();
+
+        List<ConvertBatchResponse> received = result.get(10, TimeUnit.SECONDS);
+        assertEquals(2, received.size());
+        assertEquals(new BigDecimal("1.0000"), new BigDecimal(received.get(0).getResults(0).getPrice()));
+        assertEquals(new BigDecimal("12.0000"), new BigDecimal(received.get(1).getResults(0).getPrice()));
+    }
+
+    @Test
+    void ConvertAsOfTest() {
+        long now = System.currentTimeMillis();
+
+        BigDecimal price = new BigDecimal(service.convertAsOf(ConvertAsOfRequest.newBuilder()
+                .setFromCurrency(BTC)
+                .setToCurrency(USD)
+                .setFromAmount("1.0000")
+                .setTimestamp(now)
+                .build()).getPrice());
+
+        assertEquals(new BigDecimal("60000.0000"), price);
+    }
+
+    private static PublishRequest toPublishRequest(String base, String quote, String price) {
+        return PublishRequest.newBuilder()
+                .setBaseCurrency(base)
+                .setQuoteCurrency(quote)
+                .setPrice(price)
+                .build();
+    }
+
+    private static ConvertRequest toConvertRequest(String from, String to, String amount) {
+        return ConvertRequest.newBuilder()
+                .setFromCurrency(from)
+                .setToCurrency(to)
+                .setFromAmount(amount)
+                .build();
+    }
+}
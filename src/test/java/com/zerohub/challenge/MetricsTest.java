@@ -0,0 +1,136 @@
+package com.zerohub.challenge;
+
+import com.zerohub.challenge.graph.GraphMetrics;
+import com.zerohub.challenge.grpc.MetricsInterceptor;
+import com.zerohub.challenge.metrics.RpcMetrics;
+import com.zerohub.challenge.proto.ConvertBatchRequest;
+import com.zerohub.challenge.proto.ConvertBatchResponse;
+import com.zerohub.challenge.proto.ConvertRequest;
+import com.zerohub.challenge.proto.PublishRequest;
+import com.zerohub.challenge.proto.RatesServiceGrpc;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Metrics of calls and graph writes, in a context of their own so other tests run without the interceptor
+ */
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=metrics-test",
+        "grpc.server.port=-1",
+        "grpc.client.inProcess.address=in-process:metrics-test",
+        "challenge.metrics.enabled=true"
+})
+@ExtendWith(SpringExtension.class)
+@DirtiesContext
+public class MetricsTest {
+    private static final String BTC = "BTC";
+    private static final String EUR = "EUR";
+    private static final String USD = "USD";
+
+    @GrpcClient("inProcess")
+    private RatesServiceGrpc.RatesServiceBlockingStub service;
+
+    @GrpcClient("inProcess")
+    private RatesServiceGrpc.RatesServiceStub asyncService;
+
+    @Autowired
+    private MetricsInterceptor metricsInterceptor;
+
+    @Autowired
+    private GraphMetrics graphMetrics;
+
+    @BeforeEach
+    public void setup() {
+        service.publish(toPublishRequest(BTC, EUR, "50000.0000"));
+        service.publish(toPublishRequest(EUR, USD, "1.2000"));
+    }
+
+    @Test
+    void unaryCallsAreMeasured() {
+        RpcMetrics convert = metricsInterceptor.getMethods().get(RatesServiceGrpc.getConvertMethod().getFullMethodName());
+        long notFound = convert.getNotFoundCount();
+        long count = convert.getCount();
+
+        service.convert(toConvertRequest(BTC, EUR, "1.0000"));
+        StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+                () -> service.convert(toConvertRequest("test", BTC, "1.0000")));
+        assertEquals(Status.Code.NOT_FOUND, ex.getStatus().getCode());
+
+        assertEquals(count + 2, convert.getCount());
+        assertEquals(notFound + 1, convert.getNotFoundCount());
+        assertTrue(convert.getMaxMicros() > 0);
+    }
+
+    @Test
+    void streamingCallsAreMeasured() throws Exception {
+        RpcMetrics convertStream = metricsInterceptor.getMethods()
+                .get(RatesServiceGrpc.getConvertStreamMethod().getFullMethodName());
+        long count = convertStream.getCount();
+        long received = convertStream.getReceivedCount();
+        long sent = convertStream.getSentCount();
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        StreamObserver<ConvertBatchRequest> stream = asyncService.convertStream(new StreamObserver<>() {
+            @Override
+            public void onNext(ConvertBatchResponse value) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                result.complete(null);
+            }
+        });
+        stream.onNext(ConvertBatchRequest.newBuilder().addItems(toConvertRequest(USD, BTC, "60000.0000")).build());
+        stream.onNext(ConvertBatchRequest.newBuilder().addItems(toConvertRequest(EUR, USD, "10.0000")).build());
+        stream.onCompleted();
+        result.get(10, TimeUnit.SECONDS);
+
+        assertEquals(count + 1, convertStream.getCount());
+        assertEquals(received + 2, convertStream.getReceivedCount());
+        assertEquals(sent + 2, convertStream.getSentCount());
+    }
+
+    @Test
+    void graphWritesAreMeasured() {
+        assertTrue(graphMetrics.getVertexCount() >= 3);
+        assertTrue(graphMetrics.getPathTableSize() > 0);
+        assertTrue(graphMetrics.getLockHold().getCount() > 0);
+    }
+
+    private static PublishRequest toPublishRequest(String base, String quote, String price) {
+        return PublishRequest.newBuilder()
+                .setBaseCurrency(base)
+                .setQuoteCurrency(quote)
+                .setPrice(price)
+                .build();
+    }
+
+    private static ConvertRequest toConvertRequest(String from, String to, String amount) {
+        return ConvertRequest.newBuilder()
+                .setFromCurrency(from)
+                .setToCurrency(to)
+                .setFromAmount(amount)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.zerohub.challenge.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CurrencyRegistryTest {
+
+    @Test
+    void releasedIdIsReusedAfterDelay() {
+        var registry = new CurrencyRegistry(0);
+        int a = registry.register("A");
+        registry.register("B");
+
+        registry.release(a);
+
+        assertEquals(CurrencyRegistry.UNKNOWN, registry.idOf("A"));
+        assertNull(registry.codeOf(a));
+        assertEquals(a, registry.register("C"));
+        assertEquals(2, registry.size());
+        assertEquals(2, registry.count());
+    }
+
+    @Test
+    void releasedIdIsNotReusedBeforeDelay() {
+        var registry = new CurrencyRegistry(TimeUnit.MINUTES.toNanos(1));
+        int a = registry.register("A");
+
+        registry.release(a);
+
+        assertEquals(1, registry.register("A"));
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.count());
+    }
+
+    @Test
+    void stableIdOfReleasedCurrencyIsNotResolved() {
+        var registry = new CurrencyRegistry(0);
+        int id = registry.register("A");
+        long a = registry.stableIdOf("A");
+        assertEquals("A", registry.codeOfStableId(a));
+
+        registry.release(id);
+
+        assertEquals(id, registry.register("C"));
+        assertNull(registry.codeOfStableId(a));
+        assertEquals("C", registry.codeOfStableId(registry.stableIdOf("C")));
+        assertEquals(CurrencyRegistry.UNKNOWN, registry.stableIdOf("A"));
+    }
+}
@@ -0,0 +1,104 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectedWeightedGraphWithPathCacheTest {
+    private static final String BTC = "BTC";
+    private static final String EUR = "EUR";
+    private static final String USD = "USD";
+    private static final String RUB = "RUB";
+    private static final String LTC = "LTC";
+    private static final String GBP = "GBP";
+    private static final String JPY = "JPY";
+
+    private DirectedWeightedGraphWithPathCache graph;
+
+    @BeforeEach
+    void setup() {
+        graph = new DirectedWeightedGraphWithPathCache(1000);
+        graph.addEdge(BTC, EUR, new BigDecimal("50000"));
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+        graph.addEdge(USD, RUB, new BigDecimal("80"));
+        graph.addEdge(GBP, JPY, new BigDecimal("152.14"));
+    }
+
+    @Test
+    void pathWithFewestEdgesAndLargestLengthIsUsed() {
+        graph.addEdge(LTC, BTC, new BigDecimal("0.04"));
+        graph.addEdge(LTC, USD, new BigDecimal("2320"));
+
+        assertPath("60000", BTC, USD);
+        assertPath("4800000", BTC, RUB);
+        assertPath("2320", LTC, USD);
+    }
+
+    @Test
+    void cachedPathIsRecountedAfterRepricing() {
+        assertPath("4800000", BTC, RUB);
+        assertPath("152.14", GBP, JPY);
+
+        graph.addEdge(EUR, USD, new BigDecimal("1.1"));
+
+        assertPath("4400000", BTC, RUB);
+        assertPath("152.14", GBP, JPY);
+    }
+
+    @Test
+    void snapshotIsNotChangedByNextPublish() {
+        GraphSnapshot snapshot = graph.snapshot();
+
+        graph.addEdge(EUR, USD, new BigDecimal("1.1"));
+
+        assertEquals(0, new BigDecimal("4800000").compareTo(snapshot.findPath(BTC, RUB)));
+        assertPath("4400000", BTC, RUB);
+    }
+
+    @Test
+    void removedEdgeSplitsComponent() {
+        assertPath("4800000", BTC, RUB);
+
+        graph.removeEdges(List.of(new VertexPair(EUR, USD)), new ArrayList<>());
+
+        assertThrows(GraphPathNotFoundException.class, () -> graph.findPath(BTC, RUB));
+        assertPath("50000", BTC, EUR);
+        assertPath("80", USD, RUB);
+
+        graph.addEdge(EUR, USD, new BigDecimal("1.1"));
+
+        assertPath("4400000", BTC, RUB);
+    }
+
+    @Test
+    void notFound() {
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath("test", BTC));
+        assertThrows(GraphPathNotFoundException.class, () -> graph.findPath(JPY, BTC));
+    }
+
+    /**
+     * A batch with an invalid weight fails before any of its edges is added, so its valid edges are published later
+     */
+    @Test
+    void batchWithInvalidWeightChangesNothing() {
+        assertThrows(IllegalArgumentException.class, () -> graph.addEdges(List.of(
+                new Edge(LTC, USD, new BigDecimal("2320")), new Edge(LTC, BTC, BigDecimal.ZERO))));
+
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(LTC, USD));
+        graph.addEdges(List.of(new Edge(LTC, USD, new BigDecimal("2320"))));
+        assertPath("2320", LTC, USD);
+    }
+
+    private void assertPath(String expected, String from, String to) {
+        assertEquals(0, new BigDecimal(expected).compareTo(graph.findPath(from, to)),
+                from + "->" + to + " is " + graph.findPath(from, to));
+    }
+}
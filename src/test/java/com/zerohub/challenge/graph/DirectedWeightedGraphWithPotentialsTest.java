@@ -0,0 +1,132 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import com.zerohub.challenge.utils.DecimalUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DirectedWeightedGraphWithPotentialsTest {
+    private static final String BTC = "BTC";
+    private static final String EUR = "EUR";
+    private static final String USD = "USD";
+    private static final String RUB = "RUB";
+    private static final String LTC = "LTC";
+    private static final String GBP = "GBP";
+    private static final String JPY = "JPY";
+
+    private DirectedWeightedGraphWithPotentials graph;
+
+    @BeforeEach
+    void setup() {
+        graph = new DirectedWeightedGraphWithPotentials();
+        graph.addEdge(BTC, EUR, new BigDecimal("50000"));
+        graph.addEdge(USD, RUB, new BigDecimal("80"));
+        graph.addEdge(GBP, JPY, new BigDecimal("152.14"));
+    }
+
+    @Test
+    void mergedComponentsAreRebased() {
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+
+        assertPath("4800000", BTC, RUB);
+        assertEquals(0, BigDecimal.ONE.compareTo(
+                graph.findPath(RUB, BTC).multiply(new BigDecimal("4800000")).round(new MathContext(12))));
+        assertPath("96", EUR, RUB);
+        assertPath("1", RUB, RUB);
+    }
+
+    @Test
+    void treeEdgeRepricingChangesWholeComponent() {
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+        graph.addEdge(BTC, EUR, new BigDecimal("40000"));
+
+        assertPath("3840000", BTC, RUB);
+        assertPath("96", EUR, RUB);
+    }
+
+    @Test
+    void cycleEdgeDoesNotChangePotentials() {
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+        graph.addEdge(LTC, BTC, new BigDecimal("0.04"));
+        graph.addEdge(LTC, USD, new BigDecimal("2400"));
+
+        assertPath("2400", LTC, USD);
+        assertPath("4800000", BTC, RUB);
+    }
+
+    /**
+     * Rates of the cycle are inconsistent, so the last published edge must answer its own pair
+     */
+    @Test
+    void republishedCycleEdgeIsSwappedIntoTree() {
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+        graph.addEdge(LTC, BTC, new BigDecimal("0.04"));
+        graph.addEdge(LTC, USD, new BigDecimal("2500"));
+
+        assertPath("2500", LTC, USD);
+        assertPath("0.0004", USD, LTC);
+
+        graph.addEdge(BTC, EUR, new BigDecimal("40000"));
+
+        assertPath("40000", BTC, EUR);
+        assertPath("2500", LTC, USD);
+
+        graph.addEdge(EUR, USD, new BigDecimal("1.1"));
+
+        assertPath("1.1", EUR, USD);
+        assertPath("40000", BTC, EUR);
+        assertPath("88", EUR, RUB);
+    }
+
+    @Test
+    void removedTreeEdgeIsReplacedByCycleEdge() {
+        graph.addEdge(EUR, USD, new BigDecimal("1.2"));
+        graph.addEdge(LTC, BTC, new BigDecimal("0.04"));
+        graph.addEdge(LTC, USD, new BigDecimal("2400"));
+
+        graph.removeEdges(List.of(new VertexPair(USD, EUR)), new ArrayList<>());
+
+        assertPath("4800000", BTC, RUB);
+        assertPath("0.0005", EUR, LTC);
+
+        graph.removeEdges(List.of(new VertexPair(LTC, USD), new VertexPair(GBP, JPY)), new ArrayList<>());
+
+        assertThrows(GraphPathNotFoundException.class, () -> graph.findPath(BTC, RUB));
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(GBP, JPY));
+        assertPath("80", USD, RUB);
+        assertPath("25", BTC, LTC);
+    }
+
+    @Test
+    void notFound() {
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath("test", BTC));
+        assertThrows(GraphPathNotFoundException.class, () -> graph.findPath(JPY, BTC));
+    }
+
+    /**
+     * A batch with an invalid weight fails before any of its edges is added, so its valid edges are published later
+     */
+    @Test
+    void batchWithInvalidWeightChangesNothing() {
+        assertThrows(IllegalArgumentException.class, () -> graph.addEdges(List.of(
+                new Edge(LTC, USD, new BigDecimal("2320")), new Edge(LTC, BTC, BigDecimal.ZERO))));
+
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(LTC, USD));
+        graph.addEdges(List.of(new Edge(LTC, USD, new BigDecimal("2320"))));
+        assertPath("2320", LTC, USD);
+    }
+
+    private void assertPath(String expected, String from, String to) {
+        assertEquals(0, new BigDecimal(expected).compareTo(DecimalUtils.roundCarefully(graph.findPath(from, to))),
+                from + "->" + to + " is " + graph.findPath(from, to));
+    }
+}
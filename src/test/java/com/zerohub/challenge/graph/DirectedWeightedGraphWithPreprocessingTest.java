@@ -0,0 +1,425 @@
+package com.zerohub.challenge.graph;
+
+import com.zerohub.challenge.exception.graph.GraphPathNotFoundException;
+import com.zerohub.challenge.exception.graph.VertexNotFoundException;
+import com.zerohub.challenge.utils.DecimalUtils;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectedWeightedGraphWithPreprocessingTest {
+    private static final String A = "A";
+    private static final String B = "B";
+    private static final String C = "C";
+
+    private static final BigDecimal TENTH = new BigDecimal("0.1");
+
+    /**
+     * Paths are rounded to 16 digits after each multiplication, so the order of multiplications
+     * changes the last digits
+     */
+    private static final BigDecimal RELATIVE_ERROR = new BigDecimal("1E-12");
+
+    private static final int READERS = 4;
+    private static final int PUBLISHES = 500;
+
+    @Test
+    void snapshotIsNotChangedByNextPublish() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+        GraphSnapshot snapshot = graph.snapshot();
+
+        graph.addEdge(B, C, new BigDecimal("100"));
+
+        assertEquals(0, new BigDecimal("10").compareTo(snapshot.findPath(A, B)));
+        assertEquals(0, new BigDecimal("1000").compareTo(graph.findPath(A, C)));
+        assertTrue(graph.snapshot().getEpoch() > snapshot.getEpoch());
+    }
+
+    @Test
+    void rateDecreaseChangesDerivedPaths() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+        graph.addEdge(B, C, new BigDecimal("100"));
+
+        graph.addEdge(A, B, new BigDecimal("2"));
+
+        assertEquals(0, new BigDecimal("200").compareTo(graph.findPath(A, C)));
+        assertEquals(0, new BigDecimal("0.005").compareTo(graph.findPath(C, A)));
+        assertEquals(0, new BigDecimal("0.5").compareTo(graph.findPath(B, A)));
+    }
+
+    /**
+     * The reversed weight is 1 / weight rounded half-even to 16 digits, so 1 / 3 is answered as 0.3333
+     * and not rounded up to 0.3334 as with the 4 digit ceiling division
+     */
+    @Test
+    void reversedWeightHasSixteenSignificantDigits() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("3"));
+        graph.addEdge(B, C, new BigDecimal("7"));
+
+        assertEquals(new BigDecimal("0.3333333333333333"), graph.findPath(B, A));
+        assertEquals(new BigDecimal("0.1428571428571429"), graph.findPath(C, B));
+        assertEquals(new BigDecimal("0.04761904761904763"), graph.findPath(C, A));
+        assertEquals(new BigDecimal("0.3333"), DecimalUtils.roundCarefully(graph.findPath(B, A)));
+        assertEquals(new BigDecimal("0.9999999999999999"), graph.findPath(A, B).multiply(graph.findPath(B, A)));
+    }
+
+    @Test
+    void cycleEdgeShortensPaths() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+        graph.addEdge(B, C, new BigDecimal("100"));
+
+        graph.addEdge(A, C, new BigDecimal("900"));
+
+        assertEquals(0, new BigDecimal("900").compareTo(graph.findPath(A, C)));
+
+        graph.addEdge(A, C, new BigDecimal("800"));
+
+        assertEquals(0, new BigDecimal("800").compareTo(graph.findPath(A, C)));
+        assertEquals(0, new BigDecimal("10").compareTo(graph.findPath(A, B)));
+    }
+
+    /**
+     * Random rates go up and down, and after each publish every path must be equal
+     * to the path searched from scratch.
+     */
+    @Test
+    void repricedPathsAreEqualToFullSearch() {
+        var random = new Random(42);
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        int vertexCount = 12;
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(vertexCount);
+            int to = (from + 1 + random.nextInt(vertexCount - 1)) % vertexCount;
+            graph.addEdge(vertex(from), vertex(to), BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+
+            assertPathsAreEqualToFullSearch(graph, vertexCount, "after publish " + i);
+        }
+    }
+
+    /**
+     * Several edges of a hub and its leaves are repriced by one batch, so lengths passed from one repriced edge
+     * go through another one
+     */
+    @Test
+    void repricedBatchesOfHubAreEqualToFullSearch() {
+        var random = new Random(5);
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        int vertexCount = 30;
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 1; i < vertexCount; i++) {
+            edges.add(new Edge(vertex(0), vertex(i), BigDecimal.valueOf(1 + random.nextInt(10_000), 2)));
+        }
+        for (int i = 0; i < 10; i++) {
+            int from = 1 + random.nextInt(vertexCount - 1);
+            edges.add(new Edge(vertex(from), vertex(1 + from % (vertexCount - 1)),
+                    BigDecimal.valueOf(1 + random.nextInt(10_000), 2)));
+        }
+        graph.addEdges(edges);
+        for (int i = 0; i < 100; i++) {
+            List<Edge> repriced = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Edge edge = edges.get(random.nextInt(edges.size()));
+                repriced.add(new Edge(edge.getVertexA(), edge.getVertexB(),
+                        BigDecimal.valueOf(1 + random.nextInt(10_000), 2)));
+            }
+            graph.addEdges(repriced);
+
+            assertPathsAreEqualToFullSearch(graph, vertexCount, "after batch " + i);
+        }
+    }
+
+    /**
+     * Random edges are added and removed, and after each write every path must be equal
+     * to the path searched from scratch, and vertexes without a path must have no stored path.
+     */
+    @Test
+    void pathsAfterRemovalAreEqualToFullSearch() {
+        var random = new Random(17);
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        int vertexCount = 10;
+        for (int i = 0; i < 300; i++) {
+            int from = random.nextInt(vertexCount);
+            int to = (from + 1 + random.nextInt(vertexCount - 1)) % vertexCount;
+            if (random.nextInt(3) == 0) {
+                graph.removeEdges(List.of(new VertexPair(vertex(from), vertex(to))), new ArrayList<>());
+            } else {
+                graph.addEdge(vertex(from), vertex(to), BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+            }
+
+            assertPathsAreEqualToFullSearch(graph, vertexCount, "after write " + i);
+            assertNoPathsToUnreachedVertexes(graph, vertexCount, "after write " + i);
+        }
+    }
+
+    @Test
+    void removedBridgeSplitsComponentAndRemovesIsolatedVertex() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+        graph.addEdge(B, C, new BigDecimal("100"));
+        List<VertexPair> removed = new ArrayList<>();
+
+        graph.removeEdges(List.of(new VertexPair(C, B), new VertexPair(A, C)), removed);
+
+        assertEquals(List.of(new VertexPair(C, B)), removed);
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(A, C));
+        assertEquals(CurrencyRegistry.UNKNOWN, graph.getVertexId(C));
+        assertEquals(0, new BigDecimal("10").compareTo(graph.findPath(A, B)));
+        assertEquals(2, graph.getRegistry().count());
+
+        graph.addEdge(A, C, new BigDecimal("5"));
+
+        assertEquals(0, new BigDecimal("0.5").compareTo(graph.findPath(B, C)));
+    }
+
+    /**
+     * A batch with an invalid weight fails before any of its edges is added, so its valid edges are published later
+     */
+    @Test
+    void batchWithInvalidWeightChangesNothing() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+
+        assertThrows(IllegalArgumentException.class, () -> graph.addEdges(List.of(
+                new Edge(B, C, new BigDecimal("2")), new Edge(A, "D", BigDecimal.ZERO))));
+
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(A, C));
+        graph.addEdges(List.of(new Edge(B, C, new BigDecimal("2"))));
+        assertEquals(0, new BigDecimal("20").compareTo(graph.findPath(A, C)));
+    }
+
+    @Test
+    void expiredEdgesAreRemovedUnlessRepublished() {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, B, new BigDecimal("10"));
+        graph.addEdge(B, C, new BigDecimal("100"));
+        long expiredBefore = System.currentTimeMillis() + 1;
+        while (System.currentTimeMillis() < expiredBefore) {
+            Thread.onSpinWait();
+        }
+        graph.addEdge(B, A, new BigDecimal("0.1"));
+        List<VertexPair> removed = new ArrayList<>();
+
+        graph.removeEdgesUpdatedBefore(expiredBefore, removed);
+
+        assertEquals(List.of(new VertexPair(B, C)), removed);
+        assertEquals(0, new BigDecimal("10").compareTo(graph.findPath(A, B)));
+        assertThrows(VertexNotFoundException.class, () -> graph.findPath(A, C));
+    }
+
+    /**
+     * Writer grows the chain A - V1 - V2 - ... with rates 10 and 0.1, so reversed paths are exact.
+     * Each epoch must satisfy A->Vn * Vn->A == 1 and A->Vn == A->Vn-1 * Vn-1->Vn
+     * for the last vertex published before the snapshot was taken. A torn read breaks one of these equations.
+     */
+    @Test
+    void readersNeverSeeTornSnapshot() throws Exception {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        graph.addEdge(A, vertex(1), BigDecimal.TEN);
+
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+        AtomicInteger published = new AtomicInteger(1);
+        CountDownLatch started = new CountDownLatch(READERS);
+        try {
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    started.countDown();
+                    long checked = 0;
+                    long lastEpoch = 0;
+                    int last;
+                    do {
+                        last = published.get();
+                        GraphSnapshot snapshot = graph.snapshot();
+                        BigDecimal direct = snapshot.findPath(A, vertex(last));
+                        BigDecimal reversed = snapshot.findPath(vertex(last), A);
+                        BigDecimal previous = snapshot.findPath(A, vertex(last - 1));
+                        BigDecimal edge = snapshot.findPath(vertex(last - 1), vertex(last));
+                        assertEquals(0, BigDecimal.ONE.compareTo(direct.multiply(reversed)),
+                                "Reversed path in epoch " + snapshot.getEpoch());
+                        assertEquals(0, direct.compareTo(previous.multiply(edge)),
+                                "Chained path in epoch " + snapshot.getEpoch());
+                        assertTrue(snapshot.getEpoch() >= lastEpoch);
+                        lastEpoch = snapshot.getEpoch();
+                        checked++;
+                    } while (last < PUBLISHES);
+                    return checked;
+                }));
+            }
+            started.await();
+            executor.submit(() -> {
+                for (int i = 2; i <= PUBLISHES; i++) {
+                    graph.addEdge(vertex(i - 1), vertex(i), i % 2 == 0 ? TENTH : BigDecimal.TEN);
+                    published.set(i);
+                }
+            }).get(1, TimeUnit.MINUTES);
+            for (var reader : readers) {
+                assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writers grow separate chains in parallel and then the chains are merged by one more writer.
+     * Every path must be equal to the path searched from scratch.
+     */
+    @Test
+    void componentsArePublishedConcurrently() throws Exception {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        int islands = 4;
+        int islandSize = 60;
+        ExecutorService executor = Executors.newFixedThreadPool(islands);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int island = 0; island < islands; island++) {
+                int first = island * islandSize;
+                writers.add(executor.submit(() -> {
+                    var random = new Random(first);
+                    for (int i = 1; i < islandSize; i++) {
+                        graph.addEdge(vertex(first + random.nextInt(i)), vertex(first + i),
+                                BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+                    }
+                    graph.addEdge(vertex(first + 1), vertex(first + islandSize - 1), BigDecimal.TEN);
+                }));
+            }
+            writers.add(executor.submit(() -> {
+                for (int island = 1; island < islands; island++) {
+                    graph.addEdge(vertex(island * islandSize + 2), vertex(2), TENTH);
+                }
+            }));
+            for (var writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertPathsAreEqualToFullSearch(graph, islands * islandSize, "after merge");
+    }
+
+    /**
+     * Publishers and a remover churn edges of few vertexes, so ids of removed vertexes are released
+     * while publishers of the same vertexes wait for the component lock. Paths must be consistent afterwards.
+     */
+    @Test
+    void publishesRaceWithRemovals() throws Exception {
+        var graph = new DirectedWeightedGraphWithPreprocessing();
+        int vertexes = 6;
+        int writes = 3000;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int publisher = 0; publisher < 2; publisher++) {
+                int seed = publisher;
+                writers.add(executor.submit(() -> {
+                    var random = new Random(seed);
+                    for (int i = 0; i < writes; i++) {
+                        int from = random.nextInt(vertexes);
+                        graph.addEdge(vertex(from), vertex((from + 1 + random.nextInt(vertexes - 1)) % vertexes),
+                                BigDecimal.valueOf(1 + random.nextInt(100), 1));
+                    }
+                }));
+            }
+            writers.add(executor.submit(() -> {
+                var random = new Random(2);
+                for (int i = 0; i < writes; i++) {
+                    int from = random.nextInt(vertexes);
+                    graph.removeEdges(List.of(new VertexPair(vertex(from),
+                            vertex((from + 1 + random.nextInt(vertexes - 1)) % vertexes))), new ArrayList<>());
+                }
+            }));
+            for (var writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertPathsAreEqualToFullSearch(graph, vertexes, "after churn");
+    }
+
+    @Test
+    void largeMergeIsCountedByPool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            var graph = new DirectedWeightedGraphWithPreprocessing(pool, 0);
+            var random = new Random(7);
+            int componentSize = 150;
+            for (int i = 1; i < componentSize; i++) {
+                graph.addEdge(vertex(random.nextInt(i)), vertex(i), BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+                graph.addEdge(vertex(componentSize + random.nextInt(i)), vertex(componentSize + i),
+                        BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+            }
+
+            graph.addEdge(vertex(3), vertex(componentSize + 5), TENTH);
+
+            assertPathsAreEqualToFullSearch(graph, 2 * componentSize, "after merge");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertPathsAreEqualToFullSearch(DirectedWeightedGraphWithPreprocessing graph,
+                                                        int vertexCount, String message) {
+        var search = new PathSearch(graph.getGraphEdges(), graph.getRegistry().size());
+        for (int from = 0; from < vertexCount; from++) {
+            int id = graph.getRegistry().idOf(vertex(from));
+            if (id == CurrencyRegistry.UNKNOWN) {
+                continue;
+            }
+            search.findPaths(id);
+            for (int j = 0; j < search.getReachedCount(); j++) {
+                int reached = search.getReached(j);
+                BigDecimal expected = search.getLength(reached);
+                BigDecimal actual = graph.findPath(vertex(from), graph.getRegistry().codeOf(reached));
+                BigDecimal error = expected.subtract(actual).abs();
+                assertTrue(error.compareTo(expected.abs().multiply(RELATIVE_ERROR)) <= 0,
+                        vertex(from) + "->" + graph.getRegistry().codeOf(reached) + " " + message);
+            }
+        }
+    }
+
+    private static void assertNoPathsToUnreachedVertexes(DirectedWeightedGraphWithPreprocessing graph,
+                                                         int vertexCount, String message) {
+        var search = new PathSearch(graph.getGraphEdges(), graph.getRegistry().size());
+        for (int from = 0; from < vertexCount; from++) {
+            String source = vertex(from);
+            int fromId = graph.getRegistry().idOf(source);
+            if (fromId == CurrencyRegistry.UNKNOWN) {
+                continue;
+            }
+            search.findPaths(fromId);
+            for (int to = 0; to < vertexCount; to++) {
+                String target = vertex(to);
+                int toId = graph.getRegistry().idOf(target);
+                if (toId != CurrencyRegistry.UNKNOWN && search.getLength(toId) == null) {
+                    assertThrows(GraphPathNotFoundException.class, () -> graph.findPath(source, target),
+                            source + "->" + target + " " + message);
+                }
+            }
+        }
+    }
+
+    private static String vertex(int index) {
+        return index == 0 ? A : "V" + index;
+    }
+}
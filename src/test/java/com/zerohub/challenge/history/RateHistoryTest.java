@@ -0,0 +1,188 @@
+package com.zerohub.challenge.history;
+
+import com.zerohub.challenge.config.GraphConfiguration;
+import com.zerohub.challenge.config.GraphEngine;
+import com.zerohub.challenge.config.GraphProperties;
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.RateHistoryUnavailableException;
+import com.zerohub.challenge.exception.business.RateNotFoundException;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RatePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateHistoryTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void pathIsBuiltFromRatesInForceAtInstant() {
+        var history = new RateHistory(Duration.ofHours(1), START);
+        history.record(START + 1000, 1, List.of(rate("A", "B", "2")));
+        history.record(START + 1500, 2, List.of(rate("C", "B", "0.2")));
+        history.record(START + 2000, 3, List.of(rate("A", "B", "3")));
+        history.recordRemoval(START + 3000, 4, List.of(new RatePair("B", "A")));
+
+        assertEquals(0, new BigDecimal("2").compareTo(history.findPath("A", "B", START + 1200, START + 5000)));
+        assertEquals(0, new BigDecimal("10").compareTo(history.findPath("A", "C", START + 1600, START + 5000)));
+        assertEquals(0, new BigDecimal("15").compareTo(history.findPath("A", "C", START + 2999, START + 5000)));
+        assertEquals(0, new BigDecimal("0.2").compareTo(history.findPath("C", "B", START + 3000, START + 5000)));
+        assertThrows(CurrencyNotFoundException.class, () -> history.findPath("A", "C", START + 1200, START + 5000));
+        assertThrows(CurrencyNotFoundException.class, () -> history.findPath("A", "C", START + 3000, START + 5000));
+        assertThrows(RateHistoryUnavailableException.class, () -> history.findPath("A", "B", START - 1, START));
+    }
+
+    /**
+     * Concurrent writers may record ticks out of the order of the graph: a tick of an older write recorded later
+     * is dropped, and one recorded with an earlier time is moved to the last time
+     */
+    @Test
+    void ticksRecordedOutOfGraphOrderKeepRateOfGraph() {
+        var history = new RateHistory(Duration.ofHours(1), START);
+        history.record(START + 1000, 2, List.of(rate("A", "B", "3"), rate("B", "C", "5")));
+        history.record(START + 1500, 1, List.of(rate("B", "A", "0.5")));
+        history.recordRemoval(START + 1200, 3, List.of(new RatePair("C", "B")));
+
+        assertEquals(0, new BigDecimal("3").compareTo(history.findPath("A", "B", START + 1500, START + 5000)));
+        assertEquals(0, new BigDecimal("5").compareTo(history.findPath("B", "C", START + 1499, START + 5000)));
+        assertThrows(CurrencyNotFoundException.class, () -> history.findPath("B", "C", START + 1500, START + 5000));
+    }
+
+    @Test
+    void disconnectedCurrenciesHaveNoPath() {
+        var history = new RateHistory(Duration.ofHours(1), START);
+        history.record(START, 1, List.of(rate("A", "B", "2"), rate("C", "D", "3")));
+
+        assertThrows(RateNotFoundException.class, () -> history.findPath("A", "D", START, START));
+    }
+
+    /**
+     * Ticks of an edge span many blocks and each instant between them is answered with the rate before it
+     */
+    @Test
+    void ticksOfManyBlocksAreFoundByInstant() {
+        var history = new RateHistory(Duration.ofHours(1), START);
+        int ticks = EdgeHistory.MAX_BLOCK_SIZE * 5 + 3;
+        for (int i = 0; i < ticks; i++) {
+            history.record(START + i * 10L, i, List.of(rate("A", "B", String.valueOf(i + 1))));
+        }
+
+        assertEquals(ticks, history.getTickCount());
+        for (int i = 0; i < ticks; i++) {
+            long time = START + i * 10L + 5;
+            assertEquals(0, BigDecimal.valueOf(i + 1).compareTo(history.findPath("A", "B", time, time)));
+        }
+    }
+
+    /**
+     * Blocks before the window are dropped by a prune, not by writes, and the rate in force at the start
+     * of the window is still answered
+     */
+    @Test
+    void ticksBeforeRetentionWindowAreDropped() {
+        var history = new RateHistory(Duration.ofSeconds(10), START);
+        int ticks = EdgeHistory.MAX_BLOCK_SIZE * 10;
+        for (int i = 0; i < ticks; i++) {
+            history.record(START + i * 100L, i, List.of(rate("A", "B", String.valueOf(i + 1))));
+        }
+        history.record(START + ticks * 100L, ticks, List.of(rate("C", "D", "1")));
+        history.recordRemoval(START + ticks * 100L, ticks + 1, List.of(new RatePair("C", "D")));
+        long now = START + ticks * 100L + 20_000;
+        history.record(now, ticks + 2, List.of(rate("E", "F", "1")));
+        assertEquals(ticks + 3, history.getTickCount());
+
+        history.prune(now);
+
+        long horizon = now - 10_000;
+        assertTrue(history.getTickCount() <= EdgeHistory.MAX_BLOCK_SIZE + 1);
+        assertEquals(0, BigDecimal.valueOf(ticks).compareTo(history.findPath("A", "B", horizon, now)));
+        assertThrows(RateHistoryUnavailableException.class, () -> history.findPath("A", "B", horizon - 1, now));
+        assertThrows(CurrencyNotFoundException.class, () -> history.findPath("C", "D", horizon, now));
+    }
+
+    /**
+     * Rates of the current time give the same paths as engines which search paths, also in random graphs
+     * with inconsistent cycles built by many writes, republishes and removals
+     */
+    @ParameterizedTest
+    @EnumSource(value = GraphEngine.class, names = {"PREPROCESSING", "ON_DEMAND"})
+    void pathsOfCurrentTimeAreEqualToGraph(GraphEngine engine) {
+        var random = new Random(42);
+        var history = new RateHistory(Duration.ofHours(1), 0);
+        var converterService = new ConverterServiceImpl(createGraph(engine), Optional.empty(), Optional.of(history));
+        int currencies = 30;
+        for (int i = 1; i < currencies; i++) {
+            converterService.addCurrencies(List.of(new Rate("C" + random.nextInt(i), "C" + i, randomRate(random))));
+        }
+        for (int i = 0; i < 40; i++) {
+            String base = "C" + random.nextInt(currencies);
+            String quote = "C" + random.nextInt(currencies);
+            if (base.equals(quote)) {
+                continue;
+            }
+            if (i % 4 == 3) {
+                converterService.removeCurrencies(List.of(new RatePair(base, quote)));
+            } else {
+                converterService.addCurrencies(List.of(new Rate(base, quote, randomRate(random)),
+                        new Rate(quote, "C" + random.nextInt(currencies), randomRate(random)))
+                        .stream().filter(rate -> !rate.getBaseCurrency().equals(rate.getQuoteCurrency()))
+                        .collect(Collectors.toList()));
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (int from = 0; from < currencies; from++) {
+            for (int to = 0; to < currencies; to++) {
+                if (from == to) {
+                    continue;
+                }
+                String fromCurrency = "C" + from;
+                String toCurrency = "C" + to;
+                assertEquals(convert(() -> converterService.convert(fromCurrency, toCurrency, BigDecimal.TEN)),
+                        convert(() -> converterService.convertAsOf(fromCurrency, toCurrency, BigDecimal.TEN, now)),
+                        fromCurrency + "-" + toCurrency);
+            }
+        }
+    }
+
+    /**
+     * @return the converted amount or the class of the failure
+     */
+    private static Object convert(Supplier<BigDecimal> conversion) {
+        try {
+            return conversion.get();
+        } catch (RuntimeException ex) {
+            return ex.getClass();
+        }
+    }
+
+    private static DirectedWeightedGraph createGraph(GraphEngine engine) {
+        GraphProperties properties = new GraphProperties();
+        properties.setEngine(engine);
+        return new GraphConfiguration().currencyGraph(properties, ForkJoinPool.commonPool());
+    }
+
+    private static BigDecimal randomRate(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(100000), 3);
+    }
+
+    private static Rate rate(String base, String quote, String price) {
+        return new Rate(base, quote, new BigDecimal(price));
+    }
+}
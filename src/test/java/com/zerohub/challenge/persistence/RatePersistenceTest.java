@@ -0,0 +1,263 @@
+package com.zerohub.challenge.persistence;
+
+import com.zerohub.challenge.config.GraphConfiguration;
+import com.zerohub.challenge.config.GraphEngine;
+import com.zerohub.challenge.config.GraphProperties;
+import com.zerohub.challenge.exception.graph.GraphImageCorruptedException;
+import com.zerohub.challenge.graph.DirectedWeightedGraph;
+import com.zerohub.challenge.graph.GraphImageFile;
+import com.zerohub.challenge.service.ConverterServiceImpl;
+import com.zerohub.challenge.service.Rate;
+import com.zerohub.challenge.service.RatePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RatePersistenceTest {
+
+    private static final int CURRENCIES = 40;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Process is stopped without saving the last image, so the restarted one
+     * maps the periodic image and replays the log tail written after it.
+     */
+    @ParameterizedTest
+    @EnumSource(GraphEngine.class)
+    void restartRestoresImageAndLogTail(GraphEngine engine) throws IOException {
+        var random = new Random(11);
+        var graph = createGraph(engine);
+        var persistence = start(graph);
+        var service = new ConverterServiceImpl(graph, Optional.of(persistence));
+        for (int i = 1; i < CURRENCIES / 2; i++) {
+            service.addCurrencies(currency(random.nextInt(i)), currency(i), randomRate(random));
+        }
+        persistence.saveImage();
+        for (int i = CURRENCIES / 2; i < CURRENCIES; i++) {
+            service.addCurrencies(List.of(new Rate(currency(random.nextInt(i)), currency(i), randomRate(random)),
+                    new Rate(currency(random.nextInt(i)), currency(random.nextInt(i)), randomRate(random))));
+        }
+        service.addCurrencies(currency(1), currency(0), new BigDecimal("0.25"));
+
+        var restored = createGraph(engine);
+        start(restored);
+
+        assertSamePaths(graph, restored);
+    }
+
+    /**
+     * Currencies removed before the image leave released ids in it, removals after the image are replayed.
+     * Rates are exact in both directions, so potentials rebuilt in another order have the same paths.
+     */
+    @ParameterizedTest
+    @EnumSource(GraphEngine.class)
+    void restartRestoresRemovals(GraphEngine engine) throws IOException {
+        var graph = createGraph(engine);
+        var persistence = start(graph);
+        var service = new ConverterServiceImpl(graph, Optional.of(persistence));
+        for (int i = 1; i < CURRENCIES; i++) {
+            service.addCurrencies(currency(i - 1), currency(i), BigDecimal.TEN);
+        }
+        service.removeCurrencies(List.of(new RatePair(currency(1), currency(0)),
+                new RatePair(currency(10), currency(11))));
+        persistence.saveImage();
+        service.removeCurrencies(List.of(new RatePair(currency(20), currency(21)),
+                new RatePair(currency(CURRENCIES - 1), currency(CURRENCIES - 2))));
+
+        var restored = createGraph(engine);
+        start(restored);
+
+        assertSamePaths(graph, restored);
+        assertEquals(null, findPath(restored, currency(0), currency(0)));
+        assertEquals(null, findPath(restored, currency(5), currency(15)));
+    }
+
+    /**
+     * Every engine continues epochs of the image, so records appended after a restart follow the image
+     */
+    @ParameterizedTest
+    @EnumSource(GraphEngine.class)
+    void restoredGraphContinuesEpochOfImage(GraphEngine engine) throws IOException {
+        var graph = createGraph(engine);
+        var service = new ConverterServiceImpl(graph, Optional.of(start(graph)));
+        for (int i = 1; i < CURRENCIES; i++) {
+            service.addCurrencies(currency(i - 1), currency(i), BigDecimal.TEN);
+        }
+        start(createGraph(engine)).stop();
+
+        var restored = createGraph(engine);
+        start(restored);
+
+        assertEquals(graph.snapshot().getEpoch(), restored.snapshot().getEpoch());
+        assertSamePaths(graph, restored);
+    }
+
+    /**
+     * Process crashes after the image is saved and before segments contained in it are deleted.
+     * The restarted one deletes them instead of replaying removals against the image which contains them.
+     */
+    @ParameterizedTest
+    @EnumSource(GraphEngine.class)
+    void segmentsLeftBeforeImageAreNotReplayed(GraphEngine engine) throws IOException {
+        var first = createGraph(engine);
+        var firstService = new ConverterServiceImpl(first, Optional.of(start(first)));
+        for (int i = 1; i < CURRENCIES; i++) {
+            firstService.addCurrencies(currency(i - 1), currency(i), BigDecimal.TEN);
+        }
+
+        var graph = createGraph(engine);
+        var persistence = start(graph);
+        var service = new ConverterServiceImpl(graph, Optional.of(persistence));
+        service.removeCurrencies(List.of(new RatePair(currency(10), currency(11))));
+        service.addCurrencies(currency(10), currency(11), new BigDecimal("0.5"));
+        service.removeCurrencies(List.of(new RatePair(currency(20), currency(21))));
+        List<Path> segments = logSegments();
+        List<byte[]> contents = new ArrayList<>();
+        for (Path segment : segments) {
+            contents.add(Files.readAllBytes(segment));
+        }
+        persistence.saveImage();
+        for (int i = 0; i < segments.size(); i++) {
+            Files.write(segments.get(i), contents.get(i));
+        }
+        service.addCurrencies(currency(0), currency(CURRENCIES - 1), new BigDecimal("0.01"));
+
+        var restored = createGraph(engine);
+        start(restored);
+
+        assertSamePaths(graph, restored);
+        for (Path segment : segments) {
+            assertFalse(Files.exists(segment), segment + " is kept");
+        }
+    }
+
+    @Test
+    void damagedLogRecordIsDropped() throws IOException {
+        var graph = createGraph(GraphEngine.PREPROCESSING);
+        var service = new ConverterServiceImpl(graph, Optional.of(start(graph)));
+        service.addCurrencies("A", "B", new BigDecimal("10"));
+        service.addCurrencies("B", "C", new BigDecimal("100"));
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() - 1);
+        }
+
+        var restored = createGraph(GraphEngine.PREPROCESSING);
+        start(restored);
+
+        assertEquals(0, new BigDecimal("10").compareTo(restored.findPath("A", "B")));
+        assertThrows(RuntimeException.class, () -> restored.findPath("A", "C"));
+    }
+
+    @Test
+    void corruptedImageIsDetected() throws IOException {
+        var graph = createGraph(GraphEngine.PREPROCESSING);
+        graph.addEdge("A", "B", new BigDecimal("10"));
+        Path file = directory.resolve("graph.img");
+        GraphImageFile.write(graph.image(), file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() / 2);
+        }
+
+        assertThrows(GraphImageCorruptedException.class, () -> GraphImageFile.read(file));
+    }
+
+    /**
+     * Segments contained in the image are deleted, so the startup fails instead of replaying only the log
+     */
+    @Test
+    void corruptedImageStopsStartupAndKeepsFiles() throws IOException {
+        var graph = createGraph(GraphEngine.PREPROCESSING);
+        var persistence = start(graph);
+        new ConverterServiceImpl(graph, Optional.of(persistence)).addCurrencies("A", "B", new BigDecimal("10"));
+        persistence.stop();
+        Path file = directory.resolve("graph.img");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() / 2);
+        }
+        byte[] corrupted = Files.readAllBytes(file);
+        List<Path> segments = logSegments();
+
+        assertThrows(GraphImageCorruptedException.class, () -> start(createGraph(GraphEngine.PREPROCESSING)));
+
+        assertArrayEquals(corrupted, Files.readAllBytes(file));
+        assertEquals(segments, logSegments());
+    }
+
+    private List<Path> logSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private RatePersistence start(DirectedWeightedGraph graph) throws IOException {
+        var persistence = new RatePersistence(graph, directory, Duration.ZERO, false);
+        persistence.start();
+        return persistence;
+    }
+
+    private static void assertSamePaths(DirectedWeightedGraph expected, DirectedWeightedGraph actual) {
+        List<String> missing = new ArrayList<>();
+        for (int from = 0; from < CURRENCIES; from++) {
+            for (int to = 0; to < CURRENCIES; to++) {
+                BigDecimal expectedPath = findPath(expected, currency(from), currency(to));
+                BigDecimal actualPath = findPath(actual, currency(from), currency(to));
+                if (expectedPath == null ? actualPath != null : expectedPath.compareTo(actualPath) != 0) {
+                    missing.add(currency(from) + "->" + currency(to));
+                }
+            }
+        }
+        assertEquals(List.of(), missing);
+    }
+
+    private static BigDecimal findPath(DirectedWeightedGraph graph, String from, String to) {
+        try {
+            return graph.findPath(from, to);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static DirectedWeightedGraph createGraph(GraphEngine engine) {
+        GraphProperties properties = new GraphProperties();
+        properties.setEngine(engine);
+        return new GraphConfiguration().currencyGraph(properties, ForkJoinPool.commonPool());
+    }
+
+    private static String currency(int index) {
+        return "C" + index;
+    }
+
+    private static BigDecimal randomRate(Random random) {
+        return BigDecimal.valueOf(1 + random.nextInt(1_000_000), 4);
+    }
+}
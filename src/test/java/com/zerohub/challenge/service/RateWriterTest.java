@@ -0,0 +1,193 @@
+package com.zerohub.challenge.service;
+
+import com.zerohub.challenge.config.PublishOverflow;
+import com.zerohub.challenge.exception.business.CurrencyNotFoundException;
+import com.zerohub.challenge.exception.business.InvalidRateException;
+import com.zerohub.challenge.exception.business.PublishRejectedException;
+import com.zerohub.challenge.graph.DirectedWeightedGraphWithPreprocessing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateWriterTest {
+
+    private final CountDownLatch firstWriteStarted = new CountDownLatch(1);
+    private final CountDownLatch firstWriteReleased = new CountDownLatch(1);
+    private final List<List<Rate>> writes = new CopyOnWriteArrayList<>();
+    private final ConverterServiceImpl converterService = new ConverterServiceImpl(
+            new DirectedWeightedGraphWithPreprocessing()) {
+        @Override
+        public long addCurrencies(List<Rate> rates) {
+            writes.add(rates);
+            firstWriteStarted.countDown();
+            try {
+                firstWriteReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.addCurrencies(rates);
+        }
+    };
+    private RateWriter rateWriter;
+
+    @AfterEach
+    void close() throws InterruptedException {
+        firstWriteReleased.countDown();
+        rateWriter.close();
+    }
+
+    /**
+     * Publishes queued while the writer is busy are applied as one write with the last rate of each pair
+     */
+    @Test
+    void queuedRatesAreCoalesced() throws Exception {
+        rateWriter = new RateWriter(converterService, 100, PublishOverflow.REJECT);
+        CompletableFuture<Long> first = rateWriter.publish(List.of(rate("A", "B", "1")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Long> superseded = rateWriter.publish(List.of(rate("A", "C", "2")));
+        CompletableFuture<Long> reversed = rateWriter.publish(List.of(rate("C", "A", "0.25")));
+        CompletableFuture<Long> other = rateWriter.publish(List.of(rate("B", "D", "3")));
+        firstWriteReleased.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS) < other.get(10, TimeUnit.SECONDS));
+        assertEquals(2, writes.size());
+        assertEquals(other.get(), superseded.get());
+        assertEquals(other.get(), reversed.get());
+        assertEquals(List.of(rate("C", "A", "0.25"), rate("B", "D", "3")), writes.get(1));
+        assertEquals(0, new BigDecimal("4").compareTo(converterService.convert("A", "C", BigDecimal.ONE)));
+    }
+
+    @Test
+    void publishIsRejectedWhenQueueIsFull() throws Exception {
+        rateWriter = new RateWriter(converterService, 1, PublishOverflow.REJECT);
+        rateWriter.publish(List.of(rate("A", "B", "1")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Long> queued = rateWriter.publish(List.of(rate("A", "B", "2")));
+
+        CompletableFuture<Long> rejected = rateWriter.publish(List.of(rate("A", "B", "3")));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(ex.getCause() instanceof PublishRejectedException);
+        firstWriteReleased.countDown();
+        assertTrue(queued.get(10, TimeUnit.SECONDS) > 0);
+    }
+
+    /**
+     * Rates of calls queued before and after the invalid one are visible after the coalesced write fails
+     */
+    @Test
+    void invalidRateFailsOnlyItsPublish() throws Exception {
+        rateWriter = new RateWriter(converterService, 100, PublishOverflow.REJECT);
+        rateWriter.publish(List.of(rate("A", "B", "1")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Long> validBefore = rateWriter.publish(List.of(rate("G", "H", "3"), rate("B", "G", "5")));
+        CompletableFuture<Long> invalid = rateWriter.publish(List.of(rate("C", "D", "0")));
+        CompletableFuture<Long> validAfter = rateWriter.publish(List.of(rate("E", "F", "2")));
+        firstWriteReleased.countDown();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> invalid.get(10, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof InvalidRateException);
+        assertTrue(validBefore.get(10, TimeUnit.SECONDS) > 0);
+        assertTrue(validAfter.get(10, TimeUnit.SECONDS) > validBefore.get());
+        assertEquals(0, new BigDecimal("3").compareTo(converterService.convert("G", "H", BigDecimal.ONE)));
+        assertEquals(0, new BigDecimal("15").compareTo(converterService.convert("B", "H", BigDecimal.ONE)));
+        assertEquals(0, new BigDecimal("2").compareTo(converterService.convert("E", "F", BigDecimal.ONE)));
+        assertThrows(CurrencyNotFoundException.class, () -> converterService.convert("C", "D", BigDecimal.ONE));
+    }
+
+    /**
+     * Unpublish queued after a publish of the same pair supersedes it, and a publish after an unpublish restores it
+     */
+    @Test
+    void unpublishIsOrderedWithPublishes() throws Exception {
+        rateWriter = new RateWriter(converterService, 100, PublishOverflow.REJECT);
+        rateWriter.publish(List.of(rate("A", "B", "1"), rate("C", "D", "3")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        rateWriter.publish(List.of(rate("A", "B", "2")));
+        CompletableFuture<Long> removedAB = rateWriter.unpublish(List.of(new RatePair("B", "A")));
+        rateWriter.unpublish(List.of(new RatePair("C", "D")));
+        CompletableFuture<Long> restoredCD = rateWriter.publish(List.of(rate("D", "C", "0.5")));
+        firstWriteReleased.countDown();
+
+        assertEquals(removedAB.get(10, TimeUnit.SECONDS), restoredCD.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(rate("D", "C", "0.5")), writes.get(1));
+        assertThrows(CurrencyNotFoundException.class, () -> converterService.convert("A", "B", BigDecimal.ONE));
+        assertEquals(0, new BigDecimal("2").compareTo(converterService.convert("C", "D", BigDecimal.ONE)));
+    }
+
+    /**
+     * Expiry is applied before rates queued with it, so a republished rate is kept and other rates are removed
+     */
+    @Test
+    void expiryIsOrderedWithPublishes() throws Exception {
+        rateWriter = new RateWriter(converterService, 100, PublishOverflow.REJECT);
+        rateWriter.publish(List.of(rate("A", "B", "1"), rate("C", "D", "3")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Long> expired = rateWriter.expire(System.currentTimeMillis() + 60_000);
+        CompletableFuture<Long> republished = rateWriter.publish(List.of(rate("B", "A", "0.5")));
+        firstWriteReleased.countDown();
+
+        assertEquals(expired.get(10, TimeUnit.SECONDS), republished.get(10, TimeUnit.SECONDS));
+        assertEquals(0, new BigDecimal("2").compareTo(converterService.convert("A", "B", BigDecimal.ONE)));
+        assertThrows(CurrencyNotFoundException.class, () -> converterService.convert("C", "D", BigDecimal.ONE));
+    }
+
+    /**
+     * A journal failure comes after the rates are applied, so the calls are failed instead of being applied again
+     */
+    @Test
+    void failureAfterApplyFailsAllCallsOfWrite() throws Exception {
+        List<List<Rate>> journaled = new CopyOnWriteArrayList<>();
+        RateJournal journal = new RateJournal() {
+            @Override
+            public void append(long epoch, List<Rate> rates) {
+                journaled.add(rates);
+                firstWriteStarted.countDown();
+                try {
+                    firstWriteReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (journaled.size() > 1) {
+                    throw new UncheckedIOException(new IOException("journal is not writable"));
+                }
+            }
+
+            @Override
+            public void appendRemoval(long epoch, List<RatePair> pairs) {
+            }
+        };
+        rateWriter = new RateWriter(new ConverterServiceImpl(new DirectedWeightedGraphWithPreprocessing(),
+                Optional.of(journal)), 100, PublishOverflow.REJECT);
+        CompletableFuture<Long> first = rateWriter.publish(List.of(rate("A", "B", "1")));
+        assertTrue(firstWriteStarted.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Long> second = rateWriter.publish(List.of(rate("C", "D", "2")));
+        CompletableFuture<Long> third = rateWriter.publish(List.of(rate("E", "F", "3")));
+        firstWriteReleased.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS) > 0);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof UncheckedIOException);
+        assertThrows(ExecutionException.class, () -> third.get(10, TimeUnit.SECONDS));
+        assertEquals(2, journaled.size());
+    }
+
+    private static Rate rate(String base, String quote, String price) {
+        return new Rate(base, quote, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,77 @@
+package com.zerohub.challenge.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FixedDecimalTest {
+
+    private static final int SAMPLES = 100_000;
+
+    /**
+     * Amounts and rates of random magnitudes, including reversed rates with 16 significant digits.
+     * Each result must be equal to the string returned by the BigDecimal path.
+     */
+    @Test
+    void convertIsEqualToBigDecimal() {
+        var random = new Random(42);
+        var amount = new FixedDecimal();
+        var result = new FixedDecimal();
+        for (int i = 0; i < SAMPLES; i++) {
+            String amountText = randomDecimal(random, 4).toPlainString();
+            BigDecimal rate = randomDecimal(random, 0);
+            if (random.nextBoolean() && rate.signum() != 0) {
+                rate = BigDecimal.ONE.divide(rate, MathContext.DECIMAL64);
+            }
+            String expected = DecimalUtils.roundCarefully(new BigDecimal(amountText).multiply(rate)).toString();
+
+            assertTrue(amount.parse(amountText), amountText);
+            if (result.set(rate) && result.multiply(amount, DecimalUtils.ROUNDING_SCALE)) {
+                assertEquals(expected, result.format(), amountText + " * " + rate);
+            } else {
+                assertTrue(new BigDecimal(expected).unscaledValue().bitLength() >= Long.SIZE - 1,
+                        amountText + " * " + rate);
+            }
+        }
+    }
+
+    @Test
+    void roundsHalfUp() {
+        var amount = new FixedDecimal();
+        var result = new FixedDecimal();
+
+        assertTrue(amount.parse("-0.00005"));
+        assertTrue(result.set(BigDecimal.ONE));
+        assertTrue(result.multiply(amount, DecimalUtils.ROUNDING_SCALE));
+        assertEquals("-0.0001", result.format());
+
+        assertTrue(amount.parse("0.0000000003"));
+        assertTrue(result.set(new BigDecimal("60000.0000")));
+        assertTrue(result.multiply(amount, DecimalUtils.ROUNDING_SCALE));
+        assertEquals("0.0000", result.format());
+    }
+
+    @Test
+    void unsupportedTextIsNotParsed() {
+        var amount = new FixedDecimal();
+
+        assertFalse(amount.parse(""));
+        assertFalse(amount.parse("."));
+        assertFalse(amount.parse("1e5"));
+        assertFalse(amount.parse("one"));
+        assertFalse(amount.parse("1234567890123456789"));
+        assertTrue(amount.parse("+.5"));
+        assertEquals(new BigDecimal("0.5"), amount.toBigDecimal());
+    }
+
+    private static BigDecimal randomDecimal(Random random, int minShift) {
+        long unscaled = random.nextLong() >> (minShift + random.nextInt(Long.SIZE - minShift));
+        return BigDecimal.valueOf(unscaled, random.nextInt(20));
+    }
+}